@@ -0,0 +1,119 @@
+package expressions;
+
+import java.math.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code ArithmeticExpressionBenchmark} compares what each
+ *  {@code ArithmeticExpression} mode costs against the plain
+ *  {@code CompiledExpression} program on an expression that never
+ *  overflows.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class    ArithmeticExpressionBenchmark
+{
+    /**
+     *  The number of operators in the expression evaluated.
+     */
+    @Param({"4", "64", "1024"})
+    public int                      operators;
+
+    private CompiledExpression      compiled;
+    private ArithmeticExpression    wrap;
+    private ArithmeticExpression    checked;
+    private ArithmeticExpression    wide;
+    private ArithmeticExpression    big;
+
+    /**
+     *  Build the expression and an evaluator for each mode.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int             which;
+        char            operatorsToUse[]    = {
+                                Addition.operator,
+                                Multiplication.operator,
+                                Subtraction.operator,
+                                Division.operator,
+                            };
+        StringBuilder   text;
+        Expression      tree;
+
+        text = new StringBuilder("1");
+        for (which = 0; (which < operators); ++which) {
+            text.append(' ').
+                 append(operatorsToUse[which % operatorsToUse.length]).
+                 append(' ').
+                 append(which % 9 + 1);
+        }
+
+        tree = new Expression(text.toString());
+        compiled = new CompiledExpression(tree);
+        wrap = new ArithmeticExpression(tree, ArithmeticExpression.WRAP);
+        checked = new ArithmeticExpression(tree,
+                                           ArithmeticExpression.CHECKED);
+        wide = new ArithmeticExpression(tree, ArithmeticExpression.LONG);
+        big = new ArithmeticExpression(tree, ArithmeticExpression.BIG);
+    }
+
+    /**
+     *  Run the program without any mode.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  compiled()
+    {
+        return(compiled.getValue());
+    }
+
+    /**
+     *  Evaluate wrapping around on overflow.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  wrap()
+    {
+        return(wrap.getValue());
+    }
+
+    /**
+     *  Evaluate in {@code int}, checking every operation.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  checked()
+    {
+        return(checked.getValue());
+    }
+
+    /**
+     *  Evaluate in {@code long}, checking every operation.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public long wide()
+    {
+        return(wide.getLongValue(null));
+    }
+
+    /**
+     *  Evaluate in {@code BigInteger}.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public BigInteger   big()
+    {
+        return(big.getBigValue(null));
+    }
+}
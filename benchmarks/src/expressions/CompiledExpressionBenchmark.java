@@ -0,0 +1,104 @@
+package expressions;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code CompiledExpressionBenchmark} compares walking an
+ *  {@code Expression} tree with running the same expression as a
+ *  {@code CompiledExpression} and as a class generated by
+ *  {@code JitExpression}.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class    CompiledExpressionBenchmark
+{
+    /**
+     *  The number of operators in the expression evaluated.
+     */
+    @Param({"4", "64", "1024"})
+    public int                  operators;
+
+    private Expression          tree;
+    private CompiledExpression  compiled;
+    private JitExpression       generated;
+    private int                 stack[];
+
+    /**
+     *  Build the expression, its tree and its program.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int             which;
+        char            operatorsToUse[]    = {
+                                Addition.operator,
+                                Multiplication.operator,
+                                Subtraction.operator,
+                                Division.operator,
+                            };
+        StringBuilder   text;
+
+        text = new StringBuilder("1");
+        for (which = 0; (which < operators); ++which) {
+            text.append(' ').
+                 append(operatorsToUse[which % operatorsToUse.length]).
+                 append(' ').
+                 append(which % 9 + 1);
+        }
+
+        tree = new Expression(text.toString());
+        compiled = new CompiledExpression(tree);
+        stack = new int[compiled.getMaxStack()];
+        generated = new JitExpression(tree, 0);
+        generated.getValue();
+    }
+
+    /**
+     *  Walk the tree.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  tree()
+    {
+        return(tree.getValue());
+    }
+
+    /**
+     *  Run the program with a fresh stack each time.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  compiled()
+    {
+        return(compiled.getValue());
+    }
+
+    /**
+     *  Run the program reusing one stack.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  compiledReusingStack()
+    {
+        return(compiled.getValue(null, stack));
+    }
+
+    /**
+     *  Call the class generated for the expression.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  generated()
+    {
+        return(generated.getValue());
+    }
+}
@@ -0,0 +1,103 @@
+package expressions;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code EditableExpressionBenchmark} measures how long an edit to
+ *  an {@code EditableExpression} takes as the expression grows, next
+ *  to parsing the whole text again as {@code new Expression(String)}
+ *  would.  The expression is a sum of terms in parentheses, and each
+ *  edit is made to the last of them, as when typing at the end of a
+ *  formula.  Changing a digit only reads that token again, and
+ *  changing an operator only parses that term again, so neither
+ *  should grow with the number of terms, while parsing everything
+ *  does.  An edit further left costs more, since every operator to
+ *  its right is on its path back to the root and is built again.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class    EditableExpressionBenchmark
+{
+    /**
+     *  The number of terms in the expression.
+     */
+    @Param({"100", "10000", "100000"})
+    public int                  terms;
+
+    private String              text;
+    private EditableExpression  editable;
+    private int                 digit;
+    private int                 operator;
+    private boolean             flip;
+
+    /**
+     *  Build the expression and parse it once.
+     */
+    @Setup
+    public void setup()
+    {
+        int             which;
+        StringBuilder   builder;
+
+        builder = new StringBuilder();
+        for (which = 0; (which < terms); ++which) {
+            if (which > 0) {
+                builder.append(" + ");
+            }
+            builder.append("(x * ").append(which).append(" - 3)");
+        }
+        text = builder.toString();
+        editable = new EditableExpression(text);
+
+        /*
+         *  The last term ends "- 3)".
+         */
+        digit = text.length() - 2;
+        operator = text.length() - 4;
+        flip = false;
+    }
+
+    /**
+     *  Change the last digit, back and forth between two values.
+     *  @return The edited expression.
+     */
+    @Benchmark
+    public EditableExpression   editDigit()
+    {
+        flip = !flip;
+        editable = editable.edit(digit, 1, (flip == true) ? "7" : "3");
+        return(editable);
+    }
+
+    /**
+     *  Change the last operator, back and forth between two, which
+     *  parses the last term again.
+     *  @return The edited expression.
+     */
+    @Benchmark
+    public EditableExpression   editOperator()
+    {
+        flip = !flip;
+        editable = editable.edit(operator, 1, (flip == true) ? "/" : "-");
+        return(editable);
+    }
+
+    /**
+     *  Parse the whole text again.
+     *  @return The expression.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public Expression   reparse()
+            throws Exception
+    {
+        return(new Expression(text));
+    }
+}
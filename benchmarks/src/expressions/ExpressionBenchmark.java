@@ -0,0 +1,154 @@
+package expressions;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+/**
+ *  {@code ExpressionBenchmark} measures each step an expression goes
+ *  through on its own: breaking the text into tokens, building the
+ *  tree, evaluating it and printing it.  The expressions come from a
+ *  {@link Workload}, so their length, nesting, operators and
+ *  literals can all be varied.  It is the baseline to hold any
+ *  change to those steps against.  To see what each step allocates
+ *  as well as how long it takes, run it with the GC profiler:
+ *  <pre>
+ *      java -jar benchmarks.jar ExpressionBenchmark -prof gc
+ *  </pre>
+ *  and read {@code gc.alloc.rate.norm}, the bytes allocated for each
+ *  operation.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class    ExpressionBenchmark
+{
+    /*
+     *  How many different expressions are cycled through, so the
+     *  branches taken don't repeat from one call to the next.
+     */
+    private static final int    EXPRESSIONS     = 16;
+
+    /**
+     *  The number of operators in each expression.
+     */
+    @Param({"8", "64", "1024"})
+    public int                  operators;
+
+    /**
+     *  How deeply the parentheses are nested.
+     */
+    @Param({"0", "4", "32"})
+    public int                  depth;
+
+    /**
+     *  The operators to draw from, each as often as it appears.
+     */
+    @Param({"+-*/", "++*"})
+    public String               mix;
+
+    /**
+     *  The number of digits in each literal.
+     */
+    @Param({"1", "9"})
+    public int                  digits;
+
+    private String              texts[];
+    private Expression          trees[];
+    private int                 next;
+
+    /**
+     *  Make up the expressions and build their trees.
+     *  @throws Exception When an expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int             which;
+
+        texts = new Workload(operators, depth, mix, digits, 21).
+                                                    next(EXPRESSIONS);
+        trees = new Expression[EXPRESSIONS];
+        for (which = 0; (which < EXPRESSIONS); ++which) {
+            trees[which] = new Expression(texts[which]);
+        }
+        next = 0;
+    }
+
+    /*
+     *  Step to the next expression.
+     */
+    private int which()
+    {
+        next = (next + 1) & (EXPRESSIONS - 1);
+        return(next);
+    }
+
+    /**
+     *  Break the text into {@code String} tokens with {@code Parse}.
+     *  @return The tokens.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public String[] tokenize()
+            throws Exception
+    {
+        return(Parse.parse(texts[which()]));
+    }
+
+    /**
+     *  Step through the tokens with a {@code Lexer}, which copies
+     *  nothing out of the text.
+     *  @param blackhole Where each token's kind goes.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public void lex(Blackhole blackhole)
+            throws Exception
+    {
+        Lexer   lexer;
+
+        lexer = new Lexer(texts[which()]);
+        while (lexer.next() != Lexer.END) {
+            blackhole.consume(lexer.getKind());
+        }
+    }
+
+    /**
+     *  Build the tree from the text.
+     *  @return The tree.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public Expression   build()
+            throws Exception
+    {
+        return(new Expression(texts[which()]));
+    }
+
+    /**
+     *  Evaluate a tree that's already built.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  evaluate()
+    {
+        return(trees[which()].getValue());
+    }
+
+    /**
+     *  Print a tree that's already built.
+     *  @return The text of the expression.
+     */
+    @Benchmark
+    public String   print()
+    {
+        return(trees[which()].toString());
+    }
+}
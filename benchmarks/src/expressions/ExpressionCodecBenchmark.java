@@ -0,0 +1,128 @@
+package expressions;
+
+import java.nio.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code ExpressionCodecBenchmark} compares shipping an expression
+ *  as text, printed and parsed again, with shipping it encoded by
+ *  {@code ExpressionCodec}, decoded into a tree or evaluated straight
+ *  from the bytes.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class    ExpressionCodecBenchmark
+{
+    /**
+     *  The number of operators in the expression shipped.
+     */
+    @Param({"4", "64", "1024"})
+    public int                  operators;
+
+    private Expression          tree;
+    private String              text;
+    private ByteBuffer          encoded;
+    private int                 variables[];
+
+    /**
+     *  Build the expression, its text and its encoding.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int             which;
+        char            operatorsToUse[]    = {
+                                Addition.operator,
+                                Multiplication.operator,
+                                Subtraction.operator,
+                                Division.operator,
+                            };
+        StringBuilder   builder;
+
+        builder = new StringBuilder("x");
+        for (which = 0; (which < operators); ++which) {
+            builder.append(' ').
+                    append(operatorsToUse[which % operatorsToUse.length]).
+                    append(' ').
+                    append((which % 3 == 0) ? "(y + 1)" :
+                                              "" + (which * 37 + 1));
+        }
+
+        tree = new Expression(builder.toString());
+        text = tree.toString();
+        encoded = ByteBuffer.wrap(ExpressionCodec.encode(tree));
+        variables = new int[] { 12345, 678 };
+    }
+
+    /**
+     *  Print the tree and parse the text.
+     *  @return The value of the parsed tree.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public int  textRoundTrip()
+            throws Exception
+    {
+        return(new Expression(tree.toString()).getValue(variables));
+    }
+
+    /**
+     *  Parse text that's already been printed.
+     *  @return The value of the parsed tree.
+     *  @throws Exception When the text doesn't parse.
+     */
+    @Benchmark
+    public int  parseText()
+            throws Exception
+    {
+        return(new Expression(text).getValue(variables));
+    }
+
+    /**
+     *  Encode the tree and decode the bytes.
+     *  @return The value of the decoded tree.
+     *  @throws Exception When the bytes don't decode.
+     */
+    @Benchmark
+    public int  binaryRoundTrip()
+            throws Exception
+    {
+        return(ExpressionCodec.decode(ByteBuffer.wrap(
+                        ExpressionCodec.encode(tree))).getValue(variables));
+    }
+
+    /**
+     *  Decode bytes that have already been encoded.
+     *  @return The value of the decoded tree.
+     *  @throws Exception When the bytes don't decode.
+     */
+    @Benchmark
+    public int  decode()
+            throws Exception
+    {
+        return(ExpressionCodec.decode(encoded.duplicate()).
+                                                getValue(variables));
+    }
+
+    /**
+     *  Evaluate bytes that have already been encoded without building
+     *  a tree.
+     *  @return The value of the expression.
+     *  @throws Exception When the bytes don't decode.
+     */
+    @Benchmark
+    public int  evaluateEncoded()
+            throws Exception
+    {
+        return(ExpressionCodec.evaluate(encoded.duplicate(), variables));
+    }
+}
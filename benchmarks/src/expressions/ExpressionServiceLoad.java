@@ -0,0 +1,224 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ *  {@code ExpressionServiceLoad} puts an {@code ExpressionService}
+ *  under load from many client threads at once and reports its
+ *  throughput and latency.  Each client keeps a window of requests
+ *  outstanding and sends another as each one completes.  Latency is
+ *  measured from just before a request is submitted until its value
+ *  arrives, so it includes time spent waiting in the queue.  Run it
+ *  as
+ *  <pre>
+ *      java expressions.ExpressionServiceLoad [clients [window
+ *              [seconds [text|tree]]]]
+ *  </pre>
+ *  which defaults to 16 clients, a window of 8, 10 seconds and text.
+ *  The first second is a warm up and isn't counted.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionServiceLoad
+{
+    private static final String     TEXTS[]     = {
+                                        "2 + 5 - 1 * 5 / 2",
+                                        "(x + 2) * ((x - 4) / 5)",
+                                        "x * x - 3 * x + 7",
+                                        "((1 + 2) * (3 + 4)) / (x - 1)",
+                                    };
+
+    private final ExpressionService     service;
+    private final Semaphore             window;
+    private final int                   size;
+    private final boolean               trees;
+    private final Expression            parsed[];
+    private final List<String>          names;
+    private final long                  measuring;
+    private final long                  stopping;
+    private final AtomicLong            failures;
+    private long                        latencies[];
+    private int                         count;
+
+    /*
+     *  A client that sends requests from its own thread.
+     */
+    private     ExpressionServiceLoad(ExpressionService service, int size,
+                                      boolean trees, Expression parsed[],
+                                      List<String> names, long measuring,
+                                      long stopping, AtomicLong failures)
+    {
+        this.service = service;
+        window = new Semaphore(size);
+        this.size = size;
+        this.trees = trees;
+        this.parsed = parsed;
+        this.names = names;
+        this.measuring = measuring;
+        this.stopping = stopping;
+        this.failures = failures;
+        latencies = new long[1024];
+    }
+
+    /*
+     *  Keep the window full until it's time to stop, then wait for
+     *  what's outstanding.
+     */
+    private void    run()
+    {
+        int         which;
+        int         values[];
+
+        which = 0;
+        try {
+            while (System.nanoTime() < stopping) {
+                long    start;
+                int     test;
+                CompletableFuture<java.lang.Integer>    future;
+
+                window.acquire();
+                test = which++ % TEXTS.length;
+                values = new int[] { which % 1000 + 2 };
+                start = System.nanoTime();
+                try {
+                    future = (trees == true) ?
+                             service.submit(parsed[test], values) :
+                             service.submit(TEXTS[test], names, values);
+                } catch (RejectedExecutionException exception) {
+                    failures.incrementAndGet();
+                    window.release();
+                    continue;
+                }
+                future.whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        failures.incrementAndGet();
+                    }
+                    record(start, System.nanoTime());
+                    window.release();
+                });
+            }
+            window.acquire(size);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     *  Keep how long a request took if it finished while we were
+     *  measuring.
+     */
+    private synchronized void   record(long start, long end)
+    {
+        if ((start < measuring) || (end > stopping)) {
+            return;
+        }
+
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = end - start;
+    }
+
+    /**
+     *  Run the load and print what it measured.
+     *  @param arg The number of clients, the window each keeps
+     *  outstanding, how many seconds to run and whether to send text
+     *  or trees.
+     *  @throws Exception When the expressions don't parse.
+     */
+    public static void  main(String arg[])
+            throws Exception
+    {
+        int                     clients;
+        int                     window;
+        int                     seconds;
+        int                     which;
+        int                     total;
+        boolean                 trees;
+        long                    measuring;
+        long                    stopping;
+        long                    all[];
+        Expression              parsed[];
+        List<String>            names;
+        AtomicLong              failures;
+        ExpressionServiceLoad   loads[];
+        Thread                  threads[];
+
+        clients = (arg.length > 0) ? java.lang.Integer.parseInt(arg[0]) :
+                                     16;
+        window = (arg.length > 1) ? java.lang.Integer.parseInt(arg[1]) : 8;
+        seconds = (arg.length > 2) ? java.lang.Integer.parseInt(arg[2]) :
+                                     10;
+        trees = (arg.length > 3) && (arg[3].equals("tree") == true);
+
+        names = List.of("x");
+        parsed = new Expression[TEXTS.length];
+        for (which = 0; (which < TEXTS.length); ++which) {
+            parsed[which] = new Parser().parse(TEXTS[which], names);
+        }
+
+        failures = new AtomicLong();
+        loads = new ExpressionServiceLoad[clients];
+        threads = new Thread[clients];
+        measuring = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        stopping = measuring + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExpressionService service = new ExpressionService()) {
+            for (which = 0; (which < clients); ++which) {
+                loads[which] = new ExpressionServiceLoad(service, window,
+                                                         trees, parsed,
+                                                         names, measuring,
+                                                         stopping,
+                                                         failures);
+                threads[which] = new Thread(loads[which]::run);
+                threads[which].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        /*
+         *  Put every client's latencies together to find the
+         *  percentiles.
+         */
+        total = 0;
+        for (ExpressionServiceLoad load : loads) {
+            total += load.count;
+        }
+        all = new long[total];
+        total = 0;
+        for (ExpressionServiceLoad load : loads) {
+            System.arraycopy(load.latencies, 0, all, total, load.count);
+            total += load.count;
+        }
+        Arrays.sort(all);
+
+        System.out.println(clients + " clients, window " + window + ", " +
+                           ((trees == true) ? "trees" : "text"));
+        System.out.println("Requests:    " + total +
+                           " (" + failures.get() + " failed)");
+        System.out.println("Throughput:  " + (total / seconds) +
+                           " requests/s");
+        if (total > 0) {
+            System.out.println("Latency p50: " + micros(all, 0.50) + " us");
+            System.out.println("Latency p99: " + micros(all, 0.99) + " us");
+            System.out.println("Latency p99.9: " +
+                               micros(all, 0.999) + " us");
+            System.out.println("Latency max: " +
+                               all[all.length - 1] / 1000 + " us");
+        }
+    }
+
+    /*
+     *  Return a percentile of sorted nanoseconds in microseconds.
+     */
+    private static long micros(long sorted[], double fraction)
+    {
+        int     index;
+
+        index = (int)Math.ceil(fraction * sorted.length) - 1;
+        return(sorted[Math.max(0, index)] / 1000);
+    }
+}
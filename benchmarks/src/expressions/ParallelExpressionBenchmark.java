@@ -0,0 +1,99 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code ParallelExpressionBenchmark} measures how
+ *  {@code ParallelExpression} scales from 1 to 64 threads against
+ *  walking the tree on one thread with {@code IterativeExpression}.
+ *  Run it on a machine with at least as many cores as the largest
+ *  number of threads, since beyond that the threads only share them.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class    ParallelExpressionBenchmark
+{
+    /**
+     *  The number of threads in the pool.
+     */
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int                  threads;
+
+    /**
+     *  The number of operators in the expression evaluated.
+     */
+    @Param({"100000", "1000000"})
+    public int                  operators;
+
+    private Expression          tree;
+    private ForkJoinPool        pool;
+    private ParallelExpression  parallel;
+    private int                 variables[];
+
+    /**
+     *  Build the expression, a long sum of products with a division
+     *  in each term, and a pool of the size asked for.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int             which;
+        Parser          parser;
+        StringBuilder   text;
+
+        text = new StringBuilder("x");
+        for (which = 0; (which < operators / 4); ++which) {
+            text.append((which % 3 == 0) ? " * " : " + ").
+                 append("(x - ").
+                 append(which % 7 + 1).
+                 append(" / y)");
+        }
+
+        parser = new Parser();
+        parser.setMaxDepth(operators * 2);
+        tree = parser.parse(text.toString(), List.of("x", "y"));
+        pool = new ForkJoinPool(threads);
+        parallel = new ParallelExpression(tree, pool,
+                                          ParallelExpression.DEFAULT_CUTOFF);
+        variables = new int[] { 3, 2 };
+    }
+
+    /**
+     *  Shut down the pool.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     *  Walk the tree on one thread.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  sequential()
+    {
+        return(IterativeExpression.evaluate(tree, variables));
+    }
+
+    /**
+     *  Split the tree across the pool.
+     *  @return The value of the expression.
+     */
+    @Benchmark
+    public int  parallel()
+    {
+        return(parallel.getValue(variables));
+    }
+}
@@ -0,0 +1,119 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  {@code VectorExpressionBenchmark} compares three ways of
+ *  evaluating one expression over a batch of rows: calling
+ *  {@code getValue(int[])} for each row, the scalar block loops of
+ *  {@code CompiledExpression}, and the SIMD kernels of
+ *  {@code VectorExpression}.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1,
+      jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class    VectorExpressionBenchmark
+{
+    /**
+     *  The number of rows evaluated.
+     */
+    @Param({"1024", "1048576"})
+    public int                  rows;
+
+    /**
+     *  The expression evaluated.
+     */
+    @Param({"a + b * c", "(a - b) * (a + b) / c + 7"})
+    public String               text;
+
+    private Expression          tree;
+    private CompiledExpression  compiled;
+    private VectorExpression    vector;
+    private int                 columns[][];
+    private int                 variables[];
+    private int                 out[];
+
+    /**
+     *  Build the expression and fill its columns.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        int     slot;
+        int     row;
+        Random  random;
+
+        if (VectorExpression.isVectorized() == false) {
+            throw(new IllegalStateException("Vector API not available"));
+        }
+
+        tree = new Expression(text);
+        compiled = new CompiledExpression(tree);
+        vector = new VectorExpression(tree);
+
+        random = new Random(1);
+        columns = new int[tree.getVariables().length][rows];
+        for (slot = 0; (slot < columns.length); ++slot) {
+            for (row = 0; (row < rows); ++row) {
+                /*
+                 *  Odd values keep divisors away from zero.
+                 */
+                columns[slot][row] = random.nextInt() | 1;
+            }
+        }
+        variables = new int[columns.length];
+        out = new int[rows];
+    }
+
+    /**
+     *  Walk the tree once for each row.
+     *  @return The results.
+     */
+    @Benchmark
+    public int[]    perRow()
+    {
+        int     row;
+        int     slot;
+
+        for (row = 0; (row < rows); ++row) {
+            for (slot = 0; (slot < columns.length); ++slot) {
+                variables[slot] = columns[slot][row];
+            }
+            out[row] = tree.getValue(variables);
+        }
+
+        return(out);
+    }
+
+    /**
+     *  Run the program a block of rows at a time with scalar loops.
+     *  @return The results.
+     */
+    @Benchmark
+    public int[]    scalarBlocks()
+    {
+        compiled.evaluate(columns, out);
+        return(out);
+    }
+
+    /**
+     *  Run the program a block of rows at a time with SIMD kernels.
+     *  @return The results.
+     */
+    @Benchmark
+    public int[]    vectorBlocks()
+    {
+        vector.evaluate(columns, out);
+        return(out);
+    }
+}
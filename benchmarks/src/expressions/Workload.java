@@ -0,0 +1,169 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code Workload} is the class that makes up expressions for the
+ *  benchmarks to work on.  Each expression has exactly the number of
+ *  operators asked for and its parentheses nested exactly as deep as
+ *  asked for.  Its operators are drawn from a mix, a {@code String}
+ *  in which each operator appears as many times as its share, so
+ *  {@code "++*"} gives twice as many additions as multiplications.
+ *  Its literals have the number of digits asked for and never start
+ *  with zero.  The same seed always gives the same expressions, and
+ *  an expression whose value can't be worked out, because somewhere
+ *  it divides by zero, is never given.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public final class  Workload
+{
+    private static final int    MAX_TRIES   = 1000;
+
+    private final int       operators;
+    private final int       depth;
+    private final String    mix;
+    private final int       digits;
+    private final Random    random;
+    private final boolean   dividesOnly;
+
+    /**
+     *  Construct a {@code Workload}.
+     *  @param operators How many operators each expression has.
+     *  @param depth How deeply its parentheses are nested.
+     *  @param mix The operators to draw from, each as often as it
+     *  should be used.
+     *  @param digits How many digits each literal has, from 1 to 9.
+     *  @param seed Where the random choices start.
+     *  @throws IllegalArgumentException When a count is out of range
+     *  or the mix holds something that isn't an operator.
+     */
+    public      Workload(int operators, int depth, String mix, int digits,
+                         long seed)
+    {
+        if ((operators < 0) || (depth < 0) || (digits < 1) ||
+            (digits > 9) || (mix.isEmpty() == true)) {
+            throw(new IllegalArgumentException("Bad workload " +
+                                               operators + ", " + depth +
+                                               ", \"" + mix + "\", " +
+                                               digits));
+        }
+        for (char operator : mix.toCharArray()) {
+            /*
+             *  This throws for anything that isn't an operator.
+             */
+            Opcode.opcode(operator);
+        }
+
+        this.operators = operators;
+        this.depth = depth;
+        this.mix = mix;
+        this.digits = digits;
+        random = new Random(seed);
+        dividesOnly = mix.replace(Division.operator, ' ').isBlank();
+    }
+
+    /**
+     *  Make up the next expression.
+     *  @return The text of the expression.
+     *  @throws IllegalStateException When every expression tried
+     *  divides by zero, which only a mix of nothing but divisions
+     *  nested deeply can do.
+     */
+    public String   next()
+    {
+        int     tries;
+
+        for (tries = 0; (tries < MAX_TRIES); ++tries) {
+            String          text;
+            StringBuilder   builder;
+
+            builder = new StringBuilder();
+            append(builder, operators, depth);
+            text = builder.toString();
+            try {
+                new Expression(text).getValue();
+                return(text);
+            } catch (ArithmeticException exception) {
+                /*
+                 *  Try again rather than measure a division by zero.
+                 */
+            } catch (ParseException exception) {
+                throw(new IllegalStateException(exception));
+            }
+        }
+
+        throw(new IllegalStateException("Every expression divides by" +
+                                        " zero"));
+    }
+
+    /**
+     *  Make up a number of expressions.
+     *  @param count How many to make.
+     *  @return The text of each expression.
+     */
+    public String[] next(int count)
+    {
+        int         which;
+        String      texts[];
+
+        texts = new String[count];
+        for (which = 0; (which < count); ++which) {
+            texts[which] = next();
+        }
+
+        return(texts);
+    }
+
+    /*
+     *  Add a chain of the given number of operators, one of whose
+     *  operands holds parentheses nested to the given depth.  The
+     *  nested part gets half of the operators.  A literal is never
+     *  zero, so only parentheses can be a zero divisor, and they are
+     *  divided by only when the mix has nothing but divisions.
+     */
+    private void    append(StringBuilder builder, int count, int nesting)
+    {
+        int     inner;
+        int     outer;
+        int     grouped;
+        int     which;
+
+        inner = (nesting > 0) ? count / 2 : 0;
+        outer = count - inner;
+        grouped = (nesting > 0) ? random.nextInt(outer + 1) : -1;
+        for (which = 0; (which <= outer); ++which) {
+            if (which > 0) {
+                char    operator;
+
+                do {
+                    operator = mix.charAt(random.nextInt(mix.length()));
+                } while ((which == grouped) &&
+                         (operator == Division.operator) &&
+                         (dividesOnly == false));
+                builder.append(' ').append(operator).append(' ');
+            }
+            if (which == grouped) {
+                builder.append('(');
+                append(builder, inner, nesting - 1);
+                builder.append(')');
+            } else {
+                literal(builder);
+            }
+        }
+    }
+
+    /*
+     *  Add a literal with the right number of digits.
+     */
+    private void    literal(StringBuilder builder)
+    {
+        int     which;
+
+        builder.append((char)('1' + random.nextInt(9)));
+        for (which = 1; (which < digits); ++which) {
+            builder.append((char)('0' + random.nextInt(10)));
+        }
+    }
+}
@@ -3,7 +3,7 @@ package expressions;
 /**
  *  {@code Addition} is the class that extends Expression to
  *  provide a sum of two other expressions.
- *  @version 2022092200
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class    Addition extends Expression
@@ -17,8 +17,14 @@ public class    Addition extends Expression
      */
     public static final int     priority    = '1';
 
-    private Expression  augend;
-    private Expression  addend;
+    /**
+     *  Whether {@code Addition} groups from the right when next
+     *  to an operator of the same priority.
+     */
+    public static final boolean rightAssociative = false;
+
+    private final Expression    augend;
+    private final Expression    addend;
 
     /**
      *  Construct an instance of {@code Addition} that evaluates
@@ -42,12 +48,33 @@ public class    Addition extends Expression
     }
 
     /**
-     *  Return our expression as a {@code String}.
-     *  @return Our expression as a {@code String}.
+     *  Return the sum of our operands using the given values
+     *  for any variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The sum of our operands.
+     */
+    public int  getValue(int variables[])
+    {
+        return(augend.getValue(variables) + addend.getValue(variables));
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#ADD}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.ADD);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which 0 for the augend, 1 for the addend.
+     *  @return The operand asked for.
      */
-    public String       toString()
+    Expression  getOperand(int which)
     {
-        return(augend + " " + operator + " " + addend);
+        return((which == 0) ? augend : addend);
     }
 
     /**
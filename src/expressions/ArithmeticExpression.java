@@ -0,0 +1,695 @@
+package expressions;
+
+import java.math.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code ArithmeticExpression} is the class that extends
+ *  {@code Expression} to evaluate a tree with a choice of arithmetic:
+ *  <ul>
+ *  <li>{@link #WRAP} works in {@code int} and wraps around on
+ *  overflow, just as the tree itself does,</li>
+ *  <li>{@link #CHECKED} works in {@code int} but throws an
+ *  {@link OverflowException} naming the operation that overflowed,</li>
+ *  <li>{@link #LONG} works in {@code long}, throwing when even that
+ *  overflows, and</li>
+ *  <li>{@link #BIG} works in {@code BigInteger} and never
+ *  overflows.</li>
+ *  </ul>
+ *  Each mode runs its own loop over the tree's
+ *  {@link CompiledExpression} program, so {@code WRAP} costs no more
+ *  than the program does.  Asking for the result in a type it won't
+ *  fit throws an {@code OverflowException} for the whole tree.
+ *  A constant too large for an {@code int}, which a {@link Parser}
+ *  keeps as a {@link WideInteger} when told to with
+ *  {@link Parser#setWideLiterals(boolean)}, is read in full in
+ *  {@code LONG} and {@code BIG}, wraps in {@code WRAP} and throws in
+ *  {@code CHECKED}.  Dividing by zero throws an
+ *  {@code ArithmeticException} in every mode.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ArithmeticExpression extends Expression
+{
+    /**
+     *  Mode working in {@code int} that wraps around on overflow.
+     */
+    public static final int     WRAP    = 0;
+
+    /**
+     *  Mode working in {@code int} that throws on overflow.
+     */
+    public static final int     CHECKED = 1;
+
+    /**
+     *  Mode working in {@code long} that throws on overflow.
+     */
+    public static final int     LONG    = 2;
+
+    /**
+     *  Mode working in {@code BigInteger}.
+     */
+    public static final int     BIG     = 3;
+
+    /*
+     *  The name of each mode for an EvaluationEvent.
+     */
+    private static final String MODES[] = { "wrap", "checked", "long",
+                                            "big" };
+
+    private final Expression            source;
+    private final CompiledExpression    compiled;
+    private final int                   code[];
+    private final int                   mode;
+    /*
+     *  The constants too large for an int by where they're pushed in
+     *  the program, null when there are none.
+     */
+    private final WideInteger           wides[];
+
+    /**
+     *  Construct an {@code ArithmeticExpression} from the given tree.
+     *  @param expression The tree to evaluate.
+     *  @param mode One of {@link #WRAP}, {@link #CHECKED},
+     *  {@link #LONG} or {@link #BIG}.
+     */
+    public      ArithmeticExpression(Expression expression, int mode)
+    {
+        if ((mode < WRAP) || (mode > BIG)) {
+            throw(new IllegalArgumentException("Unknown mode " + mode));
+        }
+
+        source = expression;
+        compiled = new CompiledExpression(expression);
+        code = compiled.getCode();
+        this.mode = mode;
+        wides = literals();
+    }
+
+    /**
+     *  Return the arithmetic we work in.
+     *  @return One of {@link #WRAP}, {@link #CHECKED}, {@link #LONG}
+     *  or {@link #BIG}.
+     */
+    public int  getMode()
+    {
+        return(mode);
+    }
+
+    /**
+     *  Evaluate the tree and return its value.
+     *  @return The value of the tree.
+     *  @throws OverflowException When the value or an operation on
+     *  the way doesn't fit.
+     *  @throws IllegalStateException When the tree has variables.
+     */
+    public int  getValue()
+    {
+        return(getValue(null));
+    }
+
+    /**
+     *  Evaluate the tree using the given values for its variables
+     *  and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The value of the tree.
+     *  @throws OverflowException When the value or an operation on
+     *  the way doesn't fit.
+     */
+    public int  getValue(int variables[])
+    {
+        EvaluationEvent event;
+
+        event = new EvaluationEvent();
+        if (event.isEnabled() == false) {
+            return(value(variables));
+        }
+
+        event.begin();
+        try {
+            return(value(variables));
+        } finally {
+            event.evaluated(source, MODES[mode]);
+        }
+    }
+
+    /*
+     *  Helper method that does the work of getValue().
+     */
+    private int value(int variables[])
+    {
+        long        value;
+        BigInteger  wide;
+
+        check(variables);
+        switch (mode) {
+            case WRAP:
+                return(compiled.getValue(variables));
+            case CHECKED:
+                return(checked(variables));
+            case LONG:
+                value = wide(variables);
+                break;
+            default:
+                wide = big(variables);
+                if (wide.bitLength() > 31) {
+                    throw(new OverflowException("int overflow", source));
+                }
+                return(wide.intValue());
+        }
+        if ((int)value != value) {
+            throw(new OverflowException("int overflow", source));
+        }
+
+        return((int)value);
+    }
+
+    /**
+     *  Evaluate the tree using the given values for its variables
+     *  and return its value as a {@code long}.
+     *  @param variables The value of each variable by slot.
+     *  @return The value of the tree.
+     *  @throws OverflowException When the value or an operation on
+     *  the way doesn't fit.
+     */
+    public long getLongValue(int variables[])
+    {
+        BigInteger  value;
+
+        check(variables);
+        switch (mode) {
+            case WRAP:
+                return(compiled.getValue(variables));
+            case CHECKED:
+                return(checked(variables));
+            case LONG:
+                return(wide(variables));
+        }
+
+        value = big(variables);
+        try {
+            return(value.longValueExact());
+        } catch (ArithmeticException exception) {
+            throw(new OverflowException("long overflow", source));
+        }
+    }
+
+    /**
+     *  Evaluate the tree using the given values for its variables
+     *  and return its value as a {@code BigInteger}.
+     *  @param variables The value of each variable by slot.
+     *  @return The value of the tree.
+     *  @throws OverflowException When an operation on the way doesn't
+     *  fit in a mode other than {@link #BIG}.
+     */
+    public BigInteger   getBigValue(int variables[])
+    {
+        check(variables);
+        if (mode == BIG) {
+            return(big(variables));
+        }
+
+        return(BigInteger.valueOf(getLongValue(variables)));
+    }
+
+    /*
+     *  Helper method to make sure we have values when we need them.
+     */
+    private void    check(int variables[])
+    {
+        if ((variables == null) && (compiled.getVariableCount() > 0)) {
+            throw(new IllegalStateException("No value given for" +
+                                            " variables"));
+        }
+    }
+
+    /*
+     *  Helper method to run the program in int, throwing on overflow.
+     */
+    private int checked(int variables[])
+    {
+        int     pc;
+        int     top;
+        int     stack[];
+
+        stack = new int[compiled.getMaxStack()];
+        top = 0;
+        for (pc = 0; (pc < code.length); ++pc) {
+            long    result;
+
+            switch (code[pc]) {
+                case Opcode.LITERAL:
+                    if ((wides != null) && (wides[pc] != null)) {
+                        throw(new OverflowException("int overflow",
+                                                    wides[pc]));
+                    }
+                    stack[top++] = code[++pc];
+                    continue;
+                case Opcode.VARIABLE:
+                    stack[top++] = variables[code[++pc]];
+                    continue;
+                case Opcode.ADD:
+                    --top;
+                    result = (long)stack[top - 1] + stack[top];
+                    break;
+                case Opcode.SUBTRACT:
+                    --top;
+                    result = (long)stack[top - 1] - stack[top];
+                    break;
+                case Opcode.MULTIPLY:
+                    --top;
+                    result = (long)stack[top - 1] * stack[top];
+                    break;
+                default:
+                    --top;
+                    result = (long)stack[top - 1] / stack[top];
+                    break;
+            }
+            if ((int)result != result) {
+                throw(new OverflowException("int overflow",
+                                            operation(pc)));
+            }
+            stack[top - 1] = (int)result;
+        }
+
+        return(stack[0]);
+    }
+
+    /*
+     *  Helper method to run the program in long, throwing on
+     *  overflow.
+     */
+    private long    wide(int variables[])
+    {
+        int     pc;
+        int     top;
+        long    stack[];
+
+        stack = new long[compiled.getMaxStack()];
+        top = 0;
+        for (pc = 0; (pc < code.length); ++pc) {
+            long    left;
+            long    right;
+            long    result;
+
+            switch (code[pc]) {
+                case Opcode.LITERAL:
+                    if ((wides != null) && (wides[pc] != null)) {
+                        if (wides[pc].getBigValue().bitLength() > 63) {
+                            throw(new OverflowException("long overflow",
+                                                        wides[pc]));
+                        }
+                        stack[top++] = wides[pc].getBigValue().longValue();
+                        ++pc;
+                        continue;
+                    }
+                    stack[top++] = code[++pc];
+                    continue;
+                case Opcode.VARIABLE:
+                    stack[top++] = variables[code[++pc]];
+                    continue;
+            }
+
+            right = stack[--top];
+            left = stack[top - 1];
+            switch (code[pc]) {
+                case Opcode.ADD:
+                    result = left + right;
+                    if (((left ^ result) & (right ^ result)) < 0) {
+                        throw(new OverflowException("long overflow",
+                                                    operation(pc)));
+                    }
+                    break;
+                case Opcode.SUBTRACT:
+                    result = left - right;
+                    if (((left ^ right) & (left ^ result)) < 0) {
+                        throw(new OverflowException("long overflow",
+                                                    operation(pc)));
+                    }
+                    break;
+                case Opcode.MULTIPLY:
+                    result = left * right;
+                    if (Math.multiplyHigh(left, right) != (result >> 63)) {
+                        throw(new OverflowException("long overflow",
+                                                    operation(pc)));
+                    }
+                    break;
+                default:
+                    if ((left == Long.MIN_VALUE) && (right == -1)) {
+                        throw(new OverflowException("long overflow",
+                                                    operation(pc)));
+                    }
+                    result = left / right;
+                    break;
+            }
+            stack[top - 1] = result;
+        }
+
+        return(stack[0]);
+    }
+
+    /*
+     *  Helper method to run the program in BigInteger.
+     */
+    private BigInteger  big(int variables[])
+    {
+        int         pc;
+        int         top;
+        BigInteger  stack[];
+
+        stack = new BigInteger[compiled.getMaxStack()];
+        top = 0;
+        for (pc = 0; (pc < code.length); ++pc) {
+            switch (code[pc]) {
+                case Opcode.LITERAL:
+                    stack[top++] = ((wides != null) && (wides[pc] != null)) ?
+                                        wides[pc].getBigValue() :
+                                        BigInteger.valueOf(code[pc + 1]);
+                    ++pc;
+                    continue;
+                case Opcode.VARIABLE:
+                    stack[top++] = BigInteger.valueOf(variables[code[++pc]]);
+                    continue;
+                case Opcode.ADD:
+                    --top;
+                    stack[top - 1] = stack[top - 1].add(stack[top]);
+                    break;
+                case Opcode.SUBTRACT:
+                    --top;
+                    stack[top - 1] = stack[top - 1].subtract(stack[top]);
+                    break;
+                case Opcode.MULTIPLY:
+                    --top;
+                    stack[top - 1] = stack[top - 1].multiply(stack[top]);
+                    break;
+                default:
+                    --top;
+                    if (stack[top].signum() == 0) {
+                        throw(new ArithmeticException("/ by zero"));
+                    }
+                    stack[top - 1] = stack[top - 1].divide(stack[top]);
+                    break;
+            }
+            stack[top] = null;
+        }
+
+        return(stack[0]);
+    }
+
+    /*
+     *  Helper method to find the constants too large for an int,
+     *  walking the tree in the order it was compiled so each lines up
+     *  with where the program pushes it.  Returns null when there are
+     *  none, so the loops only look when they need to.
+     */
+    private WideInteger[]   literals()
+    {
+        int             pc;
+        int             top;
+        boolean         found;
+        Expression      nodes[];
+        int             visits[];
+        WideInteger     literals[];
+
+        literals = new WideInteger[code.length];
+        found = false;
+        nodes = new Expression[16];
+        visits = new int[16];
+        nodes[0] = source;
+        visits[0] = 0;
+        top = 1;
+        pc = 0;
+        while (top > 0) {
+            Expression  node;
+
+            node = nodes[top - 1];
+            switch ((node == null) ? Opcode.LITERAL : node.getOpcode()) {
+                case Opcode.LITERAL:
+                    if (node instanceof WideInteger) {
+                        literals[pc] = (WideInteger)node;
+                        found = true;
+                    }
+                    pc += 2;
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    pc += 2;
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == 2) {
+                ++pc;
+                --top;
+                continue;
+            }
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return((found == true) ? literals : null);
+    }
+
+    /*
+     *  Helper method to find the node for the operation at the given
+     *  place in the program.  Only needed once something overflows,
+     *  so it's found by walking the tree in the order it was compiled
+     *  rather than remembered for every operation up front.
+     */
+    private Expression  operation(int at)
+    {
+        int             pc;
+        int             wanted;
+        int             top;
+        Expression      nodes[];
+        int             visits[];
+
+        wanted = 0;
+        for (pc = 0; (pc < at); ++pc) {
+            if ((code[pc] == Opcode.LITERAL) ||
+                (code[pc] == Opcode.VARIABLE)) {
+                ++pc;
+            } else {
+                ++wanted;
+            }
+        }
+
+        nodes = new Expression[16];
+        visits = new int[16];
+        nodes[0] = source;
+        visits[0] = 0;
+        top = 1;
+        while (top > 0) {
+            Expression  node;
+
+            node = nodes[top - 1];
+            switch ((node == null) ? Opcode.LITERAL : node.getOpcode()) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == 2) {
+                if (wanted-- == 0) {
+                    return(node);
+                }
+                --top;
+                continue;
+            }
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(source);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The tree we evaluate.
+     */
+    Expression  getOperand(int which)
+    {
+        return(source);
+    }
+
+    /**
+     *  Return the tree we evaluate as a {@code String}.
+     *  @return The tree as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + source);
+    }
+
+    /**
+     *  Unit test our {@code ArithmeticExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             whichTest;
+        Parser          parser;
+        int             variables[]     = { 65536, -1 };
+        String          modes[]     = { "WRAP", "CHECKED", "LONG", "BIG" };
+        /*
+         *  The items in this array are expressions to evaluate with x
+         *  set to 65536 and y to -1.  Each corresponds to the results
+         *  in every mode in the following array at the same index.
+         *  A result starting with ! is the node that should throw an
+         *  OverflowException.
+         */
+        String          toTest[]    = {
+                "2 + 5 - 1 * 5 / 2",
+                "x * x - 1",
+                "x * x * x / x",
+                "(x * x * x * x) * 2 + 1",
+                "2147483647 + 1 - 1",
+                "x * x * y / y",
+                "3000000000 * 2",
+                "99999999999999999999 - 99999999999999999998",
+        };
+        String          results[][]     = {
+                { "5", "5", "5", "5" },
+                { "-1", "!x * x", "4294967295", "4294967295" },
+                { "0", "!x * x", "4294967296", "4294967296" },
+                { "1", "!x * x", "!x * x * x * x",
+                  "36893488147419103233" },
+                { "2147483647", "!2147483647 + 1", "2147483647",
+                  "2147483647" },
+                { "0", "!x * x", "4294967296", "4294967296" },
+                { "1705032704", "!3000000000", "6000000000",
+                  "6000000000" },
+                { "1", "!99999999999999999999", "!99999999999999999999",
+                  "1" },
+        };
+
+        /*
+         *  Constants too large for an int are kept for the wider
+         *  modes.
+         */
+        parser = new Parser();
+        parser.setWideLiterals(true);
+        errors = 0;
+        for (whichTest = 0; (whichTest < toTest.length); ++whichTest) {
+            int         mode;
+            Expression  expression;
+
+            System.out.println("Trying to evaluate:\n" +
+                               "  \"" + toTest[whichTest] + "\"");
+            try {
+                expression = parser.parse(toTest[whichTest]);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+
+            for (mode = WRAP; (mode <= BIG); ++mode) {
+                String                  expected;
+                ArithmeticExpression    arithmetic;
+                BigInteger              value;
+
+                expected = results[whichTest][mode];
+                arithmetic = new ArithmeticExpression(expression, mode);
+                try {
+                    value = arithmetic.getBigValue(variables);
+                } catch (OverflowException exception) {
+                    System.out.println(modes[mode] + " throws " +
+                                       exception + " in " +
+                                       exception.getExpression());
+                    if (expected.equals("!" +
+                                exception.getExpression()) == false) {
+                        System.out.println("*** ERROR *** should be " +
+                                           expected);
+                        ++errors;
+                    }
+                    continue;
+                }
+                System.out.println(modes[mode] + ": " + value);
+                if (value.toString().equals(expected) == false) {
+                    System.out.println("*** ERROR *** should be " +
+                                       expected);
+                    ++errors;
+                }
+
+                /*
+                 *  The narrower results either match or throw.
+                 */
+                try {
+                    if (arithmetic.getValue(variables) !=
+                                                value.intValue()) {
+                        System.out.println("*** ERROR *** getValue()" +
+                                           " returns " +
+                                           arithmetic.getValue(variables));
+                        ++errors;
+                    }
+                } catch (OverflowException exception) {
+                    if (value.bitLength() < 32) {
+                        System.out.println("*** ERROR *** getValue()" +
+                                           " throws " + exception);
+                        ++errors;
+                    }
+                }
+            }
+        }
+
+        /*
+         *  Dividing by zero is still an ordinary ArithmeticException.
+         */
+        try {
+            Expression  expression;
+            int         mode;
+
+            expression = new Expression("1 / (2 - 2)");
+            for (mode = WRAP; (mode <= BIG); ++mode) {
+                try {
+                    new ArithmeticExpression(expression, mode).getValue();
+                    System.out.println("*** ERROR *** " + modes[mode] +
+                                       " divides by zero");
+                    ++errors;
+                } catch (OverflowException exception) {
+                    System.out.println("*** ERROR *** " + exception);
+                    ++errors;
+                } catch (ArithmeticException exception) {
+                    System.out.println(modes[mode] + " throws " +
+                                       exception);
+                }
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
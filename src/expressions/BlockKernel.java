@@ -0,0 +1,31 @@
+package expressions;
+
+/**
+ *  {@code BlockKernel} is the interface for applying one operator
+ *  across a block of rows.  {@link CompiledExpression} drives the
+ *  program over a batch of rows and hands each operator to a kernel,
+ *  so a kernel using other instructions can be swapped in without
+ *  changing how the program is run.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+interface       BlockKernel
+{
+    /**
+     *  Apply an operator to {@code count} pairs of values.
+     *  @param opcode One of {@link Opcode#ADD},
+     *  {@link Opcode#SUBTRACT}, {@link Opcode#MULTIPLY} or
+     *  {@link Opcode#DIVIDE}.
+     *  @param left Where the left-hand values are.
+     *  @param leftOffset Index of the first left-hand value.
+     *  @param right Where the right-hand values are.
+     *  @param rightOffset Index of the first right-hand value.
+     *  @param result Where the results go, starting at index 0.  It
+     *  may be the same array as {@code left} when
+     *  {@code leftOffset} is 0.
+     *  @param count How many values to compute.
+     *  @throws ArithmeticException When dividing by zero.
+     */
+    void    apply(int opcode, int left[], int leftOffset, int right[],
+                  int rightOffset, int result[], int count);
+}
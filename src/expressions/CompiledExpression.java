@@ -0,0 +1,545 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code CompiledExpression} is the class that extends
+ *  {@code Expression} to evaluate a tree from a flat program instead
+ *  of walking it.  The program is the tree in postfix order as an
+ *  {@code int} array: {@link Opcode#LITERAL} followed by its value
+ *  pushes a constant, {@link Opcode#VARIABLE} followed by a slot
+ *  pushes the value of that variable, and {@link Opcode#ADD},
+ *  {@link Opcode#SUBTRACT}, {@link Opcode#MULTIPLY} and
+ *  {@link Opcode#DIVIDE} replace the top two values on the stack with
+ *  their result.  Grouping leaves no trace in the program.
+ *  <p>
+ *  The result is always the same as {@code getValue()} on the tree
+ *  we were compiled from, including an {@code ArithmeticException}
+ *  when dividing by zero.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    CompiledExpression extends Expression
+{
+    private static final int    INITIAL_SIZE    = 16;
+    /*
+     *  How many rows evaluate(int[][], int[]) does at a time.  Small
+     *  enough that the intermediate results stay in cache.
+     */
+    private static final int    BLOCK           = 1024;
+    private static final BlockKernel   scalarKernel    =
+                                            CompiledExpression::apply;
+
+    private final Expression    source;
+    private final int           code[];
+    private final int           maxStack;
+    private final int           variableCount;
+
+    /**
+     *  Construct a {@code CompiledExpression} from the given tree.
+     *  The tree is walked once with an explicit stack, so its depth
+     *  doesn't matter.
+     *  @param expression The tree to compile.
+     */
+    public      CompiledExpression(Expression expression)
+    {
+        int             top;
+        int             length;
+        int             depth;
+        int             deepest;
+        int             slots;
+        int             program[];
+        Expression      nodes[];
+        int             visits[];
+
+        /*
+         *  Each node waiting to be compiled remembers how many of its
+         *  operands it has already handed to us.  A binary node is
+         *  emitted after its second operand is done.
+         */
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        program = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        length = 0;
+        depth = 0;
+        deepest = 0;
+        slots = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (length + 2 > program.length) {
+                program = Arrays.copyOf(program, program.length * 2);
+            }
+
+            if (node == null) {
+                /*
+                 *  An empty Expression evaluates to zero.
+                 */
+                opcode = Opcode.LITERAL;
+            } else {
+                opcode = node.getOpcode();
+            }
+
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    program[length++] = Opcode.LITERAL;
+                    program[length++] = (node == null) ? 0 :
+                                                node.getValue();
+                    if (++depth > deepest) {
+                        deepest = depth;
+                    }
+                    --top;
+                    break;
+                case Opcode.VARIABLE:
+                    program[length++] = Opcode.VARIABLE;
+                    program[length++] = ((Variable)node).getSlot();
+                    slots = Math.max(slots, program[length - 1] + 1);
+                    if (++depth > deepest) {
+                        deepest = depth;
+                    }
+                    --top;
+                    break;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    /*
+                     *  Only the operand inside matters.
+                     */
+                    nodes[top - 1] = node.getOperand(0);
+                    break;
+                default:
+                    if (visits[top - 1] == 2) {
+                        program[length++] = opcode;
+                        --depth;
+                        --top;
+                        break;
+                    }
+
+                    if (top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                        visits = Arrays.copyOf(visits, top * 2);
+                    }
+                    nodes[top] = node.getOperand(visits[top - 1]);
+                    visits[top] = 0;
+                    ++visits[top - 1];
+                    ++top;
+                    break;
+            }
+        }
+
+        source = expression;
+        code = Arrays.copyOf(program, length);
+        maxStack = deepest;
+        variableCount = slots;
+    }
+
+    /**
+     *  Evaluate our program and return its value.
+     *  @return The same value as {@code getValue()} on the tree we
+     *  were compiled from.
+     *  @throws IllegalStateException When the program has variables.
+     */
+    public int  getValue()
+    {
+        if (variableCount > 0) {
+            throw(new IllegalStateException("No value given for" +
+                                            " variables"));
+        }
+
+        return(getValue(null));
+    }
+
+    /**
+     *  Evaluate our program using the given values for its variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on the tree
+     *  we were compiled from.
+     */
+    public int  getValue(int variables[])
+    {
+        EvaluationEvent event;
+
+        event = new EvaluationEvent();
+        if (event.isEnabled() == false) {
+            return(getValue(variables, new int[maxStack]));
+        }
+
+        event.begin();
+        try {
+            return(getValue(variables, new int[maxStack]));
+        } finally {
+            event.evaluated(source, "compiled");
+        }
+    }
+
+    /**
+     *  Evaluate our program using the given array as its stack, so
+     *  a caller evaluating over and over needn't allocate.
+     *  @param variables The value of each variable by slot.
+     *  @param stack Array of at least {@link #getMaxStack()} entries.
+     *  @return The same value as {@code getValue(int[])} on the tree
+     *  we were compiled from.
+     */
+    public int  getValue(int variables[], int stack[])
+    {
+        int     pc;
+        int     top;
+        int     program[];
+
+        program = code;
+        top = 0;
+        for (pc = 0; (pc < program.length); ++pc) {
+            switch (program[pc]) {
+                case Opcode.LITERAL:
+                    stack[top++] = program[++pc];
+                    break;
+                case Opcode.VARIABLE:
+                    stack[top++] = variables[program[++pc]];
+                    break;
+                case Opcode.ADD:
+                    --top;
+                    stack[top - 1] = stack[top - 1] + stack[top];
+                    break;
+                case Opcode.SUBTRACT:
+                    --top;
+                    stack[top - 1] = stack[top - 1] - stack[top];
+                    break;
+                case Opcode.MULTIPLY:
+                    --top;
+                    stack[top - 1] = stack[top - 1] * stack[top];
+                    break;
+                case Opcode.DIVIDE:
+                    --top;
+                    stack[top - 1] = stack[top - 1] / stack[top];
+                    break;
+            }
+        }
+
+        return(stack[0]);
+    }
+
+    /**
+     *  Evaluate our program for many rows at once, one block of rows
+     *  at a time.  Within a block each instruction is applied to
+     *  every row before moving on, so each operator is a simple loop
+     *  over arrays that HotSpot can unroll and vectorize.  Variables
+     *  are read straight from their columns without copying.
+     *  @param columns The column of values for each variable by slot.
+     *  Each must have at least as many entries as {@code out}.
+     *  @param out Where the value for each row goes.
+     */
+    public void evaluate(int columns[][], int out[])
+    {
+        evaluate(columns, out, scalarKernel);
+    }
+
+    /**
+     *  Evaluate our program for many rows at once, handing each
+     *  operator to the given kernel.
+     *  @param columns The column of values for each variable by slot.
+     *  Each must have at least as many entries as {@code out}.
+     *  @param out Where the value for each row goes.
+     *  @param kernel What applies each operator to a block of rows.
+     */
+    void    evaluate(int columns[][], int out[], BlockKernel kernel)
+    {
+        int     from;
+        int     rows;
+        int     buffers[][];
+        int     sources[][];
+        int     offsets[];
+
+        if (columns.length < variableCount) {
+            throw(new IllegalArgumentException(variableCount +
+                                               " columns needed, " +
+                                               columns.length +
+                                               " given"));
+        }
+
+        /*
+         *  Each stack entry is a run of values: either a block of a
+         *  column starting at an offset or one of our own buffers.
+         *  A stack entry only ever writes to its own buffer, which
+         *  is never a column.
+         */
+        rows = out.length;
+        buffers = new int[maxStack][];
+        sources = new int[maxStack][];
+        offsets = new int[maxStack];
+        for (from = 0; (from < rows); from += BLOCK) {
+            int     pc;
+            int     top;
+            int     count;
+
+            count = Math.min(BLOCK, rows - from);
+            top = 0;
+            for (pc = 0; (pc < code.length); ++pc) {
+                int     result[];
+
+                switch (code[pc]) {
+                    case Opcode.LITERAL:
+                        result = buffer(buffers, top);
+                        Arrays.fill(result, 0, count, code[++pc]);
+                        sources[top] = result;
+                        offsets[top] = 0;
+                        ++top;
+                        break;
+                    case Opcode.VARIABLE:
+                        sources[top] = columns[code[++pc]];
+                        offsets[top] = from;
+                        ++top;
+                        break;
+                    default:
+                        --top;
+                        result = buffer(buffers, top - 1);
+                        kernel.apply(code[pc], sources[top - 1],
+                                     offsets[top - 1], sources[top],
+                                     offsets[top], result, count);
+                        sources[top - 1] = result;
+                        offsets[top - 1] = 0;
+                        break;
+                }
+            }
+
+            System.arraycopy(sources[0], offsets[0], out, from, count);
+        }
+    }
+
+    /*
+     *  Helper method to find the buffer belonging to a stack entry,
+     *  creating it the first time it's needed.
+     */
+    private static int[]    buffer(int buffers[][], int which)
+    {
+        if (buffers[which] == null) {
+            buffers[which] = new int[BLOCK];
+        }
+
+        return(buffers[which]);
+    }
+
+    /*
+     *  Helper method to apply one operator across a block of rows.
+     *  Each loop is kept on its own so it stays small and simple
+     *  for the compiler.
+     */
+    private static void apply(int opcode, int left[], int leftOffset,
+                              int right[], int rightOffset, int result[],
+                              int count)
+    {
+        int     i;
+
+        switch (opcode) {
+            case Opcode.ADD:
+                for (i = 0; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] +
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.SUBTRACT:
+                for (i = 0; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] -
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.MULTIPLY:
+                for (i = 0; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] *
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.DIVIDE:
+                for (i = 0; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] /
+                                right[rightOffset + i];
+                }
+                break;
+        }
+    }
+
+    /**
+     *  Return how many variable slots our program reads.
+     *  @return One more than the highest slot read, zero when there
+     *  are no variables.
+     */
+    public int  getVariableCount()
+    {
+        return(variableCount);
+    }
+
+    /**
+     *  Return how many entries the stack needs to evaluate us.
+     *  @return The deepest the stack gets while evaluating.
+     */
+    public int  getMaxStack()
+    {
+        return(maxStack);
+    }
+
+    /**
+     *  Return our program.  The caller must not change it.
+     *  @return The instructions of our program.
+     */
+    int[]   getCode()
+    {
+        return(code);
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#EXPRESSION} since we stand in for the
+     *  tree we were compiled from.
+     */
+    int getOpcode()
+    {
+        return(Opcode.EXPRESSION);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The tree we were compiled from.
+     */
+    Expression  getOperand(int which)
+    {
+        return(source);
+    }
+
+    /**
+     *  Return the tree we were compiled from as a {@code String}.
+     *  @return The tree we were compiled from as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + source);
+    }
+
+    /**
+     *  Unit test our {@code CompiledExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        /*
+         *  The items in this array are expressions to compile.  Each
+         *  is checked against evaluating its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "2 + 5 - 1 * 5 / 2",
+                "(1 + 2) * (3 - 4) / (5 + (6 - 7))",
+                "2147483647 + 1",
+                "7 / (3 - 3)",
+        };
+
+        errors = 0;
+        for (String which : toTest) {
+            int                 expected;
+            int                 getValue;
+            Expression          expression;
+            CompiledExpression  compiled;
+
+            System.out.println("Trying to compile:\n" +
+                               "  \"" + which + "\"");
+            try {
+                expression = new Expression(which);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            compiled = new CompiledExpression(expression);
+
+            try {
+                expected = expression.getValue();
+            } catch (ArithmeticException exception) {
+                try {
+                    compiled.getValue();
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " should throw " + exception);
+                    ++errors;
+                } catch (ArithmeticException expectedException) {
+                    System.out.println("Throws " + expectedException);
+                }
+                continue;
+            }
+
+            getValue = compiled.getValue();
+            System.out.println("Evaluates to: " + getValue);
+            if (getValue != expected) {
+                System.out.println("*** ERROR *** getValue()" +
+                                   " returns " + getValue +
+                                   " should be " + expected);
+                ++errors;
+            }
+
+            if (which.equals("" + compiled) == false) {
+                System.out.println("*** ERROR *** toString()" +
+                                   " returns " + compiled +
+                                   " should be " + which);
+                ++errors;
+            }
+        }
+
+        /*
+         *  Evaluating many rows at once must match evaluating each
+         *  row, across more than one block.
+         */
+        try {
+            int         row;
+            int         rows;
+            int         slot;
+            int         out[];
+            int         columns[][];
+            Expression  expression;
+
+            expression = new Expression("a * b + (a - 3) / c - 7");
+            rows = BLOCK * 2 + 5;
+            columns = new int[expression.getVariables().length][rows];
+            for (row = 0; (row < rows); ++row) {
+                columns[expression.getVariableSlot("a")][row] = row;
+                columns[expression.getVariableSlot("b")][row] = row * 31;
+                columns[expression.getVariableSlot("c")][row] =
+                                                        row % 7 + 1;
+            }
+            out = new int[rows];
+            expression.evaluate(columns, out);
+            for (row = 0; (row < rows); ++row) {
+                int     variables[];
+                int     expected;
+
+                variables = new int[columns.length];
+                for (slot = 0; (slot < columns.length); ++slot) {
+                    variables[slot] = columns[slot][row];
+                }
+                expected = expression.getValue(variables);
+                if (out[row] != expected) {
+                    System.out.println("*** ERROR *** row " + row +
+                                       " is " + out[row] +
+                                       " should be " + expected);
+                    ++errors;
+                    break;
+                }
+            }
+            System.out.println("Evaluated " + rows + " rows of \"" +
+                               expression + "\"");
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
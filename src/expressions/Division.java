@@ -3,7 +3,7 @@ package expressions;
 /**
  *  {@code Division} is the class that extends Expression to
  *  provide a quotient of two other expressions.
- *  @version 2022092200
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class Division extends Expression
@@ -18,8 +18,14 @@ public class Division extends Expression
      */
     public static final int priority = '2';
 
-    private Expression dividend;
-    private Expression divisor;
+    /**
+     *  Whether {@code Division} groups from the right when next
+     *  to an operator of the same priority.
+     */
+    public static final boolean rightAssociative = false;
+
+    private final Expression dividend;
+    private final Expression divisor;
 
     /**
      *  Construct an instance of {@code Division} that evaluates
@@ -43,12 +49,33 @@ public class Division extends Expression
     }
 
     /**
-     *  Return our expression as a {@code String}.
-     *  @return Our expression as a {@code String}.
+     *  Return the quotient of our operands using the given values
+     *  for any variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The quotient of our operands.
+     */
+    public int  getValue(int variables[])
+    {
+        return(dividend.getValue(variables) / divisor.getValue(variables));
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#DIVIDE}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.DIVIDE);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which 0 for the dividend, 1 for the divisor.
+     *  @return The operand asked for.
      */
-    public String toString()
+    Expression  getOperand(int which)
     {
-        return(dividend + " " + operator + " " + divisor);
+        return((which == 0) ? dividend : divisor);
     }
 
     /**
@@ -0,0 +1,1061 @@
+package expressions;
+
+import java.nio.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code EditableExpression} is the class that keeps an expression's
+ *  text together with its tree, so that as the text is edited the
+ *  tree can be brought up to date without parsing everything again,
+ *  as an editor needs to on every keystroke.  Alongside the tree it
+ *  keeps the span of text each node came from.  A span holds its
+ *  width and the characters of its own that aren't in its operands,
+ *  such as an operator and the whitespace around it, but not where
+ *  it sits in the text.  So nothing past an edit needs moving, and
+ *  the text itself is never copied as a whole; it's put together
+ *  from the spans when asked for.
+ *  <p>
+ *  An edit is a range of text removed and text inserted in its
+ *  place.  When the edit falls within a single number or name and
+ *  it is still a single number or name afterwards, only that token
+ *  is read again.  Otherwise only the text inside the innermost pair
+ *  of parentheses around the edit is parsed again, by the same
+ *  {@link Parser}.  Either way every node outside that subtree is
+ *  kept, and only those on the path from it back to the root are
+ *  built again, since a node can't change.  So an edit costs the
+ *  size of what it touches and how deep it is, not the size of the
+ *  whole expression.  An edit anywhere else, or one that leaves the
+ *  text not parsing, parses the whole text again.
+ *  <p>
+ *  Each {@code EditableExpression} is immutable, and an edit returns
+ *  a new one.  Text that doesn't parse still makes one, which
+ *  remembers the last text that did, so the next edit that makes it
+ *  parse again need only look at what changed since then.  The
+ *  variables keep their slots from one edit to the next, and new
+ *  ones are added at the end, just as {@link Parser#parse(CharSequence,
+ *  List)} does with a list it's given.  So the tree is always the one
+ *  the parser would build from the same text and names.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public final class  EditableExpression
+{
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final Parser                parser;
+    private final String                variables[];
+    private final Expression            tree;
+    private final Span                  root;
+    private final String                head;
+    private final String                tail;
+    private final int                   length;
+    private final ParseException        error;
+    private final EditableExpression    base;
+    private final int                   baseStart;
+    private final int                   baseEnd;
+    /*
+     *  Put together from the spans the first time it's asked for.
+     *  Two threads may both do it; they get the same answer.
+     */
+    private String                      text;
+
+    /*
+     *  The text a node came from.  Its width runs from the start of
+     *  its first token to the end of its last.  For an operation,
+     *  offset is where its right operand starts, and for a group
+     *  where its contents start, both from the start of the span.
+     *  A number or name has no operands.  The characters of its own
+     *  are in source: a number or name from first, the operator and
+     *  the whitespace either side of it from first, and a group's
+     *  open parenthesis and whitespace from first and its whitespace
+     *  and close parenthesis from second.
+     */
+    private static final class  Span
+    {
+        final Expression    node;
+        final Span          left;
+        final Span          right;
+        final int           offset;
+        final int           width;
+        final int           height;
+        final int           groups;
+        final String        source;
+        final int           first;
+        final int           second;
+
+        /*
+         *  Constructor of the span of a number or name.
+         */
+        Span(Expression node, int width, String source, int first)
+        {
+            this.node = node;
+            left = null;
+            right = null;
+            offset = 0;
+            this.width = width;
+            height = 1;
+            groups = 0;
+            this.source = source;
+            this.first = first;
+            second = 0;
+        }
+
+        /*
+         *  Constructor of the span of a group.
+         */
+        Span(Expression node, Span contents, int offset, int width,
+             String source, int first, int second)
+        {
+            this.node = node;
+            left = contents;
+            right = null;
+            this.offset = offset;
+            this.width = width;
+            height = contents.height + 1;
+            groups = contents.groups + 1;
+            this.source = source;
+            this.first = first;
+            this.second = second;
+        }
+
+        /*
+         *  Constructor of the span of an operation.
+         */
+        Span(Expression node, Span left, Span right, int offset,
+             String source, int first)
+        {
+            this.node = node;
+            this.left = left;
+            this.right = right;
+            this.offset = offset;
+            width = offset + right.width;
+            height = Math.max(left.height, right.height) + 1;
+            groups = Math.max(left.groups, right.groups);
+            this.source = source;
+            this.first = first;
+            second = 0;
+        }
+    }
+
+    /**
+     *  Construct an {@code EditableExpression} by parsing the given
+     *  text.
+     *  @param text The text of the expression.
+     */
+    public      EditableExpression(String text)
+    {
+        this(text, new Parser());
+    }
+
+    /**
+     *  Construct an {@code EditableExpression} by parsing the given
+     *  text with the given parser, which parses each edit as well.
+     *  @param text The text of the expression.
+     *  @param parser The {@code Parser} that builds our tree.
+     */
+    public      EditableExpression(String text, Parser parser)
+    {
+        this(parse(parser, (text == null) ? "" : text, new String[0]),
+             null, 0, 0);
+    }
+
+    /*
+     *  Constructor that copies what parsing found and, when it didn't
+     *  parse, remembers the text that last did and what has changed
+     *  in it since.
+     */
+    private     EditableExpression(EditableExpression parsed,
+                                   EditableExpression base,
+                                   int baseStart, int baseEnd)
+    {
+        parser = parsed.parser;
+        variables = parsed.variables;
+        tree = parsed.tree;
+        root = parsed.root;
+        head = parsed.head;
+        tail = parsed.tail;
+        length = parsed.length;
+        error = parsed.error;
+        text = parsed.text;
+        this.base = (error == null) ? null : base;
+        this.baseStart = baseStart;
+        this.baseEnd = baseEnd;
+    }
+
+    /*
+     *  Constructor of text that parsed.
+     */
+    private     EditableExpression(Parser parser, String variables[],
+                                   Span root, String head, String tail,
+                                   String text)
+    {
+        this.parser = parser;
+        this.variables = variables;
+        this.root = root;
+        this.head = head;
+        this.tail = tail;
+        this.text = text;
+        length = head.length() + root.width + tail.length();
+        tree = IterativeExpression.guard(root.node, root.height);
+        error = null;
+        base = null;
+        baseStart = 0;
+        baseEnd = 0;
+    }
+
+    /*
+     *  Constructor of text that didn't parse.
+     */
+    private     EditableExpression(Parser parser, String variables[],
+                                   String text, ParseException error)
+    {
+        this.parser = parser;
+        this.variables = variables;
+        this.text = text;
+        this.error = error;
+        length = text.length();
+        tree = null;
+        root = null;
+        head = null;
+        tail = null;
+        base = null;
+        baseStart = 0;
+        baseEnd = 0;
+    }
+
+    /**
+     *  Edit the text and bring the tree up to date.
+     *  @param offset Where the edit starts in our text.
+     *  @param removed How many characters are removed from there.
+     *  @param inserted The text put in their place.
+     *  @return The edited expression.
+     *  @throws IndexOutOfBoundsException When the range removed isn't
+     *  all in our text.
+     */
+    public EditableExpression   edit(int offset, int removed,
+                                     String inserted)
+    {
+        StringBuilder   edited;
+        int             start;
+        int             end;
+        int             grown;
+
+        Objects.checkFromIndexSize(offset, removed, length);
+        if (inserted == null) {
+            inserted = "";
+        }
+        if (error == null) {
+            return(apply(offset, removed, inserted));
+        }
+
+        edited = new StringBuilder(text).replace(offset, offset + removed,
+                                                 inserted);
+        if (base == null) {
+            return(new EditableExpression(parse(parser, edited.toString(),
+                                                variables), null, 0, 0));
+        }
+
+        /*
+         *  Fold this edit into the ones since the text last parsed,
+         *  and edit that text instead.  Everything from baseEnd on
+         *  there is still here, moved along by how much it has grown.
+         */
+        grown = length - base.length;
+        start = Math.min(baseStart, offset);
+        end = Math.max(baseEnd + grown, offset + removed) - grown;
+        return(base.apply(start, end - start,
+                          edited.substring(start, end + grown +
+                                           inserted.length() - removed)));
+    }
+
+    /**
+     *  Return the text of the expression.
+     *  @return The text.
+     */
+    public String   getText()
+    {
+        StringBuilder   out;
+
+        if (text == null) {
+            out = new StringBuilder(length);
+            out.append(head);
+            write(root, out);
+            out.append(tail);
+            text = out.toString();
+        }
+
+        return(text);
+    }
+
+    /**
+     *  Tell whether the text parses.
+     *  @return {@code true} when there's a tree.
+     */
+    public boolean  isValid()
+    {
+        return(error == null);
+    }
+
+    /**
+     *  Return the tree the text parses to.
+     *  @return The root of the tree.
+     *  @throws ParseException When the text doesn't parse, which is
+     *  the exception the parser threw.
+     */
+    public Expression   getTree()
+            throws ParseException
+    {
+        if (error != null) {
+            throw(error);
+        }
+
+        return(tree);
+    }
+
+    /**
+     *  Return the expression the text parses to, as
+     *  {@link Expression#Expression(String, Parser)} would, with its
+     *  variables named.
+     *  @return The expression.
+     *  @throws ParseException When the text doesn't parse.
+     */
+    public Expression   getExpression()
+            throws ParseException
+    {
+        return(new Expression(getTree(), variables));
+    }
+
+    /**
+     *  Return the names of the variables in slot order.  This may
+     *  include names that edits have since removed from the text.
+     *  @return The names of the variables.
+     */
+    public String[] getVariables()
+    {
+        return(variables.clone());
+    }
+
+    /**
+     *  Return the text of the expression.
+     *  @return The text.
+     */
+    public String       toString()
+    {
+        return(getText());
+    }
+
+    /*
+     *  Helper method to make an edit to text that parsed.
+     */
+    private EditableExpression  apply(int offset, int removed,
+                                      String inserted)
+    {
+        int                 top;
+        int                 which;
+        int                 delta;
+        Span                spans[];
+        int                 starts[];
+        ArrayList<String>   names;
+        StringBuilder       edited;
+
+        /*
+         *  Walk down from the root for as long as the edit lies
+         *  inside a single node.
+         */
+        spans = new Span[INITIAL_SIZE];
+        starts = new int[INITIAL_SIZE];
+        spans[0] = root;
+        starts[0] = head.length();
+        top = 1;
+        while (spans[top - 1].left != null) {
+            Span    span;
+            Span    child;
+            int     start;
+            int     childStart;
+
+            span = spans[top - 1];
+            start = starts[top - 1];
+            if (span.right == null) {
+                child = span.left;
+                childStart = start + span.offset;
+            } else if (offset + removed <= start + span.left.width) {
+                child = span.left;
+                childStart = start;
+            } else {
+                child = span.right;
+                childStart = start + span.offset;
+            }
+            if ((offset < childStart) ||
+                (offset + removed > childStart + child.width)) {
+                break;
+            }
+
+            if (top == spans.length) {
+                spans = Arrays.copyOf(spans, top * 2);
+                starts = Arrays.copyOf(starts, top * 2);
+            }
+            spans[top] = child;
+            starts[top] = childStart;
+            ++top;
+        }
+
+        /*
+         *  Rebuild the smallest subtree that takes the edit: a number
+         *  or name that's still one, or else the contents of a group
+         *  that keeps both its parentheses.
+         */
+        delta = inserted.length() - removed;
+        names = new ArrayList<>(Arrays.asList(variables));
+        for (which = top - 1; (which >= 0); --which) {
+            Span    span;
+            Span    replaced;
+            int     start;
+
+            span = spans[which];
+            start = starts[which];
+            replaced = null;
+            if ((span.left == null) && (offset >= start) &&
+                (offset + removed <= start + span.width)) {
+                edited = new StringBuilder(span.width + delta);
+                write(span, edited);
+                edited.replace(offset - start, offset + removed - start,
+                               inserted);
+                replaced = token(edited.toString(), names);
+            } else if ((span.right == null) && (span.left != null) &&
+                       (offset > start) &&
+                       (offset + removed < start + span.width)) {
+                edited = new StringBuilder(span.width + delta);
+                write(span, edited);
+                edited.replace(offset - start, offset + removed - start,
+                               inserted);
+                replaced = group(edited.toString(), names,
+                                 groups(spans, which));
+                if (replaced == null) {
+                    /*
+                     *  Let the whole text say what's wrong with it.
+                     */
+                    break;
+                }
+            }
+
+            if (replaced != null) {
+                return(new EditableExpression(parser,
+                                names.toArray(new String[0]),
+                                rebuild(spans, which, replaced, delta),
+                                head, tail, null));
+            }
+        }
+
+        edited = new StringBuilder(getText()).replace(offset,
+                                                      offset + removed,
+                                                      inserted);
+        return(new EditableExpression(parse(parser, edited.toString(),
+                                            variables),
+                                      this, offset, offset + removed));
+    }
+
+    /*
+     *  Helper method to read the edited text of a number or name.
+     *  Returns null unless it's still a single number or name.
+     */
+    private Span    token(String edited, List<String> names)
+    {
+        Lexer       lexer;
+        int         kind;
+        int         value;
+        boolean     overflow;
+        int         slot;
+        Expression  node;
+
+        lexer = new Lexer(edited);
+        try {
+            kind = lexer.next();
+            value = lexer.getIntValue();
+            overflow = lexer.isOverflow();
+            if ((lexer.getStart() != 0) ||
+                (lexer.getEnd() != edited.length()) ||
+                (lexer.next() != Lexer.END)) {
+                return(null);
+            }
+        } catch (ParseException exception) {
+            return(null);
+        }
+
+        if (kind == Lexer.IDENTIFIER) {
+            slot = names.indexOf(edited);
+            if (slot < 0) {
+                slot = names.size();
+                names.add(edited);
+            }
+            node = (parser.getInterner() == null) ?
+                        new Variable(edited, slot) :
+                        parser.getInterner().variable(edited, slot);
+        } else if ((kind == Lexer.NUMBER) && (overflow == false)) {
+            node = (parser.getInterner() == null) ?
+                        Integer.valueOf(value) :
+                        parser.getInterner().integer(value);
+        } else {
+            return(null);
+        }
+
+        return(new Span(node, edited.length(), edited, 0));
+    }
+
+    /*
+     *  Helper method to parse the edited text of a group, which has
+     *  the given number of groups around it.  Returns null when its
+     *  contents don't parse, or nest too deeply once inside the rest.
+     */
+    private Span    group(String edited, List<String> names, int outside)
+    {
+        CharBuffer  contents;
+        Span        inside;
+        int         start;
+
+        contents = CharBuffer.wrap(edited, 1, edited.length() - 1);
+        try {
+            inside = spans(unwrap(parser.parse(contents, names)), edited,
+                           1, edited.length() - 1);
+        } catch (ParseException exception) {
+            return(null);
+        }
+        if (outside + 1 + inside.groups > parser.getMaxDepth()) {
+            return(null);
+        }
+
+        start = 1 + lead(contents);
+        return(new Span(group(inside.node), inside, start, edited.length(),
+                        edited, 0, start + inside.width));
+    }
+
+    /*
+     *  Helper method to build the path from a rebuilt subtree back
+     *  to the root, keeping every node off it.
+     */
+    private Span    rebuild(Span spans[], int which, Span replaced,
+                            int delta)
+    {
+        Span    span;
+
+        span = replaced;
+        while (--which >= 0) {
+            Span    parent;
+            char    operator;
+
+            parent = spans[which];
+            if (parent.right == null) {
+                span = new Span(group(span.node), span, parent.offset,
+                                parent.width + delta, parent.source,
+                                parent.first, parent.second);
+                continue;
+            }
+
+            operator = Opcode.operator(parent.node.getOpcode());
+            if (spans[which + 1] == parent.left) {
+                span = new Span(combine(operator, span.node,
+                                        parent.right.node),
+                                span, parent.right, parent.offset + delta,
+                                parent.source, parent.first);
+            } else {
+                span = new Span(combine(operator, parent.left.node,
+                                        span.node),
+                                parent.left, span, parent.offset,
+                                parent.source, parent.first);
+            }
+        }
+
+        return(span);
+    }
+
+    /*
+     *  Helper method to create a group, sharing it when the parser
+     *  has an interner.
+     */
+    private Expression  group(Expression contents)
+    {
+        if (parser.getInterner() != null) {
+            return(parser.getInterner().group(contents));
+        }
+
+        return(new Parenthesis(contents));
+    }
+
+    /*
+     *  Helper method to create an operation, sharing it when the
+     *  parser has an interner.
+     */
+    private Expression  combine(char operator, Expression left,
+                                Expression right)
+    {
+        if (parser.getInterner() != null) {
+            return(parser.getInterner().combine(operator, left, right));
+        }
+
+        return(Parser.combine(operator, left, right));
+    }
+
+    /*
+     *  Helper method to parse the whole of the given text.
+     */
+    private static EditableExpression   parse(Parser parser, String text,
+                                              String variables[])
+    {
+        ArrayList<String>   names;
+        Span                root;
+        int                 start;
+
+        names = new ArrayList<>(Arrays.asList(variables));
+        try {
+            root = spans(unwrap(parser.parse(text, names)), text, 0,
+                         text.length());
+        } catch (ParseException exception) {
+            return(new EditableExpression(parser, variables, text,
+                                          exception));
+        }
+
+        start = lead(text);
+        return(new EditableExpression(parser, names.toArray(new String[0]),
+                                      root, text.substring(0, start),
+                                      text.substring(start + root.width),
+                                      text));
+    }
+
+    /*
+     *  Helper method to find the span of every node in a tree by
+     *  reading the tokens of the part of the text it was parsed from
+     *  in order.  The tree is walked with an explicit stack, so its
+     *  depth doesn't matter.
+     */
+    private static Span spans(Expression tree, String text, int from,
+                              int to)
+            throws ParseException
+    {
+        int             top;
+        int             done;
+        Lexer           lexer;
+        Expression      nodes[];
+        int             visits[];
+        int             starts[];
+        Span            spans[];
+        int             spanStarts[];
+
+        lexer = new Lexer(CharBuffer.wrap(text, from, to));
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        starts = new int[INITIAL_SIZE];
+        spans = new Span[INITIAL_SIZE];
+        spanStarts = new int[INITIAL_SIZE];
+        nodes[0] = tree;
+        visits[0] = 0;
+        top = 1;
+        done = 0;
+        while (top > 0) {
+            Expression  node;
+            int         visit;
+            Span        span;
+            int         start;
+
+            node = nodes[top - 1];
+            visit = visits[top - 1]++;
+            span = null;
+            start = 0;
+            switch (node.getOpcode()) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    lexer.next();
+                    start = from + lexer.getStart();
+                    span = new Span(node, lexer.getEnd() - lexer.getStart(),
+                                    text, start);
+                    --top;
+                    break;
+                case Opcode.GROUP:
+                    lexer.next();
+                    if (visit == 0) {
+                        starts[top - 1] = from + lexer.getStart();
+                        break;
+                    }
+                    start = starts[top - 1];
+                    --done;
+                    span = new Span(node, spans[done],
+                                    spanStarts[done] - start,
+                                    from + lexer.getEnd() - start, text,
+                                    start, spanStarts[done] +
+                                                spans[done].width);
+                    --top;
+                    break;
+                default:
+                    if (visit == 1) {
+                        /*
+                         *  The operator.
+                         */
+                        lexer.next();
+                    }
+                    if (visit < 2) {
+                        break;
+                    }
+                    done -= 2;
+                    start = spanStarts[done];
+                    span = new Span(node, spans[done], spans[done + 1],
+                                    spanStarts[done + 1] - start, text,
+                                    start + spans[done].width);
+                    --top;
+                    break;
+            }
+
+            if (span != null) {
+                if (done == spans.length) {
+                    spans = Arrays.copyOf(spans, done * 2);
+                    spanStarts = Arrays.copyOf(spanStarts, done * 2);
+                }
+                spans[done] = span;
+                spanStarts[done] = start;
+                ++done;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+                starts = Arrays.copyOf(starts, top * 2);
+            }
+            nodes[top] = node.getOperand(
+                            (node.getOpcode() == Opcode.GROUP) ? 0 : visit);
+            visits[top] = 0;
+            ++top;
+        }
+
+        return(spans[0]);
+    }
+
+    /*
+     *  Helper method to write out the text of a span.  The spans are
+     *  walked with an explicit stack, so their depth doesn't matter.
+     */
+    private static void write(Span span, StringBuilder out)
+    {
+        int     top;
+        Span    spans[];
+        int     visits[];
+
+        spans = new Span[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        spans[0] = span;
+        visits[0] = 0;
+        top = 1;
+        while (top > 0) {
+            Span    next;
+            int     visit;
+
+            next = spans[top - 1];
+            visit = visits[top - 1]++;
+            if (next.left == null) {
+                out.append(next.source, next.first,
+                           next.first + next.width);
+                --top;
+                continue;
+            }
+            if (next.right == null) {
+                if (visit == 1) {
+                    out.append(next.source, next.second,
+                               next.second + next.width - next.offset -
+                                                        next.left.width);
+                    --top;
+                    continue;
+                }
+                out.append(next.source, next.first,
+                           next.first + next.offset);
+            } else if (visit == 2) {
+                --top;
+                continue;
+            } else if (visit == 1) {
+                out.append(next.source, next.first,
+                           next.first + next.offset - next.left.width);
+            }
+
+            if (top == spans.length) {
+                spans = Arrays.copyOf(spans, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            spans[top] = (visit == 0) ? next.left : next.right;
+            visits[top] = 0;
+            ++top;
+        }
+    }
+
+    /*
+     *  Helper method to find the tree inside the wrapper the parser
+     *  puts around a deep one.
+     */
+    private static Expression   unwrap(Expression tree)
+    {
+        if (tree.getOpcode() == Opcode.EXPRESSION) {
+            return(tree.getOperand(0));
+        }
+
+        return(tree);
+    }
+
+    /*
+     *  Helper method to find where the first token of some text
+     *  starts.
+     */
+    private static int  lead(CharSequence text)
+    {
+        int     position;
+
+        position = 0;
+        while ((position < text.length()) &&
+               (Character.isWhitespace(text.charAt(position)) == true)) {
+            ++position;
+        }
+
+        return(position);
+    }
+
+    /*
+     *  Helper method to count the groups around a node on a path.
+     */
+    private static int  groups(Span spans[], int which)
+    {
+        int     groups;
+
+        groups = 0;
+        while (--which >= 0) {
+            if ((spans[which].left != null) &&
+                (spans[which].right == null)) {
+                ++groups;
+            }
+        }
+
+        return(groups);
+    }
+
+    /**
+     *  Unit test our {@code EditableExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int                 errors;
+        int                 whichTest;
+        int                 step;
+        Random              random;
+        EditableExpression  editable;
+        StringBuilder       deep;
+        String              model;
+        /*
+         *  The items in this array are expressions to edit.  Each
+         *  corresponds to the edit in the following arrays at the
+         *  same index.
+         */
+        String              toEdit[]    = {
+            "1 + (2 * 3) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "(1 + 2)",
+            "(1 + 2)",
+            "  x * y  ",
+            "x * y",
+            "x * y",
+            "10 / (2)",
+            "1 + 2",
+            "1 + 2",
+            "(((1)))",
+                                          };
+        /*
+         *  Where each edit starts, how much it removes and what it
+         *  inserts.
+         */
+        int                 offsets[]   = {
+            5, 5, 6, 15, 4, 12, 2, 2, 6, 0, 0, 6, 4, 0, 3,
+                                          };
+        int                 removed[]   = {
+            1, 1, 3, 0, 7, 1, 3, 3, 1, 1, 1, 1, 1, 5, 1,
+                                          };
+        String              inserted[]  = {
+            "7", "75", " - 4 /", "(", "(8)", "+", ") - (", "",
+            "zz", "x2", "y", "0", "99999999999", "x", "(2 + 3)",
+                                          };
+        /*
+         *  The text we expect afterwards, null when it shouldn't
+         *  parse.
+         */
+        String              results[]   = {
+            "1 + (7 * 3) + (4 * 5)",
+            "1 + (75 * 3) + (4 * 5)",
+            "1 + (2 - 4 / 3) + (4 * 5)",
+            null,
+            "1 + (8) + (4 * 5)",
+            "1 + (2 * 3) + (4 * 5)",
+            "(1) - (2)",
+            "(12)",
+            "x * zz",
+            "x2 * y",
+            "y * y",
+            "10 / (0)",
+            null,
+            "x",
+            "((((2 + 3))))",
+                                          };
+
+        errors = 0;
+        if ((toEdit.length != offsets.length) ||
+            (toEdit.length != removed.length) ||
+            (toEdit.length != inserted.length) ||
+            (toEdit.length != results.length)) {
+            System.out.println("*** ERROR *** test tables differ in" +
+                               " length");
+            System.out.println("\nUNIT TEST FAILED with 1 errors!");
+            System.exit(1);
+        }
+
+        for (whichTest = 0; (whichTest < toEdit.length); ++whichTest) {
+            EditableExpression  before;
+            EditableExpression  after;
+
+            before = new EditableExpression(toEdit[whichTest]);
+            after = before.edit(offsets[whichTest], removed[whichTest],
+                                inserted[whichTest]);
+            System.out.println("Editing \"" + before + "\" gives \"" +
+                               after + "\"");
+            errors += check(after, before.variables);
+            if ((after.isValid() == true) ?
+                    (after.tree.toString().equals(results[whichTest]) ==
+                                                                false) :
+                    (results[whichTest] != null)) {
+                System.out.println("*** ERROR *** got " +
+                                   ((after.isValid() == true) ?
+                                        after.tree : after.error) +
+                                   " should be " + results[whichTest]);
+                ++errors;
+            }
+        }
+
+        /*
+         *  Only the path back to the root is built again.
+         */
+        editable = new EditableExpression("1 + (2 * 3) + (4 * 5)");
+        if (editable.edit(5, 1, "7").tree.getOperand(1) !=
+                                    editable.tree.getOperand(1)) {
+            System.out.println("*** ERROR *** untouched group rebuilt");
+            ++errors;
+        }
+        if (editable.edit(15, 1, "x").tree.getOperand(0) !=
+                                    editable.tree.getOperand(0)) {
+            System.out.println("*** ERROR *** untouched operand rebuilt");
+            ++errors;
+        }
+
+        /*
+         *  Passing through text that doesn't parse.
+         */
+        editable = new EditableExpression("1 + 2 * 3").
+                        edit(4, 1, "").
+                        edit(4, 0, "(5").
+                        edit(10, 0, ")");
+        System.out.println("Edited to \"" + editable + "\"");
+        errors += check(editable, new String[0]);
+        if ((editable.isValid() == false) || (editable.base != null)) {
+            System.out.println("*** ERROR *** should parse on its own");
+            ++errors;
+        }
+
+        /*
+         *  Deep trees stay wrapped as the parser wraps them.
+         */
+        deep = new StringBuilder();
+        for (step = 0; (step < 2000); ++step) {
+            deep.append("1 + ");
+        }
+        deep.append("(2)");
+        editable = new EditableExpression(deep.toString());
+        editable = editable.edit(deep.length() - 2, 1, "3");
+        errors += check(editable, new String[0]);
+
+        /*
+         *  Random edits agree with parsing the whole text.
+         */
+        random = new Random(25);
+        editable = new EditableExpression("(a + 1) * (b - 22) / (3 + c)");
+        model = editable.getText();
+        for (step = 0; (step < 5000); ++step) {
+            String      pieces[]    = { "", "1", "7", "x", "y", " ",
+                                        "+", "-", "*", "/", "(", ")",
+                                        "(2 * z)", " + 5" };
+            String      before[];
+            String      piece;
+            int         offset;
+            int         length;
+
+            before = editable.variables;
+            offset = random.nextInt(editable.getText().length() + 1);
+            length = random.nextInt(
+                        Math.min(3, editable.getText().length() - offset) + 1);
+            piece = pieces[random.nextInt(pieces.length)];
+            model = model.substring(0, offset) + piece +
+                    model.substring(offset + length);
+            editable = editable.edit(offset, length, piece);
+            if ((editable.getText().equals(model) == false) ||
+                (check(editable, before) > 0)) {
+                System.out.println("*** ERROR *** \"" + editable +
+                                   "\" should be \"" + model + "\"");
+                ++errors;
+                break;
+            }
+            if (editable.getText().length() > 200) {
+                editable = new EditableExpression("(a + 1) * (b - 22)");
+                model = editable.getText();
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+
+    /*
+     *  Helper method for the unit test that parses an edited text
+     *  from scratch and checks the edit came out the same.
+     */
+    private static int  check(EditableExpression edited,
+                              String variables[])
+    {
+        ArrayList<String>   names;
+        Expression          parsed;
+
+        names = new ArrayList<>(Arrays.asList(variables));
+        try {
+            parsed = new Parser().parse(edited.getText(), names);
+        } catch (ParseException exception) {
+            if ((edited.error == null) ||
+                (edited.error.getMessage().equals(
+                                    exception.getMessage()) == false)) {
+                System.out.println("*** ERROR *** \"" + edited.getText() +
+                                   "\" gave " + edited.error +
+                                   " should be " + exception);
+                return(1);
+            }
+            return(0);
+        }
+
+        if ((edited.error != null) ||
+            (edited.tree.equals(parsed) == false) ||
+            (edited.tree.getOpcode() != parsed.getOpcode()) ||
+            (Arrays.equals(edited.variables,
+                           names.toArray(new String[0])) == false)) {
+            System.out.println("*** ERROR *** \"" + edited.getText() +
+                               "\" gave " + edited.tree + " " +
+                               Arrays.toString(edited.variables) +
+                               " should be " + parsed + " " + names);
+            return(1);
+        }
+
+        return(0);
+    }
+}
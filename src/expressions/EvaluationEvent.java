@@ -0,0 +1,227 @@
+package expressions;
+
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import jdk.jfr.*;
+import jdk.jfr.consumer.*;
+
+/**
+ *  {@code EvaluationEvent} is the Java Flight Recorder event for an
+ *  expression evaluated, by its tree or by one of the evaluators
+ *  that stand in for it.  It records how many nodes the tree has,
+ *  how deep it is and which way it was evaluated, so a slow
+ *  evaluation in a recording can be put down to the shape of what
+ *  was evaluated.  The tree is only measured for an event that's
+ *  going to be committed, so nothing is walked for a fast one.  An
+ *  evaluator that hands its work on to another may record an event
+ *  of its own inside the other's.  Only evaluations that take at
+ *  least a millisecond are recorded unless the threshold is changed,
+ *  as for a {@link ParseEvent}.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@Name("expressions.Evaluation")
+@Label("Expression Evaluation")
+@Category("Expressions")
+@Description("An expression evaluated")
+@Threshold("1 ms")
+public final class  EvaluationEvent extends Event
+{
+    private static final int    INITIAL_SIZE    = 16;
+
+    @Label("Nodes")
+    @Description("Nodes in the tree evaluated")
+    int         nodes;
+
+    @Label("Depth")
+    @Description("Nodes deep the tree evaluated is")
+    int         depth;
+
+    @Label("Mode")
+    @Description("How it was evaluated: tree, iterative, compiled," +
+                 " jit, parallel, or wrap, checked, long or big" +
+                 " arithmetic")
+    String      mode;
+
+    /**
+     *  Construct an {@code EvaluationEvent}.  The evaluators make
+     *  these.
+     */
+    EvaluationEvent()
+    {
+    }
+
+    /**
+     *  End the event and commit it if it's slow enough.
+     *  @param tree The tree evaluated.
+     *  @param mode How it was evaluated.
+     */
+    void    evaluated(Expression tree, String mode)
+    {
+        end();
+        if (shouldCommit() == true) {
+            measure(tree);
+            this.mode = mode;
+            commit();
+        }
+    }
+
+    /*
+     *  Helper method to count the nodes in a tree and find its depth,
+     *  looking through any evaluator standing in for it.
+     */
+    private void    measure(Expression tree)
+    {
+        int             top;
+        Expression      stack[];
+        int             depths[];
+
+        stack = new Expression[INITIAL_SIZE];
+        depths = new int[INITIAL_SIZE];
+        stack[0] = tree;
+        depths[0] = 1;
+        top = 1;
+        nodes = 0;
+        depth = 0;
+        while (top > 0) {
+            Expression  node;
+            int         level;
+            int         operands;
+
+            node = stack[--top];
+            level = depths[top];
+            if (node == null) {
+                continue;
+            }
+
+            switch (node.getOpcode()) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    operands = 0;
+                    break;
+                case Opcode.EXPRESSION:
+                    /*
+                     *  Not a node of the tree itself.
+                     */
+                    stack[top] = node.getOperand(0);
+                    depths[top] = level;
+                    ++top;
+                    continue;
+                case Opcode.GROUP:
+                    operands = 1;
+                    break;
+                default:
+                    operands = 2;
+                    break;
+            }
+
+            ++nodes;
+            depth = Math.max(depth, level);
+            if (top + operands > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            while (operands > 0) {
+                --operands;
+                stack[top] = node.getOperand(operands);
+                depths[top] = level + 1;
+                ++top;
+            }
+        }
+    }
+
+    /**
+     *  Unit test our {@code EvaluationEvent}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int                 errors;
+        int                 which;
+        Path                file;
+        Expression          tree;
+        List<RecordedEvent> events;
+        /*
+         *  The items in this array are the modes we expect recorded,
+         *  in the order the evaluations are made below.
+         */
+        String              modes[] = {
+            "tree", "iterative", "compiled", "jit", "parallel",
+            "checked", "wrap", "compiled"
+                                      };
+
+        errors = 0;
+        try {
+            tree = new Expression("1 + (2 * x) - 3 / 1");
+            file = Files.createTempFile("evaluation", ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable(EvaluationEvent.class).
+                            withThreshold(Duration.ZERO);
+                recording.start();
+                tree.getValue(new int[] { 4 });
+                new IterativeExpression(tree).getValue(new int[] { 4 });
+                new CompiledExpression(tree).getValue(new int[] { 4 });
+                new JitExpression(tree, 0).getValue(new int[] { 4 });
+                new ParallelExpression(tree).getValue(new int[] { 4 });
+                new ArithmeticExpression(tree,
+                        ArithmeticExpression.CHECKED).
+                            getValue(new int[] { 4 });
+                new ArithmeticExpression(tree,
+                        ArithmeticExpression.WRAP).
+                            getValue(new int[] { 4 });
+                recording.enable(EvaluationEvent.class).
+                            withThreshold(Duration.ofHours(1));
+                tree.getValue(new int[] { 4 });
+                recording.stop();
+                recording.dump(file);
+            }
+            events = RecordingFile.readAllEvents(file);
+            events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+            Files.delete(file);
+        } catch (Exception exception) {
+            System.out.println("*** ERROR *** " + exception);
+            System.out.println("\nUNIT TEST FAILED with 1 errors!");
+            System.exit(1);
+            return;
+        }
+
+        /*
+         *  An event nested in another starts after it, so the
+         *  compiled program the wrap mode runs comes after it.
+         */
+        for (RecordedEvent event : events) {
+            System.out.println(event.getString("mode") + ": " +
+                               event.getInt("nodes") + " nodes " +
+                               event.getInt("depth") + " deep in " +
+                               event.getDuration().toNanos() + "ns");
+        }
+        if (events.size() != modes.length) {
+            System.out.println("*** ERROR *** " + events.size() +
+                               " events recorded, should be " +
+                               modes.length);
+            ++errors;
+        } else {
+            for (which = 0; (which < modes.length); ++which) {
+                RecordedEvent   event;
+
+                event = events.get(which);
+                if ((modes[which].equals(event.getString("mode")) ==
+                                                            false) ||
+                    (event.getInt("nodes") != 10) ||
+                    (event.getInt("depth") != 5)) {
+                    System.out.println("*** ERROR *** event " + which +
+                                       " should be " + modes[which] +
+                                       " with 10 nodes 5 deep");
+                    ++errors;
+                }
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
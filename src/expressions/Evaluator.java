@@ -0,0 +1,20 @@
+package expressions;
+
+/**
+ *  {@code Evaluator} is the interface implemented by the classes
+ *  {@link JitExpression} generates at run time.  Each generated class
+ *  computes one expression with nothing but JVM arithmetic.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+interface       Evaluator
+{
+    /**
+     *  Compute the expression this class was generated for.
+     *  @param variables The value of each variable by slot, which
+     *  may be {@code null} when there are no variables.
+     *  @return The same value as {@code getValue(int[])} on the tree
+     *  the class was generated from.
+     */
+    int evaluate(int variables[]);
+}
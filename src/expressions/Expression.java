@@ -1,20 +1,28 @@
 package expressions;
 
+import java.io.*;
+import java.math.*;
+import java.nio.*;
+import java.nio.charset.*;
 import java.util.*;
 import java.text.*;
 
 /**
  *  {@code Expression} is the class that takes tokens from the parser
  *  and creates an object that can be evaluated.
- *  @version 2022092300
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class    Expression
 {
-    private Expression  value;
+    private static final Parser defaultParser = new Parser();
+
+    private final Expression    value;
+    private final String        variables[];
 
     /**
-     *  Constructor of an expression.
+     *  Constructor of an expression.  Operators bind according to
+     *  their priority.
      *  @param string {@code String} containing the expression.
      *  @throws ParseException When the given parameter doesn't
      *  comply with the syntax.
@@ -22,200 +30,567 @@ public class    Expression
     public  Expression(String string)
             throws ParseException
     {
-        String                  tokens[];
-        Stack<String>           pendingOperations;
-        Stack<Expression>       pendingOperands;
+        this(string, defaultParser);
+    }
 
-        /*
-         *  Have the parser give us all the tokens.
-         */
-        tokens = Parse.parse(string);
+    /**
+     *  Constructor of an expression using the given parser, for
+     *  instance one in {@link Parser#LEFT_TO_RIGHT} mode for callers
+     *  that still depend on the old strictly left to right results.
+     *  @param string {@code String} containing the expression.
+     *  @param parser The {@code Parser} that builds our tree.
+     *  @throws ParseException When the given parameter doesn't
+     *  comply with the syntax.
+     */
+    public  Expression(String string, Parser parser)
+            throws ParseException
+    {
+        ArrayList<String>   names;
 
-        /*
-         *  We need stacks to collect tokens into expressions.
-         *  Expressions are in infix form as in
-         *    operand operator operand.
-         *  Each operand may be another expression.
-         */
-        pendingOperations = new Stack<>();
-        pendingOperands = new Stack<>();
+        names = new ArrayList<>();
+        value = parser.parse(string, names);
+        variables = names.toArray(new String[0]);
+    }
 
-        /*
-         *  Let's visit each token in order.
-         */
-        for (String nextToken : tokens) {
-            if (Character.isDigit(nextToken.charAt(0)) == true) {
+    /**
+     *  Constructor of an expression from a tree that has already been
+     *  built, such as one decoded by {@link ExpressionCodec}.
+     *  @param value The tree.
+     *  @param variables The names of the variables in the tree by
+     *  slot.
+     */
+    Expression(Expression value, String variables[])
+    {
+        this.value = value;
+        this.variables = variables.clone();
+    }
+
+    /**
+     *  Constructor which does nothing for use by our subclasses.
+     */
+    public Expression()
+    {
+        value = null;
+        variables = null;
+    }
+
+    /**
+     *  Evaluate the expression and return its value.
+     *  @return Integer which represents the current value of
+     *  the expression.
+     */
+    public int getValue()
+    {
+        long            start;
+        EvaluationEvent event;
+
+        if (value == null) {
+            return(0);
+        }
+        event = new EvaluationEvent();
+        if ((ExpressionMetrics.ENABLED == false) &&
+            (event.isEnabled() == false)) {
+            return(value.getValue());
+        }
+
+        event.begin();
+        start = System.nanoTime();
+        try {
+            return(value.getValue());
+        } finally {
+            if (ExpressionMetrics.ENABLED == true) {
+                ExpressionMetrics.evaluated(System.nanoTime() - start);
+            }
+            event.evaluated(value, "tree");
+        }
+    }
+
+    /**
+     *  Evaluate the expression using the given values for its
+     *  variables and return its value.
+     *  @param variables The value of each variable by slot, as
+     *  given by {@link #getVariableSlot(String)}.
+     *  @return Integer which represents the value of the expression
+     *  for the given variables.
+     */
+    public int getValue(int variables[])
+    {
+        long            start;
+        EvaluationEvent event;
+
+        if (value == null) {
+            return(0);
+        }
+        event = new EvaluationEvent();
+        if ((ExpressionMetrics.ENABLED == false) &&
+            (event.isEnabled() == false)) {
+            return(value.getValue(variables));
+        }
+
+        event.begin();
+        start = System.nanoTime();
+        try {
+            return(value.getValue(variables));
+        } finally {
+            if (ExpressionMetrics.ENABLED == true) {
+                ExpressionMetrics.evaluated(System.nanoTime() - start);
+            }
+            event.evaluated(value, "tree");
+        }
+    }
+
+    /**
+     *  Evaluate the expression for many rows at once.  Each variable
+     *  is a column and row {@code i} of the result is the value of
+     *  the expression with every variable set to entry {@code i} of
+     *  its column.  Rather than evaluate row by row, each operator is
+     *  applied across a block of rows at a time.  If a division by
+     *  zero throws, some of {@code out} may already be written.
+     *  @param columns The column of values for each variable by slot.
+     *  Each must have at least as many entries as {@code out}.
+     *  @param out Where the value for each row goes.
+     */
+    public void evaluate(int columns[][], int out[])
+    {
+        new CompiledExpression(this).evaluate(columns, out);
+    }
+
+    /**
+     *  Return the names of the variables in the expression in slot
+     *  order.
+     *  @return The names of the variables, empty when there are none.
+     */
+    public String[] getVariables()
+    {
+        if (variables == null) {
+            if ((getOpcode() == Opcode.EXPRESSION) &&
+                (getOperand(0) != null)) {
                 /*
-                 *  The parser guarantees that if the token starts
-                 *  with a digit, it's all digits.  So, instantiate
-                 *  an integer operand and push it on the stack to
-                 *  save it until an operation tells us what to do
-                 *  with it.
+                 *  We stand in for another expression, so its
+                 *  variables are ours.
                  */
+                return(getOperand(0).getVariables());
+            }
+            return(new String[0]);
+        }
+
+        return(variables.clone());
+    }
+
+    /**
+     *  Return the slot of the variable with the given name.
+     *  @param name The name of the variable.
+     *  @return The slot of the variable, -1 when there isn't one by
+     *  that name.
+     */
+    public int  getVariableSlot(String name)
+    {
+        int     slot;
+
+        if (variables != null) {
+            for (slot = 0; (slot < variables.length); ++slot) {
+                if (variables[slot].equals(name) == true) {
+                    return(slot);
+                }
+            }
+        } else if ((getOpcode() == Opcode.EXPRESSION) &&
+                   (getOperand(0) != null)) {
+            return(getOperand(0).getVariableSlot(name));
+        }
+
+        return(-1);
+    }
+
+    /**
+     *  Return a {@code String} representation of the expression.
+     *  @return {@code String} which represents the expression.
+     */
+    public String       toString()
+    {
+        StringBuilder   string;
+
+        if ((getOpcode() == Opcode.EXPRESSION) && (getOperand(0) == null)) {
+            return(null);
+        }
+
+        string = new StringBuilder();
+        writeTo(string);
+
+        return(string.toString());
+    }
 
-//                System.out.println("digit:  Pushing '" + nextToken +
-//                                   "' as an operand");
-                pendingOperands.push(new Integer(nextToken));
+    /**
+     *  Write the expression a token at a time, as {@link #toString()}
+     *  would return it, without building up any {@code String}s on
+     *  the way.  The tree is walked with an explicit stack, so its
+     *  depth doesn't matter.  A {@code Writer} can take the output
+     *  straight to a file or a log.
+     *  @param out Where to write the expression.
+     *  @throws IOException When {@code out} fails.
+     */
+    public void writeTo(Appendable out)
+            throws IOException
+    {
+        int             top;
+        Expression      nodes[];
+        int             visits[];
+        StringBuilder   builder;
+
+        builder = (out instanceof StringBuilder) ? (StringBuilder)out :
+                                                   null;
+        nodes = new Expression[16];
+        visits = new int[16];
+        nodes[0] = this;
+        visits[0] = 0;
+        top = 1;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+            int         visit;
+
+            node = nodes[top - 1];
+            visit = visits[top - 1]++;
+            if (node == null) {
+                out.append("null");
+                --top;
                 continue;
             }
 
-            /*
-             *  We know it's not an integer.
-             */
+            opcode = node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    if (node instanceof WideInteger) {
+                        out.append(node.toString());
+                    } else if (builder != null) {
+                        builder.append(node.getValue());
+                    } else {
+                        out.append(String.valueOf(node.getValue()));
+                    }
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    out.append(((Variable)node).getName());
+                    --top;
+                    continue;
+                case Opcode.EXPRESSION:
+                    if (node != this) {
+                        /*
+                         *  It may print something other than the tree
+                         *  it stands in for.
+                         */
+                        node.writeTo(out);
+                        --top;
+                        continue;
+                    }
+                    nodes[top - 1] = node.getOperand(0);
+                    visits[top - 1] = 0;
+                    continue;
+                case Opcode.GROUP:
+                    if (visit == 1) {
+                        out.append(Parenthesis.closeOperator);
+                        --top;
+                        continue;
+                    }
+                    out.append(Parenthesis.openOperator);
+                    break;
+                default:
+                    if (visit == 2) {
+                        --top;
+                        continue;
+                    }
+                    if (visit == 1) {
+                        out.append(' ').
+                            append(Opcode.operator(opcode)).
+                            append(' ');
+                    }
+                    break;
+            }
 
-			/*
-			 *  Let's see if we can construct an expression from
-			 *  what we've seen so far.
-			 */
-			constructOperation(pendingOperations, pendingOperands);
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visit);
+            visits[top] = 0;
+            ++top;
+        }
+    }
 
+    /**
+     *  Write the expression onto the end of a {@code StringBuilder}.
+     *  @param out Where to write the expression.
+     */
+    public void writeTo(StringBuilder out)
+    {
+        try {
+            writeTo((Appendable)out);
+        } catch (IOException exception) {
             /*
-             *  This token becomes the next operation and all the
-             *  operations we just constructed (if any) are its
-             *  left-hand operand.
+             *  A StringBuilder never throws this.
              */
-            pendingOperations.push(nextToken);
-//            System.out.println("op:  Pushing '" + nextToken +
-//                               "' as an operation");
-        }
-
-        /*
-         *  We've run out of tokens.  Construct whatever operations
-         *  are left.
-         */
-		constructOperation(pendingOperations, pendingOperands);
-
-		if (pendingOperations.empty() == false) {
-			/*
-			 *  There's an operation left!?
-			 */
-			throw(new ParseException("Don't know what to do with '" +
-									 pendingOperations.pop() + "'",
-									 0));
-		}
-
-        if (pendingOperands.empty() == true) {
-			/*
-			 *  There aren't any subexpressions left!?
-			 */
-			throw(new ParseException("Expression evaluated to nothing",
-									 0));
-		}
-
-		/*
-		 *  Assume the top operand is our value.
-		 */
-		value = pendingOperands.pop();
-		if (pendingOperands.empty() == false) {
-			/*
-			 *  Having operands left is wrong.
-			 */
-			throw(new ParseException("Operands left over" +
-									 " starting with \"" +
-									 pendingOperands.pop() + "\"", 0));
+            throw(new UncheckedIOException(exception));
         }
     }
 
     /**
-     *  Constructor which does nothing for use by our subclasses.
+     *  Write the expression into a {@code ByteBuffer} as UTF-8,
+     *  starting at its position and leaving the position after the
+     *  last byte written.
+     *  @param out Where to write the expression.
+     *  @throws BufferOverflowException When the expression doesn't
+     *  fit, with as much as fit already written.
      */
-    public Expression()
+    public void writeTo(ByteBuffer out)
     {
+        try {
+            writeTo(new ByteBufferAppendable(out));
+        } catch (IOException exception) {
+            throw(new UncheckedIOException(exception));
+        }
     }
 
     /*
-     *  Helper method to create an expression from an operator
-     *  and its operands.  The operator must be on the top of
-     *  the pendingOperations stack and its operands must be
-     *  at the top of the pendingOperands stack.
+     *  {@code ByteBufferAppendable} puts characters into a
+     *  {@code ByteBuffer}, one byte each for ASCII, which is all
+     *  numbers and operators ever are.
      */
-    private void constructOperation(Stack<String> pendingOperations,
-                                    Stack<Expression> pendingOperands)
-                        throws ParseException
+    private static final class  ByteBufferAppendable implements Appendable
     {
-        while (pendingOperations.empty() == false) {
-			char		pendingOperator;
-			String		pendingOperation;
-			Expression  left;
-			Expression  right;
-
-            pendingOperation = pendingOperations.pop();
-            pendingOperator = pendingOperation.charAt(0);
-
-			left = null;
-			right = null;
-
-            // Addition
-			if (pendingOperator == Addition.operator ||
-                pendingOperator == Subtraction.operator ||
-                pendingOperator == Multiplication.operator ||
-                pendingOperator == Division.operator) {
-				if (pendingOperands.empty() == true) {
-					throw(new ParseException("Missing right" +
-											 " operand for " +
-											 pendingOperation, 0));
-				}
-				right = pendingOperands.pop();
-
-				if (pendingOperands.empty() == true) {
-					throw(new ParseException("Missing left" +
-											 " operand for " +
-											 pendingOperation, 0));
-				}
-				left = pendingOperands.pop();
-
-                switch (pendingOperator) {
-                    case Addition.operator:
-                        pendingOperands.push(new Addition(left, right));
-                        break;
-                    case Subtraction.operator:
-                        pendingOperands.push(new Subtraction(left,
-                                right));
-                        break;
-                    case Multiplication.operator:
-                        pendingOperands.push(new Multiplication(left,
-                                right));
-                        break;
-                    case Division.operator:
-                        pendingOperands.push(new Division(left,
-                                right));
-                        break;
+        private final ByteBuffer    buffer;
+
+        ByteBufferAppendable(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        public Appendable   append(CharSequence characters)
+        {
+            if (characters == null) {
+                characters = "null";
+            }
+
+            return(append(characters, 0, characters.length()));
+        }
+
+        public Appendable   append(CharSequence characters, int start,
+                                   int end)
+        {
+            int     which;
+
+            if (characters == null) {
+                characters = "null";
+            }
+            for (which = start; (which < end); ++which) {
+                char    character;
+
+                character = characters.charAt(which);
+                if (character >= 0x80) {
+                    buffer.put(StandardCharsets.UTF_8.encode(
+                                    CharBuffer.wrap(characters, which,
+                                                    end)));
+                    break;
                 }
+                buffer.put((byte)character);
+            }
 
+            return(this);
+        }
+
+        public Appendable   append(char character)
+        {
+            if (character >= 0x80) {
+                return(append(String.valueOf(character)));
+            }
+            buffer.put((byte)character);
 
-			} else {
-				throw(new ParseException("Don't understand" +
-										 " operation '" +
-										 pendingOperation + "'", 0));
-			}
-		}
+            return(this);
+        }
     }
 
     /**
-     *  Evaluate the expression and return its value.
-     *  @return Integer which represents the current value of
-     *  the expression.
+     *  Compare this tree with another node by node.  Trees are equal
+     *  when they have the same operations, parentheses, constants
+     *  and variables in the same places.  Nodes that only stand in
+     *  for another tree, like this class or the evaluators that
+     *  extend it, are looked through.  The trees are walked with an
+     *  explicit stack, and parts that are the very same object are
+     *  not walked at all, which makes comparing interned trees cheap.
+     *  @param other The object to compare with.
+     *  @return {@code true} when {@code other} is an equal tree.
      */
-    public int getValue()
+    public boolean      equals(Object other)
     {
-        if (value != null) {
-            return(value.getValue());
+        int             top;
+        Expression      lefts[];
+        Expression      rights[];
+
+        if (this == other) {
+            return(true);
+        }
+        if ((other instanceof Expression) == false) {
+            return(false);
         }
 
-        return(0);
+        lefts = new Expression[16];
+        rights = new Expression[16];
+        lefts[0] = this;
+        rights[0] = (Expression)other;
+        top = 1;
+        while (top > 0) {
+            Expression  left;
+            Expression  right;
+            int         opcode;
+
+            --top;
+            left = unwrap(lefts[top]);
+            right = unwrap(rights[top]);
+            if (left == right) {
+                continue;
+            }
+            if ((left == null) || (right == null)) {
+                return(false);
+            }
+
+            opcode = left.getOpcode();
+            if (opcode != right.getOpcode()) {
+                return(false);
+            }
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    if ((left.getValue() != right.getValue()) ||
+                        (Objects.equals(wideValue(left),
+                                        wideValue(right)) == false)) {
+                        return(false);
+                    }
+                    break;
+                case Opcode.VARIABLE:
+                    if ((((Variable)left).getSlot() !=
+                                    ((Variable)right).getSlot()) ||
+                        (((Variable)left).getName().equals(
+                                ((Variable)right).getName()) == false)) {
+                        return(false);
+                    }
+                    break;
+                default:
+                    if (top + 2 > lefts.length) {
+                        lefts = Arrays.copyOf(lefts, top * 2);
+                        rights = Arrays.copyOf(rights, top * 2);
+                    }
+                    lefts[top] = left.getOperand(0);
+                    rights[top] = right.getOperand(0);
+                    ++top;
+                    if (opcode != Opcode.GROUP) {
+                        lefts[top] = left.getOperand(1);
+                        rights[top] = right.getOperand(1);
+                        ++top;
+                    }
+                    break;
+            }
+        }
+
+        return(true);
     }
 
     /**
-     *  Return a {@code String} representation of the expression.
-     *  @return {@code String} which represents the expression.
+     *  Return a hash code worked out from the whole tree, so that
+     *  equal trees have equal hash codes.
+     *  @return The hash code of the tree.
      */
-    public String       toString()
+    public int          hashCode()
+    {
+        int             hash;
+        int             top;
+        Expression      nodes[];
+
+        /*
+         *  Every node has a fixed number of operands, so the order
+         *  the nodes are met in going down the left-hand side first
+         *  is enough to tell trees apart.
+         */
+        nodes = new Expression[16];
+        nodes[0] = this;
+        top = 1;
+        hash = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = unwrap(nodes[--top]);
+            if (node == null) {
+                hash = hash * 31;
+                continue;
+            }
+
+            opcode = node.getOpcode();
+            hash = hash * 31 + opcode;
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    hash = hash * 31 + node.getValue();
+                    break;
+                case Opcode.VARIABLE:
+                    hash = hash * 31 + ((Variable)node).getSlot();
+                    hash = hash * 31 + ((Variable)node).getName().
+                                                            hashCode();
+                    break;
+                default:
+                    if (top + 2 > nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                    }
+                    if (opcode != Opcode.GROUP) {
+                        nodes[top++] = node.getOperand(1);
+                    }
+                    nodes[top++] = node.getOperand(0);
+                    break;
+            }
+        }
+
+        return(hash);
+    }
+
+    /*
+     *  Helper method to look through nodes that stand in for another
+     *  tree.
+     */
+    private static Expression   unwrap(Expression node)
     {
-        if (value != null) {
-            return("" + value);
+        while ((node != null) && (node.getOpcode() == Opcode.EXPRESSION)) {
+            node = node.getOperand(0);
         }
 
-        return(null);
+        return(node);
+    }
+
+    /*
+     *  Helper method to find the whole value of a constant too large
+     *  for an int, null for any other constant.
+     */
+    private static BigInteger   wideValue(Expression node)
+    {
+        return((node instanceof WideInteger) ?
+                        ((WideInteger)node).getBigValue() : null);
+    }
+
+    /**
+     *  Return the kind of node this is for code that walks the tree
+     *  without evaluating it.  Each subclass reports its own kind.
+     *  @return One of the {@link Opcode} values.
+     */
+    int getOpcode()
+    {
+        return(Opcode.EXPRESSION);
+    }
+
+    /**
+     *  Return one of the operands of this node for code that walks
+     *  the tree.
+     *  @param which 0 for the left-hand or only operand, 1 for the
+     *  right-hand operand.
+     *  @return The operand asked for, {@code null} when there isn't
+     *  one.
+     */
+    Expression  getOperand(int which)
+    {
+        return(value);
     }
 
     /**
@@ -233,16 +608,16 @@ public class    Expression
          */
         String toTest[]    = {
                 "2 + 5 - 1 * 5 / 2",
-//                    "1",
-//                    "1 + 2",
-//                    "1 + 2 + 3",
-//                    "1 2",
-//                    "1 + + 2",
-//                    "+",
-//                    "+ 1",
-//                    "1 + ",
-//                    "1 + 2 +",
-//                    "1 + 2 + 3 +",
+                "1",
+                "1 + 2",
+                "1 + 2 + 3",
+                "1 2",
+                "1 + + 2",
+                "+",
+                "+ 1",
+                "1 + ",
+                "1 + 2 +",
+                "1 + 2 + 3 +",
                 };
         /*
          *  The items in this array are the results of evaluating the
@@ -250,17 +625,17 @@ public class    Expression
          *  previous array.  A -99 value means we expect an exception.
          */
         int             results[]   = {
-                15,
-//                    1,
-//                    3,
-//                    6,
-//                    -99,
-//                    -99,
-//                    -99,
-//                    -99,
-//                    -99,
-//                    -99,
-//                    -99,
+                5,
+                1,
+                3,
+                6,
+                -99,
+                -99,
+                -99,
+                -99,
+                -99,
+                -99,
+                -99,
                 };
 
 
@@ -335,6 +710,42 @@ public class    Expression
             }
         }
 
+        /*
+         *  Writing to a Writer or a ByteBuffer gives the same text.
+         */
+        try {
+            String          text;
+            StringWriter    writer;
+            ByteBuffer      buffer;
+            Expression      expression;
+
+            text = "(\u00e9t\u00e9 + 2) * 3 / (4 - x)";
+            expression = new Expression(text);
+            writer = new StringWriter();
+            expression.writeTo(writer);
+            buffer = ByteBuffer.allocate(64);
+            expression.writeTo(buffer);
+            buffer.flip();
+            if ((text.equals(writer.toString()) == false) ||
+                (text.equals(StandardCharsets.UTF_8.decode(buffer).
+                                                toString()) == false)) {
+                System.out.println("*** ERROR *** writeTo() wrote " +
+                                   writer);
+                ++errors;
+            }
+            try {
+                expression.writeTo(ByteBuffer.allocate(4));
+                System.out.println("*** ERROR *** writeTo() overflowed" +
+                                   " quietly");
+                ++errors;
+            } catch (BufferOverflowException exception) {
+                System.out.println(exception);
+            }
+        } catch (ParseException | IOException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
         if (errors > 0) {
             System.out.println("\nUNIT TEST FAILED with " +
                                errors + " errors!");
@@ -0,0 +1,790 @@
+package expressions;
+
+import java.nio.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionArena} is the class that holds an expression tree
+ *  outside the Java heap.  Rather than an object per node, each node
+ *  is an index into four columns: its opcode, its left-hand operand,
+ *  its right-hand operand and its literal, which for a constant is
+ *  its value and for a variable its slot.  A node takes 13 bytes and
+ *  the garbage collector has nothing to trace however many there
+ *  are, which suits machine-written expressions with millions of
+ *  terms.
+ *  <p>
+ *  Nodes are added children first, so an operation can only refer to
+ *  nodes already in the arena.  The root is the last node added.
+ *  Trees can be built node by node, or copied in from an
+ *  {@link Expression} and back out again.  Evaluating and printing
+ *  work straight from the columns with an explicit stack, so depth
+ *  doesn't matter.
+ *  <p>
+ *  An {@code ExpressionArena} isn't safe to add to from more than one
+ *  thread, but once built any number may evaluate it.  Its memory is
+ *  given back when it's collected.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionArena
+{
+    private static final int    INITIAL_SIZE    = 16;
+    private static final int    INITIAL_CAPACITY    = 1024;
+    /*
+     *  The most nodes a column of ints can hold, since a direct
+     *  buffer is sized in bytes by an int.
+     */
+    private static final int    MAX_CAPACITY    =
+                                        java.lang.Integer.MAX_VALUE / 4;
+
+    private ByteBuffer  opcodes;
+    private IntBuffer   lefts;
+    private IntBuffer   rights;
+    private IntBuffer   literals;
+    private String      names[];
+    private int         capacity;
+    private int         size;
+
+    /**
+     *  Construct an empty {@code ExpressionArena}.
+     */
+    public      ExpressionArena()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     *  Construct an empty {@code ExpressionArena} with room for the
+     *  given number of nodes before it has to grow.
+     *  @param capacity How many nodes to make room for.
+     *  @throws IllegalArgumentException When capacity isn't positive,
+     *  or is more nodes than an arena can hold.
+     */
+    public      ExpressionArena(int capacity)
+    {
+        if ((capacity <= 0) || (capacity > MAX_CAPACITY)) {
+            throw(new IllegalArgumentException("Capacity " + capacity));
+        }
+        names = new String[0];
+        allocate(capacity);
+    }
+
+    /**
+     *  Construct an {@code ExpressionArena} holding a copy of the
+     *  given tree.  An operation the tree uses in more than one place
+     *  is copied once.
+     *  @param expression The tree to copy.
+     */
+    public      ExpressionArena(Expression expression)
+    {
+        this(INITIAL_CAPACITY);
+        add(expression);
+    }
+
+    /**
+     *  Add a constant.
+     *  @param value The value of the constant.
+     *  @return The index of the new node.
+     */
+    public int  literal(int value)
+    {
+        return(append(Opcode.LITERAL, -1, -1, value));
+    }
+
+    /**
+     *  Add a variable.
+     *  @param name The name of the variable.
+     *  @param slot Where the value of the variable is found.
+     *  @return The index of the new node.
+     */
+    public int  variable(String name, int slot)
+    {
+        if (slot < 0) {
+            throw(new IllegalArgumentException("Negative slot " + slot));
+        }
+        if (slot >= names.length) {
+            names = Arrays.copyOf(names, Math.max(slot + 1,
+                                                  names.length * 2));
+        }
+        names[slot] = name;
+
+        return(append(Opcode.VARIABLE, -1, -1, slot));
+    }
+
+    /**
+     *  Add a parenthesis around a node already in the arena.
+     *  @param expression The index of the node inside.
+     *  @return The index of the new node.
+     */
+    public int  group(int expression)
+    {
+        check(expression);
+
+        return(append(Opcode.GROUP, expression, -1, 0));
+    }
+
+    /**
+     *  Add an operation on nodes already in the arena.
+     *  @param operator The character for the operation.
+     *  @param left The index of the left-hand operand.
+     *  @param right The index of the right-hand operand.
+     *  @return The index of the new node.
+     *  @throws IllegalArgumentException When the operator is unknown.
+     */
+    public int  operation(char operator, int left, int right)
+    {
+        int     opcode;
+
+        opcode = Opcode.opcode(operator);
+        check(left);
+        check(right);
+
+        return(append(opcode, left, right, 0));
+    }
+
+    /**
+     *  Add a copy of the given tree.
+     *  @param expression The tree to copy.
+     *  @return The index of the root of the copy.
+     */
+    public int  add(Expression expression)
+    {
+        int             top;
+        int             resultTop;
+        Expression      nodes[];
+        int             visits[];
+        int             results[];
+        IdentityHashMap<Expression, java.lang.Integer>  copies;
+
+        copies = new IdentityHashMap<>();
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+            int         operands;
+
+            node = nodes[top - 1];
+            if (resultTop == results.length) {
+                results = Arrays.copyOf(results, resultTop * 2);
+            }
+
+            opcode = (node == null) ? Opcode.LITERAL : node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    /*
+                     *  An empty Expression evaluates to zero.
+                     */
+                    results[resultTop++] = literal((node == null) ? 0 :
+                                                        node.getValue());
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    results[resultTop++] =
+                                variable(((Variable)node).getName(),
+                                         ((Variable)node).getSlot());
+                    --top;
+                    continue;
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == 0) {
+                java.lang.Integer   copy;
+
+                copy = copies.get(node);
+                if (copy != null) {
+                    results[resultTop++] = copy;
+                    --top;
+                    continue;
+                }
+            }
+
+            operands = (opcode == Opcode.GROUP) ? 1 : 2;
+            if (visits[top - 1] == operands) {
+                resultTop -= operands;
+                results[resultTop] = append(opcode, results[resultTop],
+                                            (operands == 1) ? -1 :
+                                                results[resultTop + 1],
+                                            0);
+                copies.put(node, results[resultTop]);
+                ++resultTop;
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(results[0]);
+    }
+
+    /**
+     *  Return how many nodes are in the arena.
+     *  @return The number of nodes.
+     */
+    public int  size()
+    {
+        return(size);
+    }
+
+    /**
+     *  Return the root of the tree, the last node added.
+     *  @return The index of the root, -1 when the arena is empty.
+     */
+    public int  getRoot()
+    {
+        return(size - 1);
+    }
+
+    /**
+     *  Return how much memory outside the heap the arena holds.
+     *  @return The number of bytes allocated for the columns.
+     */
+    public long getBytes()
+    {
+        return(13L * capacity);
+    }
+
+    /**
+     *  Evaluate the tree from the root.
+     *  @return The value of the tree.
+     *  @throws IllegalStateException When the tree has variables or
+     *  the arena is empty.
+     */
+    public int  getValue()
+    {
+        return(getValue(getRoot(), null));
+    }
+
+    /**
+     *  Evaluate the tree from the root using the given values for its
+     *  variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The value of the tree.
+     */
+    public int  getValue(int variables[])
+    {
+        return(getValue(getRoot(), variables));
+    }
+
+    /**
+     *  Evaluate the tree below the given node using the given values
+     *  for its variables.
+     *  @param node The index of the node to evaluate.
+     *  @param variables The value of each variable by slot, which may
+     *  be {@code null} when there are no variables.
+     *  @return The same value as {@code getValue(int[])} on the
+     *  equivalent {@link Expression}.
+     */
+    public int  getValue(int node, int variables[])
+    {
+        int     top;
+        int     valueTop;
+        int     nodes[];
+        int     visits[];
+        int     values[];
+
+        check(node);
+
+        /*
+         *  Operations stay on the node stack until both operands are
+         *  on the value stack.
+         */
+        nodes = new int[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        values = new int[INITIAL_SIZE];
+        nodes[0] = node;
+        visits[0] = 0;
+        top = 1;
+        valueTop = 0;
+        while (top > 0) {
+            int     which;
+            int     opcode;
+
+            which = nodes[top - 1];
+            if (valueTop == values.length) {
+                values = Arrays.copyOf(values, valueTop * 2);
+            }
+
+            opcode = opcodes.get(which);
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    values[valueTop++] = literals.get(which);
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    if (variables == null) {
+                        throw(new IllegalStateException("No value" +
+                                    " given for " +
+                                    names[literals.get(which)]));
+                    }
+                    values[valueTop++] = variables[literals.get(which)];
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                    nodes[top - 1] = lefts.get(which);
+                    continue;
+            }
+
+            if (visits[top - 1] == 2) {
+                int     right;
+
+                right = values[--valueTop];
+                switch (opcode) {
+                    case Opcode.ADD:
+                        values[valueTop - 1] += right;
+                        break;
+                    case Opcode.SUBTRACT:
+                        values[valueTop - 1] -= right;
+                        break;
+                    case Opcode.MULTIPLY:
+                        values[valueTop - 1] *= right;
+                        break;
+                    default:
+                        values[valueTop - 1] /= right;
+                        break;
+                }
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = (visits[top - 1] == 0) ? lefts.get(which) :
+                                                  rights.get(which);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(values[0]);
+    }
+
+    /**
+     *  Return the tree below the given node as a {@code String}.
+     *  @param node The index of the node to print.
+     *  @return The same {@code String} as the equivalent
+     *  {@link Expression}.
+     */
+    public String   toString(int node)
+    {
+        int             top;
+        int             nodes[];
+        int             visits[];
+        StringBuilder   string;
+
+        check(node);
+
+        nodes = new int[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        string = new StringBuilder();
+        nodes[0] = node;
+        visits[0] = 0;
+        top = 1;
+        while (top > 0) {
+            int     which;
+            int     opcode;
+            int     visit;
+
+            which = nodes[top - 1];
+            opcode = opcodes.get(which);
+            visit = visits[top - 1]++;
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    string.append(literals.get(which));
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    string.append(names[literals.get(which)]);
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                    if (visit == 1) {
+                        string.append(Parenthesis.closeOperator);
+                        --top;
+                        continue;
+                    }
+                    string.append(Parenthesis.openOperator);
+                    break;
+                default:
+                    if (visit == 2) {
+                        --top;
+                        continue;
+                    }
+                    if (visit == 1) {
+                        string.append(' ').
+                               append(Opcode.operator(opcode)).
+                               append(' ');
+                    }
+                    break;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = (visit == 0) ? lefts.get(which) :
+                                        rights.get(which);
+            visits[top] = 0;
+            ++top;
+        }
+
+        return(string.toString());
+    }
+
+    /**
+     *  Return the tree from the root as a {@code String}.
+     *  @return The tree as a {@code String}, {@code null} when the
+     *  arena is empty.
+     */
+    public String       toString()
+    {
+        if (size == 0) {
+            return(null);
+        }
+
+        return(toString(getRoot()));
+    }
+
+    /**
+     *  Copy the tree from the root back onto the heap.
+     *  @return An equivalent tree of {@link Expression} nodes.
+     */
+    public Expression   toExpression()
+    {
+        return(toExpression(getRoot()));
+    }
+
+    /**
+     *  Copy the tree below the given node back onto the heap.  A node
+     *  used in more than one place is copied once.  A copy deeper
+     *  than {@link IterativeExpression#DEPTH_THRESHOLD} comes back
+     *  wrapped in an {@link IterativeExpression}, as the
+     *  {@link Parser} would return it.
+     *  @param node The index of the node to copy.
+     *  @return An equivalent tree of {@link Expression} nodes.
+     */
+    public Expression   toExpression(int node)
+    {
+        int             top;
+        int             resultTop;
+        int             nodes[];
+        int             visits[];
+        Expression      results[];
+        Variable        variables[];
+        HashMap<java.lang.Integer, Expression>  copies;
+
+        check(node);
+
+        copies = new HashMap<>();
+        variables = new Variable[names.length];
+        nodes = new int[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new Expression[INITIAL_SIZE];
+        nodes[0] = node;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        while (top > 0) {
+            int         which;
+            int         opcode;
+            int         operands;
+            Expression  copy;
+
+            which = nodes[top - 1];
+            if (resultTop == results.length) {
+                results = Arrays.copyOf(results, resultTop * 2);
+            }
+
+            opcode = opcodes.get(which);
+            if (opcode == Opcode.LITERAL) {
+                results[resultTop++] = Integer.valueOf(literals.get(which));
+                --top;
+                continue;
+            }
+            if (opcode == Opcode.VARIABLE) {
+                int     slot;
+
+                slot = literals.get(which);
+                if (variables[slot] == null) {
+                    variables[slot] = new Variable(names[slot], slot);
+                }
+                results[resultTop++] = variables[slot];
+                --top;
+                continue;
+            }
+
+            if ((visits[top - 1] == 0) &&
+                ((copy = copies.get(which)) != null)) {
+                results[resultTop++] = copy;
+                --top;
+                continue;
+            }
+
+            operands = (opcode == Opcode.GROUP) ? 1 : 2;
+            if (visits[top - 1] == operands) {
+                resultTop -= operands;
+                if (opcode == Opcode.GROUP) {
+                    copy = new Parenthesis(results[resultTop]);
+                } else {
+                    copy = Parser.combine(Opcode.operator(opcode),
+                                          results[resultTop],
+                                          results[resultTop + 1]);
+                    results[resultTop + 1] = null;
+                }
+                copies.put(which, copy);
+                results[resultTop++] = copy;
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = (visits[top - 1] == 0) ? lefts.get(which) :
+                                                  rights.get(which);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(IterativeExpression.guard(results[0]));
+    }
+
+    /*
+     *  Helper method to add a node, growing the columns when full.
+     */
+    private int append(int opcode, int left, int right, int literal)
+    {
+        if (size == capacity) {
+            if (capacity >= MAX_CAPACITY) {
+                throw(new IllegalStateException("Arena full"));
+            }
+            allocate((capacity > MAX_CAPACITY / 2) ? MAX_CAPACITY :
+                                                     capacity * 2);
+        }
+
+        opcodes.put(size, (byte)opcode);
+        lefts.put(size, left);
+        rights.put(size, right);
+        literals.put(size, literal);
+
+        return(size++);
+    }
+
+    /*
+     *  Helper method to check a node index refers to a node already
+     *  in the arena.
+     */
+    private void    check(int node)
+    {
+        if ((node < 0) || (node >= size)) {
+            throw((size == 0) ?
+                  new IllegalStateException("Arena is empty") :
+                  new IllegalArgumentException("No node " + node));
+        }
+    }
+
+    /*
+     *  Helper method to allocate the columns with room for the given
+     *  number of nodes, copying over the nodes we have.
+     */
+    private void    allocate(int capacity)
+    {
+        ByteBuffer  newOpcodes;
+        IntBuffer   newLefts;
+        IntBuffer   newRights;
+        IntBuffer   newLiterals;
+
+        newOpcodes = ByteBuffer.allocateDirect(capacity);
+        newLefts = column(capacity);
+        newRights = column(capacity);
+        newLiterals = column(capacity);
+        if (size > 0) {
+            newOpcodes.put(opcodes.duplicate().position(0).limit(size));
+            newLefts.put(lefts.duplicate().position(0).limit(size));
+            newRights.put(rights.duplicate().position(0).limit(size));
+            newLiterals.put(literals.duplicate().position(0).limit(size));
+        }
+
+        opcodes = newOpcodes;
+        lefts = newLefts;
+        rights = newRights;
+        literals = newLiterals;
+        this.capacity = capacity;
+    }
+
+    /*
+     *  Helper method to allocate one column of ints.
+     */
+    private static IntBuffer    column(int capacity)
+    {
+        return(ByteBuffer.allocateDirect(capacity * 4).
+                    order(ByteOrder.nativeOrder()).asIntBuffer());
+    }
+
+    /**
+     *  Unit test our {@code ExpressionArena}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        int             terms;
+        int             variables[]     = { 6, 7 };
+        StringBuilder   deep;
+        ExpressionArena arena;
+        /*
+         *  The items in this array are expressions to copy into an
+         *  arena.  Each is checked against its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "2 + 5 - 1 * 5 / 2",
+                "(x + 2) * ((y - 4) / 5)",
+                "7 / (3 - 3)",
+                null,
+        };
+
+        /*
+         *  The last test is too deep to walk recursively.
+         */
+        terms = 200000;
+        deep = new StringBuilder("1");
+        for (which = 1; (which < terms); ++which) {
+            deep.append(" - x");
+        }
+        toTest[toTest.length - 1] = deep.toString();
+
+        errors = 0;
+        for (String test : toTest) {
+            int         expected;
+            Expression  expression;
+
+            System.out.println("Trying to copy:\n" + "  \"" +
+                               ((test.length() > 60) ?
+                                    test.substring(0, 60) + "..." :
+                                    test) + "\"");
+            try {
+                expression = new Expression(test);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            arena = new ExpressionArena(expression);
+
+            if (test.equals(arena.toString()) == false) {
+                System.out.println("*** ERROR *** toString() returns " +
+                                   arena + " should be " + test);
+                ++errors;
+            }
+            if (expression.equals(arena.toExpression()) == false) {
+                System.out.println("*** ERROR *** copied back as " +
+                                   arena.toExpression());
+                ++errors;
+            }
+
+            if (test == toTest[toTest.length - 1]) {
+                expected = 1 - (terms - 1) * variables[0];
+            } else {
+                try {
+                    expected = expression.getValue(variables);
+                } catch (ArithmeticException exception) {
+                    try {
+                        arena.getValue(variables);
+                        System.out.println("*** ERROR *** getValue()" +
+                                           " should throw " + exception);
+                        ++errors;
+                    } catch (ArithmeticException expectedException) {
+                        System.out.println("Throws " + expectedException);
+                    }
+                    continue;
+                }
+            }
+            if (arena.getValue(variables) != expected) {
+                System.out.println("*** ERROR *** getValue() returns " +
+                                   arena.getValue(variables) +
+                                   " should be " + expected);
+                ++errors;
+            }
+            try {
+                if (arena.toExpression().getValue(variables) != expected) {
+                    System.out.println("*** ERROR *** copied back with" +
+                                       " value " + arena.toExpression().
+                                                    getValue(variables));
+                    ++errors;
+                }
+            } catch (StackOverflowError error) {
+                System.out.println("*** ERROR *** " + error);
+                ++errors;
+            }
+        }
+
+        /*
+         *  Trees can be built without ever being on the heap, and a
+         *  node can be used more than once.
+         */
+        arena = new ExpressionArena(2);
+        which = arena.operation('*', arena.literal(6),
+                                arena.variable("n", 0));
+        arena.operation('+', arena.group(which), which);
+        if ((arena.getValue(new int[] { 7 }) != 84) ||
+            (("(6 * n) + 6 * n").equals("" + arena) == false) ||
+            (arena.size() != 5)) {
+            System.out.println("*** ERROR *** built " + arena +
+                               " with " + arena.size() + " nodes");
+            ++errors;
+        }
+        try {
+            arena.getValue();
+            System.out.println("*** ERROR *** getValue() without" +
+                               " variables should throw");
+            ++errors;
+        } catch (IllegalStateException exception) {
+            System.out.println(exception);
+        }
+        try {
+            arena.operation('+', 0, arena.size());
+            System.out.println("*** ERROR *** operand after the" +
+                               " operation allowed");
+            ++errors;
+        } catch (IllegalArgumentException exception) {
+            System.out.println(exception);
+        }
+        try {
+            new ExpressionArena(MAX_CAPACITY + 1);
+            System.out.println("*** ERROR *** capacity " +
+                               (MAX_CAPACITY + 1) + " allowed");
+            ++errors;
+        } catch (IllegalArgumentException exception) {
+            System.out.println(exception);
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
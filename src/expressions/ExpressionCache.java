@@ -0,0 +1,652 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionCache} is the class that remembers the trees
+ *  parsed from the most useful expression texts so the same text
+ *  isn't parsed again.  It holds at most a given number of entries
+ *  and at most a given total weight, where the weight of an entry is
+ *  the length of its text.
+ *  <p>
+ *  Which entries stay is decided the W-TinyLFU way.  New entries
+ *  land in a small window kept in least recently used order.  Entries
+ *  pushed out of the window must then beat the least recently used
+ *  entry of the main area on how often they've been asked for, which
+ *  is estimated by a small count-min sketch that is halved now and
+ *  then so old popularity fades.  The main area keeps entries asked
+ *  for more than once in a protected segment so a burst of one-off
+ *  texts can't flush them.
+ *  <p>
+ *  Lookups go through a {@code ConcurrentHashMap}.  The bookkeeping
+ *  for eviction is done under a lock, which a hit only tries for:
+ *  when another thread holds it the hit simply isn't recorded.
+ *  <p>
+ *  With normalizing on, texts that differ only in whitespace between
+ *  tokens share one entry, since they parse to the same tree.  The
+ *  text parsed on a miss is still the caller's own, so where a
+ *  {@code ParseException} says the text went wrong is where it did.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionCache
+{
+    /*
+     *  Which list an entry is on.
+     */
+    private static final int    WINDOW      = 0;
+    private static final int    PROBATION   = 1;
+    private static final int    PROTECTED   = 2;
+
+    /*
+     *  How many times an entry may be counted by the sketch and how
+     *  many counts we take per entry allowed before halving them.
+     */
+    private static final int    MAX_COUNT       = 15;
+    private static final int    SAMPLE_FACTOR   = 10;
+
+    /*
+     *  The most counters in a row of the sketch.  A cache bigger than
+     *  a few million entries shares counters rather than have the
+     *  sketch grow past 64MB.
+     */
+    private static final int    MAX_SKETCH_SIZE = 1 << 24;
+
+    private final int           maximumSize;
+    private final long          maximumWeight;
+    private final boolean       normalizing;
+    private final Parser        parser;
+    private final int           windowSize;
+    private final int           protectedSize;
+
+    private final ConcurrentHashMap<String, Entry>  entries;
+    private final ReentrantLock lock;
+    private final LongAdder     hits;
+    private final LongAdder     misses;
+    private final LongAdder     evictions;
+
+    /*
+     *  These are only touched while holding the lock.  Each list has
+     *  its least recently used entry at the head.
+     */
+    private final Entry         heads[];
+    private final Entry         tails[];
+    private final int           counts[];
+    private final byte          sketch[];
+    private final int           sketchMask;
+    private final int           sampleSize;
+    private int                 samples;
+    private long                weight;
+
+    /**
+     *  Construct an {@code ExpressionCache} that parses with a
+     *  default {@link Parser} and doesn't normalize.
+     *  @param maximumSize The most entries to hold.
+     *  @param maximumWeight The most total text length to hold.
+     */
+    public      ExpressionCache(int maximumSize, long maximumWeight)
+    {
+        this(maximumSize, maximumWeight, false, new Parser());
+    }
+
+    /**
+     *  Construct an {@code ExpressionCache}.
+     *  @param maximumSize The most entries to hold.
+     *  @param maximumWeight The most total text length to hold.
+     *  @param normalizing Whether texts that differ only in whitespace
+     *  share an entry.
+     *  @param parser What parses texts that aren't in the cache.  It
+     *  must not be changed while the cache uses it.
+     */
+    public      ExpressionCache(int maximumSize, long maximumWeight,
+                                boolean normalizing, Parser parser)
+    {
+        int     sketchSize;
+
+        if ((maximumSize <= 0) || (maximumWeight <= 0)) {
+            throw(new IllegalArgumentException("Cache must hold" +
+                                               " something"));
+        }
+
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.normalizing = normalizing;
+        this.parser = parser;
+
+        /*
+         *  One percent of the entries go to the window and eighty
+         *  percent of the rest are protected.
+         */
+        windowSize = Math.max(1, maximumSize / 100);
+        protectedSize = (int)((maximumSize - windowSize) * 4L / 5);
+
+        entries = new ConcurrentHashMap<>();
+        lock = new ReentrantLock();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+        heads = new Entry[3];
+        tails = new Entry[3];
+        counts = new int[3];
+
+        /*
+         *  Four rows of counters, each a power of two at least four
+         *  times the number of entries so a scan of one-off texts
+         *  doesn't pile onto the counters of the popular ones, up to
+         *  MAX_SKETCH_SIZE.  Counters are halved after ten samples
+         *  for each entry the sketch has room for.
+         */
+        sketchSize = (int)Math.min(MAX_SKETCH_SIZE,
+                                   Long.highestOneBit(
+                                        Math.max(16L, maximumSize) * 8 - 1));
+        sketch = new byte[sketchSize * 4];
+        sketchMask = sketchSize - 1;
+        sampleSize = Math.min(maximumSize, MAX_SKETCH_SIZE) *
+                                                        SAMPLE_FACTOR;
+    }
+
+    /**
+     *  Return the tree for the given text, parsing it only when it
+     *  isn't already in the cache.  The tree may be handed to other
+     *  callers too, so it must not be changed.
+     *  @param text The text of the expression.
+     *  @return The tree parsed from the text.
+     *  @throws ParseException When the text doesn't comply with the
+     *  syntax.  Failures aren't cached.
+     */
+    public Expression   get(String text)
+            throws ParseException
+    {
+        String      key;
+        Entry       entry;
+        Entry       existing;
+        Expression  expression;
+
+        key = (normalizing == true) ? normalize(text) : text;
+        entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            if (lock.tryLock() == true) {
+                try {
+                    accessed(entry);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return(entry.expression);
+        }
+
+        misses.increment();
+        expression = new Expression(text, parser);
+
+        entry = new Entry(key, expression);
+        existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            /*
+             *  Someone else parsed it first.
+             */
+            return(existing.expression);
+        }
+
+        lock.lock();
+        try {
+            increment(entry.hash);
+            if (entries.get(key) == entry) {
+                link(entry, WINDOW);
+                weight += entry.weight;
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return(expression);
+    }
+
+    /**
+     *  Return how many lookups found their text in the cache.
+     *  @return The number of hits.
+     */
+    public long getHits()
+    {
+        return(hits.sum());
+    }
+
+    /**
+     *  Return how many lookups had to parse their text.
+     *  @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return(misses.sum());
+    }
+
+    /**
+     *  Return how many entries have been dropped to make room.
+     *  @return The number of evictions.
+     */
+    public long getEvictions()
+    {
+        return(evictions.sum());
+    }
+
+    /**
+     *  Return how many entries the cache holds.
+     *  @return The number of entries.
+     */
+    public int  size()
+    {
+        return(entries.size());
+    }
+
+    /**
+     *  Return the total weight of the entries the cache holds.
+     *  @return The total length of the texts held.
+     */
+    public long getWeight()
+    {
+        lock.lock();
+        try {
+            return(weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     *  Return the text a lookup uses as its key.  Without normalizing
+     *  that's the text itself.  With it, it's the tokens of the text
+     *  separated by single spaces.
+     *  @param text The text of the expression.
+     *  @return The key for the text.
+     *  @throws ParseException When the text can't be broken into
+     *  tokens.
+     */
+    public String   normalize(String text)
+            throws ParseException
+    {
+        Lexer           lexer;
+        StringBuilder   key;
+
+        if ((normalizing == false) || (text == null)) {
+            return(text);
+        }
+
+        lexer = new Lexer(text);
+        key = new StringBuilder(text.length());
+        while (lexer.next() != Lexer.END) {
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(text, lexer.getStart(), lexer.getEnd());
+        }
+
+        return(key.toString());
+    }
+
+    /*
+     *  Helper method to record a hit.  An entry in the window just
+     *  becomes the most recently used.  One on probation has now
+     *  been asked for twice so it's protected, which may push the
+     *  least recently used protected entry back to probation.
+     */
+    private void    accessed(Entry entry)
+    {
+        if (entry.list < 0) {
+            /*
+             *  It's been evicted already.
+             */
+            return;
+        }
+
+        increment(entry.hash);
+        switch (entry.list) {
+            case WINDOW:
+            case PROTECTED:
+                unlink(entry);
+                link(entry, entry.list);
+                break;
+            case PROBATION:
+                unlink(entry);
+                link(entry, PROTECTED);
+                if (counts[PROTECTED] > protectedSize) {
+                    Entry   demoted;
+
+                    demoted = heads[PROTECTED];
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+                break;
+        }
+    }
+
+    /*
+     *  Helper method to move entries out of the window and drop
+     *  entries until we're within our limits.
+     */
+    private void    evict()
+    {
+        while (counts[WINDOW] > windowSize) {
+            Entry   candidate;
+
+            candidate = heads[WINDOW];
+            unlink(candidate);
+            link(candidate, PROBATION);
+        }
+
+        while ((entries.size() > maximumSize) ||
+               (weight > maximumWeight)) {
+            Entry   victim;
+            Entry   candidate;
+
+            /*
+             *  The newest entry on probation, just in from the window,
+             *  has to beat the oldest one to stay.
+             */
+            victim = heads[PROBATION];
+            candidate = tails[PROBATION];
+            if (victim == null) {
+                victim = (heads[PROTECTED] != null) ? heads[PROTECTED] :
+                                                      heads[WINDOW];
+            } else if ((candidate != victim) &&
+                       (frequency(candidate.hash) <=
+                                        frequency(victim.hash))) {
+                victim = candidate;
+            }
+
+            if (victim == null) {
+                break;
+            }
+            unlink(victim);
+            victim.list = -1;
+            weight -= victim.weight;
+            entries.remove(victim.key, victim);
+            evictions.increment();
+        }
+    }
+
+    /*
+     *  Helper method to put an entry at the most recently used end
+     *  of a list.
+     */
+    private void    link(Entry entry, int list)
+    {
+        entry.list = list;
+        entry.next = null;
+        entry.previous = tails[list];
+        if (tails[list] == null) {
+            heads[list] = entry;
+        } else {
+            tails[list].next = entry;
+        }
+        tails[list] = entry;
+        ++counts[list];
+    }
+
+    /*
+     *  Helper method to take an entry off its list.
+     */
+    private void    unlink(Entry entry)
+    {
+        if (entry.previous == null) {
+            heads[entry.list] = entry.next;
+        } else {
+            entry.previous.next = entry.next;
+        }
+        if (entry.next == null) {
+            tails[entry.list] = entry.previous;
+        } else {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        --counts[entry.list];
+    }
+
+    /*
+     *  Helper method to count another use of a key in each row of the
+     *  sketch, halving every counter once enough have been taken.
+     */
+    private void    increment(int hash)
+    {
+        int     row;
+
+        for (row = 0; (row < 4); ++row) {
+            int     index;
+
+            index = index(hash, row);
+            if (sketch[index] < MAX_COUNT) {
+                ++sketch[index];
+            }
+        }
+
+        if (++samples >= sampleSize) {
+            int     which;
+
+            for (which = 0; (which < sketch.length); ++which) {
+                sketch[which] = (byte)(sketch[which] >> 1);
+            }
+            samples /= 2;
+        }
+    }
+
+    /*
+     *  Helper method to estimate how often a key has been used: the
+     *  smallest of its counters.
+     */
+    private int     frequency(int hash)
+    {
+        int     row;
+        int     smallest;
+
+        smallest = MAX_COUNT;
+        for (row = 0; (row < 4); ++row) {
+            smallest = Math.min(smallest, sketch[index(hash, row)]);
+        }
+
+        return(smallest);
+    }
+
+    /*
+     *  Helper method to find a key's counter in a row of the sketch.
+     */
+    private int     index(int hash, int row)
+    {
+        int     mixed;
+
+        mixed = (hash + row) * 0x9e3779b9;
+        mixed ^= mixed >>> 16;
+        return(row * (sketchMask + 1) + (mixed & sketchMask));
+    }
+
+    /*
+     *  {@code Entry} is one cached tree and its place in the lists.
+     */
+    private static final class  Entry
+    {
+        final String        key;
+        final Expression    expression;
+        final int           weight;
+        final int           hash;
+        int                 list;
+        Entry               previous;
+        Entry               next;
+
+        Entry(String key, Expression expression)
+        {
+            this.key = key;
+            this.expression = expression;
+            this.weight = key.length();
+            this.hash = key.hashCode() * 0x85ebca6b;
+            this.list = -1;
+        }
+    }
+
+    /**
+     *  Unit test our {@code ExpressionCache}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        ExpressionCache cache;
+        Expression      first;
+        /*
+         *  The items in this array are texts that don't parse, whose
+         *  errors must be reported where a direct parse reports them.
+         */
+        String          badTexts[]  = {
+                "1     +    ",
+                "   1 2",
+                "  ( 1 +   2 ",
+                "x *\t\t/ 2",
+        };
+
+        errors = 0;
+        try {
+            /*
+             *  The same text gives back the same tree.
+             */
+            cache = new ExpressionCache(100, 10000);
+            first = cache.get("1 + 2");
+            if ((cache.get("1 + 2") != first) ||
+                (cache.getHits() != 1) || (cache.getMisses() != 1)) {
+                System.out.println("*** ERROR *** hits " +
+                                   cache.getHits() + " misses " +
+                                   cache.getMisses());
+                ++errors;
+            }
+            if (cache.get("1+2") == first) {
+                System.out.println("*** ERROR *** normalized without" +
+                                   " being asked");
+                ++errors;
+            }
+
+            /*
+             *  Whitespace variants share one entry when normalizing.
+             */
+            cache = new ExpressionCache(100, 10000, true, new Parser());
+            first = cache.get("1+2 * 3");
+            if ((cache.get(" 1 + 2*3 ") != first) ||
+                (cache.getHits() != 1) || (cache.size() != 1)) {
+                System.out.println("*** ERROR *** normalized variants" +
+                                   " don't share an entry");
+                ++errors;
+            }
+
+            /*
+             *  A popular text survives a scan of one-off texts.
+             */
+            cache = new ExpressionCache(50, 100000);
+            first = cache.get("1 + 1");
+            for (which = 0; (which < 1000); ++which) {
+                cache.get(which + " * 2");
+                if ((which % 10) == 0) {
+                    cache.get("1 + 1");
+                }
+            }
+            if ((cache.size() > 50) || (cache.getEvictions() < 950)) {
+                System.out.println("*** ERROR *** holds " +
+                                   cache.size() + " after " +
+                                   cache.getEvictions() + " evictions");
+                ++errors;
+            }
+            if (cache.get("1 + 1") != first) {
+                System.out.println("*** ERROR *** popular entry" +
+                                   " evicted");
+                ++errors;
+            }
+
+            /*
+             *  The weight limit holds too.
+             */
+            cache = new ExpressionCache(1000, 100);
+            for (which = 0; (which < 100); ++which) {
+                cache.get(which + " + " + which);
+            }
+            if (cache.getWeight() > 100) {
+                System.out.println("*** ERROR *** weight " +
+                                   cache.getWeight() + " over 100");
+                ++errors;
+            }
+
+            /*
+             *  A huge cache keeps its sketch to a sensible size and
+             *  still works.
+             */
+            for (int size : new int[] { 1 << 26, 1 << 28,
+                                        java.lang.Integer.MAX_VALUE }) {
+                ExpressionCache huge;
+
+                huge = new ExpressionCache(size, Long.MAX_VALUE);
+                if ((huge.get("1 + 2") != huge.get("1 + 2")) ||
+                    (huge.sketch.length > MAX_SKETCH_SIZE * 4) ||
+                    (huge.protectedSize <= 0) || (huge.sampleSize <= 0)) {
+                    System.out.println("*** ERROR *** cache of " + size +
+                                       " has a sketch of " +
+                                       huge.sketch.length);
+                    ++errors;
+                }
+            }
+
+            /*
+             *  Bad text isn't cached.
+             */
+            try {
+                cache.get("1 +");
+                System.out.println("*** ERROR *** bad text parsed");
+                ++errors;
+            } catch (ParseException exception) {
+                System.out.println(exception);
+            }
+
+            /*
+             *  Errors are where the caller's text has them even when
+             *  the key has different whitespace.
+             */
+            cache = new ExpressionCache(100, 10000, true, new Parser());
+            for (String text : badTexts) {
+                int     expected;
+
+                try {
+                    new Expression(text);
+                    System.out.println("*** ERROR *** " + text +
+                                       " parsed");
+                    ++errors;
+                    continue;
+                } catch (ParseException exception) {
+                    expected = exception.getErrorOffset();
+                }
+                try {
+                    cache.get(text);
+                    System.out.println("*** ERROR *** " + text +
+                                       " parsed from the cache");
+                    ++errors;
+                } catch (ParseException exception) {
+                    if (exception.getErrorOffset() != expected) {
+                        System.out.println("*** ERROR *** \"" + text +
+                                           "\" fails at " +
+                                           exception.getErrorOffset() +
+                                           " should be " + expected);
+                        ++errors;
+                    }
+                }
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
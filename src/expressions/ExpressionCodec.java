@@ -0,0 +1,739 @@
+package expressions;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionCodec} is the class that turns a tree into a
+ *  compact run of bytes and back, so a parsed expression can be sent
+ *  or stored without printing and parsing it again.  An encoded
+ *  expression is
+ *  <ul>
+ *  <li>the two bytes {@code 'E' 'X'} and a version byte, currently
+ *  {@link #VERSION},</li>
+ *  <li>the number of variables and, in slot order, the length and
+ *  UTF-8 bytes of each name,</li>
+ *  <li>the deepest the stack gets while evaluating, and</li>
+ *  <li>the length of the program and the program: the tree in
+ *  postfix order, one byte per node, with a constant followed by
+ *  its value and a variable by its slot.</li>
+ *  </ul>
+ *  Every number is a varint, seven bits to a byte, low bits first.
+ *  Constants are zigzag encoded first so small negative values stay
+ *  short.  The opcodes are {@link Opcode#LITERAL} 0,
+ *  {@link Opcode#ADD} 1, {@link Opcode#SUBTRACT} 2,
+ *  {@link Opcode#MULTIPLY} 3, {@link Opcode#DIVIDE} 4 and
+ *  {@link Opcode#GROUP} 5, which wraps the value on top in a
+ *  {@link Parenthesis}, and {@link Opcode#VARIABLE} 7.
+ *  <p>
+ *  Decoding reads straight from a {@code ByteBuffer}, which may be a
+ *  mapped file, without copying it, and leaves the buffer positioned
+ *  after the expression so encoded expressions can be read one after
+ *  another.  {@link #evaluate(ByteBuffer, int[])} works out the value
+ *  without building any nodes at all.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionCodec
+{
+    /**
+     *  The version of the encoding written.
+     */
+    public static final int     VERSION     = 1;
+
+    private static final int    INITIAL_SIZE    = 16;
+    private static final byte   MAGIC[]     = { 'E', 'X' };
+
+    /*
+     *  Not to be instantiated.
+     */
+    private     ExpressionCodec()
+    {
+    }
+
+    /**
+     *  Encode the tree an expression evaluates.
+     *  @param expression The expression to encode.
+     *  @return The encoded expression.
+     */
+    public static byte[]    encode(Expression expression)
+    {
+        int             top;
+        int             length;
+        int             depth;
+        int             deepest;
+        int             which;
+        byte            program[];
+        byte            header[];
+        byte            encoded[];
+        int             headerLength;
+        Expression      nodes[];
+        int             visits[];
+        String          names[];
+
+        /*
+         *  Each node waiting to be encoded remembers how many of its
+         *  operands it has already handed to us.
+         */
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        program = new byte[INITIAL_SIZE];
+        names = new String[0];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        length = 0;
+        depth = 0;
+        deepest = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (length + 6 > program.length) {
+                program = Arrays.copyOf(program, program.length * 2);
+            }
+
+            opcode = (node == null) ? Opcode.LITERAL : node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    /*
+                     *  An empty Expression evaluates to zero.
+                     */
+                    program[length++] = Opcode.LITERAL;
+                    length = putVarint(program, length,
+                                       zigzag((node == null) ? 0 :
+                                                    node.getValue()));
+                    deepest = Math.max(deepest, ++depth);
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    which = ((Variable)node).getSlot();
+                    if (which >= names.length) {
+                        names = Arrays.copyOf(names, which + 1);
+                    }
+                    names[which] = ((Variable)node).getName();
+                    program[length++] = Opcode.VARIABLE;
+                    length = putVarint(program, length, which);
+                    deepest = Math.max(deepest, ++depth);
+                    --top;
+                    continue;
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == ((opcode == Opcode.GROUP) ? 1 : 2)) {
+                program[length++] = (byte)opcode;
+                if (opcode != Opcode.GROUP) {
+                    --depth;
+                }
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        /*
+         *  Now we know everything that goes in front of the program.
+         */
+        header = new byte[INITIAL_SIZE];
+        header[0] = MAGIC[0];
+        header[1] = MAGIC[1];
+        header[2] = VERSION;
+        headerLength = putVarint(header, 3, names.length);
+        for (which = 0; (which < names.length); ++which) {
+            byte    name[];
+
+            name = ((names[which] == null) ? "" : names[which]).
+                                    getBytes(StandardCharsets.UTF_8);
+            if (headerLength + name.length + 15 > header.length) {
+                header = Arrays.copyOf(header, (headerLength +
+                                                name.length + 15) * 2);
+            }
+            headerLength = putVarint(header, headerLength, name.length);
+            System.arraycopy(name, 0, header, headerLength, name.length);
+            headerLength += name.length;
+        }
+        if (headerLength + 10 > header.length) {
+            header = Arrays.copyOf(header, headerLength + 10);
+        }
+        headerLength = putVarint(header, headerLength, deepest);
+        headerLength = putVarint(header, headerLength, length);
+
+        encoded = Arrays.copyOf(header, headerLength + length);
+        System.arraycopy(program, 0, encoded, headerLength, length);
+
+        return(encoded);
+    }
+
+    /**
+     *  Encode the tree an expression evaluates into a buffer, starting
+     *  at its position and leaving the position after the last byte.
+     *  @param expression The expression to encode.
+     *  @param out Where to put the encoded expression.
+     *  @throws BufferOverflowException When it doesn't fit, in which
+     *  case nothing is written.
+     */
+    public static void  encode(Expression expression, ByteBuffer out)
+    {
+        out.put(encode(expression));
+    }
+
+    /**
+     *  Decode an expression into a tree.
+     *  @param in The encoded expression at its position.
+     *  @return An expression equal to the one encoded, with the same
+     *  variable names and slots.  A tree deeper than
+     *  {@link IterativeExpression#DEPTH_THRESHOLD} is wrapped in an
+     *  {@link IterativeExpression}.
+     *  @throws ParseException When the bytes aren't an encoded
+     *  expression.
+     */
+    public static Expression    decode(ByteBuffer in)
+            throws ParseException
+    {
+        int         position;
+        int         end;
+        int         top;
+        int         depthAt;
+        int         stackSize;
+        String      names[];
+        Variable    variables[];
+        Expression  stack[];
+        int         heights[];
+
+        position = in.position();
+        names = readNames(in);
+        variables = new Variable[names.length];
+        depthAt = in.position();
+        stackSize = readVarint(in);
+        end = readVarint(in);
+        end += in.position();
+        if ((end < in.position()) || (end > in.limit())) {
+            throw(new ParseException("Truncated program", in.position()));
+        }
+        if ((stackSize < 0) || (stackSize > end - in.position())) {
+            /*
+             *  Every value pushed takes at least a byte of the
+             *  program, so nothing is sized by a depth it can't reach.
+             */
+            throw(new ParseException("Bad stack depth " + stackSize,
+                                     depthAt));
+        }
+
+        stack = new Expression[Math.max(1, stackSize)];
+        heights = new int[stack.length];
+        top = 0;
+        while (in.position() < end) {
+            int     at;
+            int     opcode;
+
+            at = in.position();
+            opcode = in.get();
+            if (((opcode == Opcode.LITERAL) ||
+                 (opcode == Opcode.VARIABLE)) && (top == stack.length)) {
+                throw(new ParseException("Stack deeper than " +
+                                         stackSize, at));
+            }
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    heights[top] = 1;
+                    stack[top++] = Integer.valueOf(unzigzag(
+                                                    readVarint(in)));
+                    break;
+                case Opcode.VARIABLE:
+                    opcode = readVarint(in);
+                    if ((opcode < 0) || (opcode >= variables.length)) {
+                        throw(new ParseException("No variable " + opcode,
+                                                 at));
+                    }
+                    if (variables[opcode] == null) {
+                        variables[opcode] = new Variable(names[opcode],
+                                                         opcode);
+                    }
+                    heights[top] = 1;
+                    stack[top++] = variables[opcode];
+                    break;
+                case Opcode.GROUP:
+                    operands(top, 1, at);
+                    stack[top - 1] = new Parenthesis(stack[top - 1]);
+                    ++heights[top - 1];
+                    break;
+                case Opcode.ADD:
+                case Opcode.SUBTRACT:
+                case Opcode.MULTIPLY:
+                case Opcode.DIVIDE:
+                    operands(top, 2, at);
+                    --top;
+                    stack[top - 1] = Parser.combine(
+                                            Opcode.operator(opcode),
+                                            stack[top - 1], stack[top]);
+                    heights[top - 1] = Math.max(heights[top - 1],
+                                                heights[top]) + 1;
+                    stack[top] = null;
+                    break;
+                default:
+                    throw(new ParseException("Unknown opcode " + opcode,
+                                             at));
+            }
+        }
+        if (top != 1) {
+            throw(new ParseException("Program leaves " + top +
+                                     " values", position));
+        }
+
+        return(new Expression(IterativeExpression.guard(stack[0],
+                                                        heights[0]),
+                              names));
+    }
+
+    /**
+     *  Evaluate an encoded expression without building any nodes.
+     *  @param in The encoded expression at its position.
+     *  @param variables The value of each variable by slot, which may
+     *  be {@code null} when there are no variables.
+     *  @return The value of the expression.
+     *  @throws ParseException When the bytes aren't an encoded
+     *  expression.
+     *  @throws IllegalStateException When the expression has variables
+     *  and there are no values for them.
+     */
+    public static int   evaluate(ByteBuffer in, int variables[])
+            throws ParseException
+    {
+        int     position;
+        int     end;
+        int     top;
+        int     count;
+        int     depthAt;
+        int     stackSize;
+        int     stack[];
+
+        position = in.position();
+        count = skipNames(in);
+        if ((count > 0) && (variables == null)) {
+            throw(new IllegalStateException("No value given for" +
+                                            " variables"));
+        }
+        depthAt = in.position();
+        stackSize = readVarint(in);
+        end = readVarint(in);
+        end += in.position();
+        if ((end < in.position()) || (end > in.limit())) {
+            throw(new ParseException("Truncated program", in.position()));
+        }
+        if ((stackSize < 0) || (stackSize > end - in.position())) {
+            /*
+             *  Every value pushed takes at least a byte of the
+             *  program, so nothing is sized by a depth it can't reach.
+             */
+            throw(new ParseException("Bad stack depth " + stackSize,
+                                     depthAt));
+        }
+        stack = new int[Math.max(1, stackSize)];
+
+        top = 0;
+        while (in.position() < end) {
+            int     at;
+            int     opcode;
+
+            at = in.position();
+            opcode = in.get();
+            if ((opcode >= Opcode.ADD) && (opcode <= Opcode.DIVIDE)) {
+                operands(top, 2, at);
+                --top;
+            } else if ((opcode != Opcode.GROUP) && (top == stack.length)) {
+                throw(new ParseException("Stack deeper than " +
+                                         stack.length, at));
+            }
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    stack[top++] = unzigzag(readVarint(in));
+                    break;
+                case Opcode.VARIABLE:
+                    opcode = readVarint(in);
+                    if ((opcode < 0) || (opcode >= count)) {
+                        throw(new ParseException("No variable " + opcode,
+                                                 at));
+                    }
+                    stack[top++] = variables[opcode];
+                    break;
+                case Opcode.GROUP:
+                    operands(top, 1, at);
+                    break;
+                case Opcode.ADD:
+                    stack[top - 1] += stack[top];
+                    break;
+                case Opcode.SUBTRACT:
+                    stack[top - 1] -= stack[top];
+                    break;
+                case Opcode.MULTIPLY:
+                    stack[top - 1] *= stack[top];
+                    break;
+                case Opcode.DIVIDE:
+                    stack[top - 1] /= stack[top];
+                    break;
+                default:
+                    throw(new ParseException("Unknown opcode " + opcode,
+                                             at));
+            }
+        }
+        if (top != 1) {
+            throw(new ParseException("Program leaves " + top +
+                                     " values", position));
+        }
+
+        return(stack[0]);
+    }
+
+    /*
+     *  Helper method to make sure an operation has its operands.
+     */
+    private static void operands(int top, int wanted, int at)
+            throws ParseException
+    {
+        if (top < wanted) {
+            throw(new ParseException("Missing operand", at));
+        }
+    }
+
+    /*
+     *  Helper method to check the magic and version at the buffer's
+     *  position, leaving it after them.
+     */
+    private static void readHeader(ByteBuffer in)
+            throws ParseException
+    {
+        int     position;
+
+        position = in.position();
+        if ((in.remaining() < 3) || (in.get() != MAGIC[0]) ||
+            (in.get() != MAGIC[1])) {
+            throw(new ParseException("Not an encoded expression",
+                                     position));
+        }
+        if (in.get() != VERSION) {
+            throw(new ParseException("Unsupported version " +
+                                     in.get(position + 2),
+                                     position + 2));
+        }
+    }
+
+    /*
+     *  Helper method to read the header and the variable names.
+     */
+    private static String[] readNames(ByteBuffer in)
+            throws ParseException
+    {
+        int     which;
+        String  names[];
+
+        readHeader(in);
+        names = new String[readCount(in)];
+        for (which = 0; (which < names.length); ++which) {
+            int         length;
+            ByteBuffer  name;
+
+            length = readCount(in);
+            name = in.slice();
+            name.limit(length);
+            names[which] = StandardCharsets.UTF_8.decode(name).toString();
+            in.position(in.position() + length);
+        }
+
+        return(names);
+    }
+
+    /*
+     *  Helper method to read the header and skip the variable names,
+     *  returning how many there are.
+     */
+    private static int  skipNames(ByteBuffer in)
+            throws ParseException
+    {
+        int     which;
+        int     count;
+
+        readHeader(in);
+        count = readCount(in);
+        for (which = 0; (which < count); ++which) {
+            int     length;
+
+            length = readCount(in);
+            in.position(in.position() + length);
+        }
+
+        return(count);
+    }
+
+    /*
+     *  Helper method to read a count that must fit in what's left.
+     */
+    private static int  readCount(ByteBuffer in)
+            throws ParseException
+    {
+        int     at;
+        int     count;
+
+        at = in.position();
+        count = readVarint(in);
+        if ((count < 0) || (count > in.remaining())) {
+            throw(new ParseException("Bad count " + count, at));
+        }
+
+        return(count);
+    }
+
+    /*
+     *  Helper method to read a varint.
+     */
+    private static int  readVarint(ByteBuffer in)
+            throws ParseException
+    {
+        int     at;
+        int     shift;
+        int     value;
+
+        at = in.position();
+        value = 0;
+        for (shift = 0; (shift < 35); shift += 7) {
+            int     next;
+
+            if (in.hasRemaining() == false) {
+                throw(new ParseException("Truncated number", at));
+            }
+            next = in.get();
+            value |= (next & 0x7f) << shift;
+            if (next >= 0) {
+                return(value);
+            }
+        }
+
+        throw(new ParseException("Number too long", at));
+    }
+
+    /*
+     *  Helper method to write a varint, returning where it ended.
+     */
+    private static int  putVarint(byte out[], int at, int value)
+    {
+        while ((value & ~0x7f) != 0) {
+            out[at++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[at++] = (byte)value;
+
+        return(at);
+    }
+
+    /*
+     *  Helper methods to move the sign bit to the bottom and back.
+     */
+    private static int  zigzag(int value)
+    {
+        return((value << 1) ^ (value >> 31));
+    }
+
+    private static int  unzigzag(int value)
+    {
+        return((value >>> 1) ^ -(value & 1));
+    }
+
+    /**
+     *  Unit test our {@code ExpressionCodec}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        int             variables[]     = { 6, -7 };
+        StringBuilder   deep;
+        /*
+         *  The items in this array are expressions to encode.  Each
+         *  is checked against its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "(x)",
+                "2 + 5 - 1 * 5 / 2",
+                "(x + 2147483647) * ((y - 4) / 5)",
+                "\u00e9t\u00e9 * y",
+                "7 / (3 - 3)",
+                null,
+        };
+
+        deep = new StringBuilder("1");
+        for (which = 1; (which < 100000); ++which) {
+            deep.append(" + ").append(which);
+        }
+        toTest[toTest.length - 1] = deep.toString();
+
+        errors = 0;
+        for (String test : toTest) {
+            int         expected;
+            byte        encoded[];
+            Expression  expression;
+            Expression  decoded;
+
+            System.out.println("Trying to encode:\n" + "  \"" +
+                               ((test.length() > 60) ?
+                                    test.substring(0, 60) + "..." :
+                                    test) + "\"");
+            try {
+                expression = new Expression(test);
+                encoded = encode(expression);
+                System.out.println(test.length() + " characters in " +
+                                   encoded.length + " bytes");
+                decoded = decode(ByteBuffer.wrap(encoded));
+                if ((test.equals("" + decoded) == false) ||
+                    (Arrays.equals(expression.getVariables(),
+                                   decoded.getVariables()) == false)) {
+                    System.out.println("*** ERROR *** decodes to " +
+                                       decoded);
+                    ++errors;
+                }
+
+                try {
+                    expected = expression.getValue(variables);
+                } catch (ArithmeticException exception) {
+                    try {
+                        evaluate(ByteBuffer.wrap(encoded), variables);
+                        System.out.println("*** ERROR *** evaluate()" +
+                                           " should throw " + exception);
+                        ++errors;
+                    } catch (ArithmeticException expectedException) {
+                        System.out.println("Throws " + expectedException);
+                    }
+                    continue;
+                }
+                if (evaluate(ByteBuffer.wrap(encoded), variables) !=
+                                                            expected) {
+                    System.out.println("*** ERROR *** evaluate()" +
+                                       " returns " +
+                                       evaluate(ByteBuffer.wrap(encoded),
+                                                variables) +
+                                       " should be " + expected);
+                    ++errors;
+                }
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** " + exception);
+                ++errors;
+            }
+        }
+
+        /*
+         *  Expressions stored one after another in a file can be
+         *  evaluated from a mapping of it.
+         */
+        try {
+            Path            file;
+            ByteBuffer      buffer;
+            int             expected;
+
+            file = Files.createTempFile("expressions", ".bin");
+            try {
+                try (FileChannel channel = FileChannel.open(file,
+                                            StandardOpenOption.WRITE)) {
+                    for (which = 0; (which < 100); ++which) {
+                        channel.write(ByteBuffer.wrap(encode(
+                                new Expression(which + " * x - y"))));
+                    }
+                }
+                try (FileChannel channel = FileChannel.open(file)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                         channel.size());
+                }
+                for (which = 0; (which < 100); ++which) {
+                    expected = which * variables[0] - variables[1];
+                    if (evaluate(buffer, variables) != expected) {
+                        System.out.println("*** ERROR *** expression " +
+                                           which + " in file wrong");
+                        ++errors;
+                    }
+                }
+                if (buffer.hasRemaining() == true) {
+                    System.out.println("*** ERROR *** bytes left over");
+                    ++errors;
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException | ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        /*
+         *  Damaged input is refused.
+         */
+        try {
+            byte    encoded[];
+
+            encoded = encode(new Expression("1 + 2"));
+            encoded[2] = VERSION + 1;
+            try {
+                decode(ByteBuffer.wrap(encoded));
+                System.out.println("*** ERROR *** wrong version read");
+                ++errors;
+            } catch (ParseException exception) {
+                System.out.println(exception);
+            }
+            encoded = encode(new Expression("1 + 2"));
+            try {
+                evaluate(ByteBuffer.wrap(encoded, 0, encoded.length - 1),
+                         null);
+                System.out.println("*** ERROR *** truncated input read");
+                ++errors;
+            } catch (ParseException exception) {
+                System.out.println(exception);
+            }
+
+            /*
+             *  A header claiming a deeper stack than the program could
+             *  fill is refused before anything is sized by it.
+             */
+            encoded = new byte[] {
+                'E', 'X', VERSION, 0, (byte)0xff, (byte)0xff, (byte)0xff,
+                0x7f, 2, Opcode.LITERAL, 2
+                                 };
+            try {
+                decode(ByteBuffer.wrap(encoded));
+                System.out.println("*** ERROR *** huge stack decoded");
+                ++errors;
+            } catch (ParseException exception) {
+                System.out.println(exception);
+            }
+            try {
+                evaluate(ByteBuffer.wrap(encoded), null);
+                System.out.println("*** ERROR *** huge stack evaluated");
+                ++errors;
+            } catch (ParseException exception) {
+                System.out.println(exception);
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package expressions;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionFile} is the class that evaluates a file of
+ *  expressions, one to a line, and writes a file of results, one to
+ *  a line in the same order.  It is meant for files far too big to
+ *  read into memory.  The input is memory mapped and split into
+ *  chunks at line boundaries.  Each chunk is given to a worker
+ *  thread, which hands the {@link Lexer} each line straight from the
+ *  mapping as a {@code CharSequence}, without decoding it into a
+ *  {@code String}.  Only a line holding bytes that aren't ASCII is
+ *  decoded as UTF-8.  The chunks' results are written to a mapped
+ *  output file in order as they finish.
+ *  <p>
+ *  A line that evaluates is written as its value.  A line that
+ *  doesn't parse is written as {@code error } followed by the offset
+ *  within the line that the {@code ParseException} gives, a colon and
+ *  its message.  A line that parses but can't be evaluated, because
+ *  it divides by zero or has variables, is written as
+ *  {@code error: } and the message.  A carriage return before the
+ *  newline is ignored, and so is a missing newline at the end of the
+ *  file.
+ *  <p>
+ *  Run it from the command line as
+ *  <pre>
+ *      java expressions.ExpressionFile input output [threads]
+ *  </pre>
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionFile
+{
+    /**
+     *  The number of bytes of input given to a worker at a time,
+     *  unless another is asked for.  A chunk grows to the end of the
+     *  line it stops in.
+     */
+    public static final int     DEFAULT_CHUNK_SIZE  = 64 * 1024 * 1024;
+
+    private static final int    INITIAL_SIZE        = 1024;
+    private static final byte   NEWLINE             = '\n';
+    private static final byte   RETURN              = '\r';
+    private static final byte   ERROR[]             =
+                                        { 'e', 'r', 'r', 'o', 'r' };
+
+    private final Parser        parser;
+    private final int           threads;
+    private final int           chunkSize;
+
+    /**
+     *  Construct an {@code ExpressionFile} that parses with a default
+     *  {@link Parser} and uses a thread per processor.
+     */
+    public      ExpressionFile()
+    {
+        this(new Parser(), Runtime.getRuntime().availableProcessors(),
+             DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     *  Construct an {@code ExpressionFile}.
+     *  @param parser The parser for each line, which is shared by all
+     *  the workers.
+     *  @param threads How many chunks to work on at once.
+     *  @param chunkSize How many bytes of input to give a worker at a
+     *  time.
+     *  @throws IllegalArgumentException When threads or chunkSize
+     *  isn't positive.
+     */
+    public      ExpressionFile(Parser parser, int threads, int chunkSize)
+    {
+        if ((threads <= 0) || (chunkSize <= 0)) {
+            throw(new IllegalArgumentException("Bad threads " + threads +
+                                               " or chunk size " +
+                                               chunkSize));
+        }
+
+        this.parser = parser;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     *  Evaluate every line of a file and write the results to
+     *  another.
+     *  @param input The file of expressions.
+     *  @param output The file for the results, which is replaced if
+     *  it exists.
+     *  @return The number of lines evaluated.
+     *  @throws IOException When either file can't be used.
+     */
+    public long evaluate(Path input, Path output)
+            throws IOException
+    {
+        long                        lines;
+        long                        written;
+        long                        start;
+        long                        size;
+        ExecutorService             executor;
+        ArrayDeque<Future<Chunk>>   pending;
+
+        executor = Executors.newFixedThreadPool(threads);
+        pending = new ArrayDeque<>();
+        lines = 0;
+        written = 0;
+        try (FileChannel in = FileChannel.open(input,
+                                               StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE,
+                                        StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            size = in.size();
+            start = 0;
+            while ((start < size) || (pending.isEmpty() == false)) {
+                Chunk   chunk;
+
+                /*
+                 *  Keep a couple of chunks per thread on the go so
+                 *  the workers never wait, but no more, so the
+                 *  results of a huge file aren't all held at once.
+                 */
+                while ((start < size) && (pending.size() < threads * 2)) {
+                    long        end;
+                    ByteBuffer  mapped;
+
+                    end = lineEnd(in, Math.min(size,
+                                               start + chunkSize), size);
+                    if (end - start > java.lang.Integer.MAX_VALUE) {
+                        throw(new IOException("Line too long near " +
+                                              start));
+                    }
+                    mapped = in.map(FileChannel.MapMode.READ_ONLY, start,
+                                    end - start);
+                    pending.add(executor.submit(() -> evaluate(mapped)));
+                    start = end;
+                }
+
+                chunk = result(pending.remove());
+                if (chunk.length > 0) {
+                    out.map(FileChannel.MapMode.READ_WRITE, written,
+                            chunk.length).put(chunk.bytes, 0, chunk.length);
+                }
+                written += chunk.length;
+                lines += chunk.lines;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return(lines);
+    }
+
+    /**
+     *  Find where the line holding a position ends.
+     *  @param channel The file to search.
+     *  @param position Where to start looking.
+     *  @param size How long the file is.
+     *  @return The position after the next newline, or the end of the
+     *  file when there isn't one.
+     *  @throws IOException When the file can't be read.
+     */
+    private static long lineEnd(FileChannel channel, long position,
+                                long size)
+            throws IOException
+    {
+        ByteBuffer  buffer;
+
+        if (position >= size) {
+            return(size);
+        }
+
+        /*
+         *  The chunk may stop right after a newline already.
+         */
+        buffer = ByteBuffer.allocate(INITIAL_SIZE);
+        --position;
+        while (position < size) {
+            int     read;
+            int     which;
+
+            buffer.clear();
+            read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (which = 0; (which < read); ++which) {
+                if (buffer.get(which) == NEWLINE) {
+                    return(position + which + 1);
+                }
+            }
+            position += read;
+        }
+
+        return(size);
+    }
+
+    /**
+     *  Wait for a chunk to be evaluated.
+     *  @param future The chunk being evaluated.
+     *  @return The results of the chunk.
+     *  @throws IOException When the wait is interrupted.
+     */
+    private static Chunk    result(Future<Chunk> future)
+            throws IOException
+    {
+        try {
+            return(future.get());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw(new InterruptedIOException("Interrupted"));
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw((RuntimeException)exception.getCause());
+            }
+            throw(new IOException(exception.getCause()));
+        }
+    }
+
+    /**
+     *  Evaluate every line of a chunk of the input.
+     *  @param input The chunk, which holds whole lines.
+     *  @return The results, a line for each line of the chunk.
+     */
+    private Chunk   evaluate(ByteBuffer input)
+    {
+        int         position;
+        int         limit;
+        Chunk       chunk;
+        ByteLine    line;
+
+        chunk = new Chunk();
+        line = new ByteLine(input);
+        limit = input.limit();
+        position = 0;
+        while (position < limit) {
+            int         end;
+            int         next;
+            boolean     ascii;
+
+            /*
+             *  Find the end of the line, noting on the way whether
+             *  it's all ASCII, which it nearly always is.
+             */
+            ascii = true;
+            end = position;
+            while ((end < limit) && (input.get(end) != NEWLINE)) {
+                if (input.get(end) < 0) {
+                    ascii = false;
+                }
+                ++end;
+            }
+            next = end + 1;
+            if ((end > position) && (input.get(end - 1) == RETURN)) {
+                --end;
+            }
+
+            line.reset(position, end);
+            if (ascii == true) {
+                evaluate(line, chunk);
+            } else {
+                evaluate(StandardCharsets.UTF_8.decode(
+                        input.duplicate().position(position).limit(end)),
+                         chunk);
+            }
+            chunk.put(NEWLINE);
+            ++chunk.lines;
+            position = next;
+        }
+
+        return(chunk);
+    }
+
+    /**
+     *  Evaluate one line and add its result to a chunk's results.
+     *  @param line The expression.
+     *  @param chunk Where the result goes.
+     */
+    private void    evaluate(CharSequence line, Chunk chunk)
+    {
+        try {
+            chunk.put(parser.parse(line).getValue());
+        } catch (ParseException exception) {
+            chunk.put(ERROR);
+            chunk.put((byte)' ');
+            chunk.put(exception.getErrorOffset());
+            chunk.put((byte)':');
+            chunk.put((byte)' ');
+            chunk.put(exception.getMessage());
+        } catch (ArithmeticException | IllegalStateException exception) {
+            chunk.put(ERROR);
+            chunk.put((byte)':');
+            chunk.put((byte)' ');
+            chunk.put(exception.getMessage());
+        }
+    }
+
+    /*
+     *  A line of ASCII in a buffer, seen as characters without
+     *  copying it.  It's moved from line to line rather than
+     *  allocated for each.
+     */
+    private static final class  ByteLine implements CharSequence
+    {
+        private final ByteBuffer    buffer;
+        private int                 start;
+        private int                 end;
+
+        ByteLine(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        void    reset(int start, int end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int  length()
+        {
+            return(end - start);
+        }
+
+        public char charAt(int index)
+        {
+            if ((index < 0) || (index >= end - start)) {
+                throw(new IndexOutOfBoundsException("" + index));
+            }
+
+            return((char)buffer.get(start + index));
+        }
+
+        public CharSequence subSequence(int from, int to)
+        {
+            if ((from < 0) || (from > to) || (to > end - start)) {
+                throw(new IndexOutOfBoundsException(from + ", " + to));
+            }
+
+            return(new String(bytes(start + from, start + to),
+                              StandardCharsets.US_ASCII));
+        }
+
+        public String   toString()
+        {
+            return(new String(bytes(start, end),
+                              StandardCharsets.US_ASCII));
+        }
+
+        private byte[]  bytes(int from, int to)
+        {
+            byte    bytes[];
+
+            bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            return(bytes);
+        }
+    }
+
+    /*
+     *  The results of a chunk, built up in a growing array.
+     */
+    private static final class  Chunk
+    {
+        byte        bytes[]     = new byte[INITIAL_SIZE];
+        int         length;
+        long        lines;
+
+        void    put(byte value)
+        {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = value;
+        }
+
+        void    put(byte values[])
+        {
+            for (byte value : values) {
+                put(value);
+            }
+        }
+
+        void    put(int value)
+        {
+            int     digits;
+            int     which;
+            long    remaining;
+
+            /*
+             *  Work in long so the most negative int can be made
+             *  positive.
+             */
+            remaining = value;
+            if (remaining < 0) {
+                put((byte)'-');
+                remaining = -remaining;
+            }
+            digits = 1;
+            while (remaining >= pow10(digits)) {
+                ++digits;
+            }
+            if (length + digits > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                                      Math.max(length * 2, length + digits));
+            }
+            for (which = digits - 1; (which >= 0); --which) {
+                bytes[length + which] = (byte)('0' + remaining % 10);
+                remaining /= 10;
+            }
+            length += digits;
+        }
+
+        void    put(String value)
+        {
+            put(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static long pow10(int power)
+        {
+            long    result;
+
+            result = 1;
+            while (power-- > 0) {
+                result *= 10;
+            }
+            return(result);
+        }
+    }
+
+    /**
+     *  Evaluate a file from the command line or, with no arguments,
+     *  unit test our {@code ExpressionFile}.
+     *  @param arg The input file, the output file and, optionally, the
+     *  number of threads.
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        /*
+         *  The items in this array are lines of input.  Each
+         *  corresponds to the line of output in the following array
+         *  at the same index.
+         */
+        String          toTest[]    = {
+                "2 + 5 - 1 * 5 / 2",
+                "1",
+                "  (1 + 2) * 3  ",
+                "-7 / 2",
+                "2147483647 + 1",
+                "",
+                "1 +",
+                "1 2",
+                "7 / (3 - 3)",
+                "x + 1",
+                "1 + 2\r",
+                "\u00e9 + 1",
+        };
+        String          expected[]  = {
+                "5",
+                "1",
+                "9",
+                null,
+                "-2147483648",
+                "error 0: Empty string to parse",
+                null,
+                null,
+                "error: / by zero",
+                null,
+                "3",
+                null,
+        };
+
+        if (arg.length > 0) {
+            if ((arg.length < 2) || (arg.length > 3)) {
+                System.out.println("Usage: java expressions.ExpressionFile" +
+                                   " input output [threads]");
+                System.exit(2);
+            }
+            try {
+                ExpressionFile  file;
+
+                file = (arg.length == 3) ?
+                       new ExpressionFile(new Parser(),
+                                          java.lang.Integer.parseInt(arg[2]),
+                                          DEFAULT_CHUNK_SIZE) :
+                       new ExpressionFile();
+                System.out.println(file.evaluate(Paths.get(arg[0]),
+                                                 Paths.get(arg[1])) +
+                                   " lines");
+            } catch (IOException | IllegalArgumentException exception) {
+                System.out.println(exception);
+                System.exit(1);
+            }
+            return;
+        }
+
+        errors = 0;
+        try {
+            Path            input;
+            Path            output;
+            StringBuilder   text;
+            List<String>    results;
+            long            lines;
+
+            input = Files.createTempFile("expressions", ".txt");
+            output = Files.createTempFile("expressions", ".out");
+            try {
+                /*
+                 *  The lines are repeated so tiny chunks split them
+                 *  every which way, and the last has no newline.
+                 */
+                text = new StringBuilder();
+                for (which = 0; (which < 100); ++which) {
+                    text.append(toTest[which % toTest.length]);
+                    if (which < 99) {
+                        text.append('\n');
+                    }
+                }
+                Files.write(input, text.toString().getBytes(
+                                                StandardCharsets.UTF_8));
+
+                for (int chunkSize : new int[] { 1, 7, 64, 1 << 20 }) {
+                    ExpressionFile  file;
+
+                    System.out.println("Trying chunks of " + chunkSize);
+                    file = new ExpressionFile(new Parser(), 3, chunkSize);
+                    lines = file.evaluate(input, output);
+                    if (lines != 100) {
+                        System.out.println("*** ERROR *** evaluate()" +
+                                           " returns " + lines +
+                                           " should be 100");
+                        ++errors;
+                    }
+                    results = Files.readAllLines(output,
+                                                 StandardCharsets.UTF_8);
+                    if (results.size() != 100) {
+                        System.out.println("*** ERROR *** " +
+                                           results.size() +
+                                           " lines written");
+                        ++errors;
+                        continue;
+                    }
+                    for (which = 0; (which < 100); ++which) {
+                        String  want;
+                        String  got;
+
+                        want = expected[which % expected.length];
+                        got = results.get(which);
+                        if (((want == null) &&
+                             (got.startsWith("error") == false)) ||
+                            ((want != null) &&
+                             (want.equals(got) == false))) {
+                            System.out.println("*** ERROR *** line " +
+                                               which + " is " + got +
+                                               " should be " + want);
+                            ++errors;
+                        }
+                    }
+                }
+
+                /*
+                 *  An empty file gives an empty file.
+                 */
+                Files.write(input, new byte[0]);
+                lines = new ExpressionFile().evaluate(input, output);
+                if ((lines != 0) || (Files.size(output) != 0)) {
+                    System.out.println("*** ERROR *** empty file gives " +
+                                       lines + " lines");
+                    ++errors;
+                }
+            } finally {
+                Files.delete(input);
+                Files.delete(output);
+            }
+        } catch (IOException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package expressions;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionInterner} is the class that hands out one shared
+ *  node for every distinct constant, variable, parenthesis and
+ *  operation asked for, so the trees built through it share their
+ *  common parts instead of each holding its own copy.  Give one to a
+ *  {@link Parser} with {@link Parser#setInterner(ExpressionInterner)}
+ *  and everything that parser builds is shared with everything else
+ *  it has built.
+ *  <p>
+ *  Since a node's operands are already shared, two operations are
+ *  the same when they have the same operator and the very same
+ *  operand objects, so finding a node never walks a tree.  Nodes are
+ *  only weakly held: once nothing else uses one it's collected and
+ *  forgotten.  Every method may be called from any thread.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionInterner
+{
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final HashMap<Entry, Entry>         entries;
+    private final ReferenceQueue<Expression>    collected;
+
+    /**
+     *  Construct an empty {@code ExpressionInterner}.
+     */
+    public      ExpressionInterner()
+    {
+        entries = new HashMap<>();
+        collected = new ReferenceQueue<>();
+    }
+
+    /**
+     *  Return the shared constant with the given value.  Values that
+     *  {@link Integer#valueOf(int)} keeps ready are shared already.
+     *  @param value The value of the constant.
+     *  @return An {@link Integer} with that value.
+     */
+    public synchronized Integer integer(int value)
+    {
+        Entry       probe;
+        Expression  node;
+
+        if (Integer.isCached(value) == true) {
+            return(Integer.valueOf(value));
+        }
+
+        probe = new Entry(Opcode.LITERAL, value, null, null, null);
+        node = find(probe);
+        if (node == null) {
+            node = add(probe, new Integer(value));
+        }
+
+        return((Integer)node);
+    }
+
+    /**
+     *  Return the shared variable with the given name and slot.
+     *  @param name The name of the variable.
+     *  @param slot Where the value of the variable is found.
+     *  @return A {@link Variable} with that name and slot.
+     */
+    public synchronized Variable    variable(String name, int slot)
+    {
+        Entry       probe;
+        Expression  node;
+
+        probe = new Entry(Opcode.VARIABLE, slot, name, null, null);
+        node = find(probe);
+        if (node == null) {
+            node = add(probe, new Variable(name, slot));
+        }
+
+        return((Variable)node);
+    }
+
+    /**
+     *  Return the shared parenthesis around the given operand.
+     *  @param expression The operand inside, which should itself
+     *  have come from this interner.
+     *  @return A {@link Parenthesis} around that operand.
+     */
+    public synchronized Parenthesis group(Expression expression)
+    {
+        Entry       probe;
+        Expression  node;
+
+        probe = new Entry(Opcode.GROUP, 0, null, expression, null);
+        node = find(probe);
+        if (node == null) {
+            node = add(probe, new Parenthesis(expression));
+        }
+
+        return((Parenthesis)node);
+    }
+
+    /**
+     *  Return the shared operation on the given operands.
+     *  @param operator The character for the operation.
+     *  @param left The left-hand operand, which should itself have
+     *  come from this interner.
+     *  @param right The right-hand operand, which should itself have
+     *  come from this interner.
+     *  @return The operation.
+     *  @throws IllegalArgumentException When the operator is unknown.
+     */
+    public synchronized Expression  combine(char operator, Expression left,
+                                            Expression right)
+    {
+        Entry       probe;
+        Expression  node;
+
+        probe = new Entry(Opcode.opcode(operator), 0, null, left, right);
+        node = find(probe);
+        if (node == null) {
+            node = add(probe, Parser.combine(operator, left, right));
+        }
+
+        return(node);
+    }
+
+    /**
+     *  Return a copy of the given tree made of shared nodes.  Parts
+     *  of the tree that are already shared are used as they are.
+     *  The tree is walked with an explicit stack, so its depth
+     *  doesn't matter, and a copy deeper than
+     *  {@link IterativeExpression#DEPTH_THRESHOLD} comes back wrapped
+     *  in an {@link IterativeExpression}, as the {@link Parser} would
+     *  return it.
+     *  @param expression The tree to share.
+     *  @return An equal tree built from shared nodes.
+     */
+    public Expression   intern(Expression expression)
+    {
+        int             top;
+        int             resultTop;
+        Expression      nodes[];
+        int             visits[];
+        Expression      results[];
+        int             heights[];
+
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new Expression[INITIAL_SIZE];
+        heights = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+            int         operands;
+
+            node = nodes[top - 1];
+            if (resultTop == results.length) {
+                results = Arrays.copyOf(results, resultTop * 2);
+                heights = Arrays.copyOf(heights, resultTop * 2);
+            }
+            if (node == null) {
+                heights[resultTop] = 1;
+                results[resultTop++] = null;
+                --top;
+                continue;
+            }
+
+            opcode = node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                    heights[resultTop] = 1;
+                    results[resultTop++] = integer(node.getValue());
+                    --top;
+                    continue;
+                case Opcode.VARIABLE:
+                    heights[resultTop] = 1;
+                    results[resultTop++] =
+                                variable(((Variable)node).getName(),
+                                         ((Variable)node).getSlot());
+                    --top;
+                    continue;
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            operands = (opcode == Opcode.GROUP) ? 1 : 2;
+            if (visits[top - 1] == operands) {
+                resultTop -= operands;
+                if (opcode == Opcode.GROUP) {
+                    results[resultTop] = group(results[resultTop]);
+                } else {
+                    results[resultTop] =
+                                combine(Opcode.operator(opcode),
+                                        results[resultTop],
+                                        results[resultTop + 1]);
+                    results[resultTop + 1] = null;
+                    heights[resultTop] = Math.max(heights[resultTop],
+                                                  heights[resultTop + 1]);
+                }
+                ++heights[resultTop];
+                ++resultTop;
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(IterativeExpression.guard(results[0], heights[0]));
+    }
+
+    /**
+     *  Return how many shared nodes are still in use.
+     *  @return The number of nodes not yet collected.
+     */
+    public synchronized int size()
+    {
+        purge();
+        return(entries.size());
+    }
+
+    /*
+     *  Helper method to find the live node for a probe, forgetting
+     *  any that have been collected first.
+     */
+    private Expression  find(Entry probe)
+    {
+        Entry   entry;
+
+        purge();
+        entry = entries.get(probe);
+
+        return((entry == null) ? null : entry.get());
+    }
+
+    /*
+     *  Helper method to remember a new node under the probe's key.
+     */
+    private Expression  add(Entry probe, Expression node)
+    {
+        Entry   entry;
+
+        entry = new Entry(probe.opcode, probe.number, probe.name,
+                          probe.left, probe.right, node, collected);
+        entries.put(entry, entry);
+
+        return(node);
+    }
+
+    /*
+     *  Helper method to drop the entries whose nodes were collected.
+     *  An entry may already have been replaced by a live one with
+     *  the same key, which has to stay.
+     */
+    private void    purge()
+    {
+        Reference<? extends Expression> reference;
+
+        while ((reference = collected.poll()) != null) {
+            if (entries.get(reference) == reference) {
+                entries.remove(reference);
+            }
+        }
+    }
+
+    /*
+     *  {@code Entry} is the key of one shared node and a weak
+     *  reference to it.  The operands are held strongly, which keeps
+     *  them shared for as long as the node using them is.
+     */
+    private static final class  Entry extends WeakReference<Expression>
+    {
+        final int           opcode;
+        final int           number;
+        final String        name;
+        final Expression    left;
+        final Expression    right;
+        final int           hash;
+
+        Entry(int opcode, int number, String name, Expression left,
+              Expression right)
+        {
+            this(opcode, number, name, left, right, null, null);
+        }
+
+        Entry(int opcode, int number, String name, Expression left,
+              Expression right, Expression node,
+              ReferenceQueue<Expression> queue)
+        {
+            super(node, queue);
+            this.opcode = opcode;
+            this.number = number;
+            this.name = name;
+            this.left = left;
+            this.right = right;
+            this.hash = ((((opcode * 31) + number) * 31 +
+                          Objects.hashCode(name)) * 31 +
+                         System.identityHashCode(left)) * 31 +
+                        System.identityHashCode(right);
+        }
+
+        public boolean  equals(Object other)
+        {
+            Entry   entry;
+
+            if ((other instanceof Entry) == false) {
+                return(false);
+            }
+            entry = (Entry)other;
+
+            return((opcode == entry.opcode) && (number == entry.number) &&
+                   (Objects.equals(name, entry.name) == true) &&
+                   (left == entry.left) && (right == entry.right));
+        }
+
+        public int      hashCode()
+        {
+            return(hash);
+        }
+    }
+
+    /**
+     *  Unit test our {@code ExpressionInterner}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int                 errors;
+        int                 which;
+        int                 terms;
+        StringBuilder       deep;
+        ExpressionInterner  interner;
+        Parser              parser;
+        Parser              plain;
+        Expression          first;
+        Expression          second;
+        Expression          copy;
+
+        errors = 0;
+        interner = new ExpressionInterner();
+        parser = new Parser();
+        parser.setInterner(interner);
+        try {
+            /*
+             *  The same subtree in two trees is one object.
+             */
+            first = parser.parse("(a * b) + 1");
+            second = parser.parse("2 - (a * b)");
+            if (first.getOperand(0) != second.getOperand(1)) {
+                System.out.println("*** ERROR *** a * b isn't shared");
+                ++errors;
+            }
+            if (parser.parse("(a * b) + 1") != first) {
+                System.out.println("*** ERROR *** same text gives a" +
+                                   " different tree");
+                ++errors;
+            }
+            if ((first.getValue(new int[] { 3, 4 }) != 13) ||
+                (("" + first).equals("(a * b) + 1") == false)) {
+                System.out.println("*** ERROR *** shared tree is " +
+                                   first + " with value " +
+                                   first.getValue(new int[] { 3, 4 }));
+                ++errors;
+            }
+
+            /*
+             *  A tree built without the interner is equal to its
+             *  shared copy, and interning it again finds the copy.
+             */
+            first = new Expression("1 + 2 * 3 - (4 / 5)");
+            copy = interner.intern(first);
+            if ((first.equals(copy) == false) ||
+                (first.hashCode() != copy.hashCode()) ||
+                (interner.intern(new Expression("1 + 2 * 3 - (4 / 5)")) !=
+                                                                copy)) {
+                System.out.println("*** ERROR *** interned copy of " +
+                                   first + " is " + copy);
+                ++errors;
+            }
+            if (first.equals(new Expression("1 + 2 * 3 - 4 / 5")) ==
+                                                                true) {
+                System.out.println("*** ERROR *** parentheses ignored" +
+                                   " by equals()");
+                ++errors;
+            }
+
+            /*
+             *  A shared copy too deep to walk recursively is taken
+             *  care of just as the parsed tree was.  An interner of
+             *  its own lets go of it a level at a time, so it's kept
+             *  out of the one checked below.
+             */
+            terms = 100000;
+            deep = new StringBuilder("x");
+            for (which = 1; (which < terms); ++which) {
+                deep.append(" - 1");
+            }
+            plain = new Parser();
+            plain.setMaxDepth(terms);
+            first = plain.parse(deep.toString());
+            copy = new ExpressionInterner().intern(first);
+            try {
+                if ((copy.getValue(new int[] { 3 }) != 3 - (terms - 1)) ||
+                    (first.equals(copy) == false)) {
+                    System.out.println("*** ERROR *** deep interned copy" +
+                                       " has value " +
+                                       copy.getValue(new int[] { 3 }));
+                    ++errors;
+                }
+            } catch (StackOverflowError error) {
+                System.out.println("*** ERROR *** " + error);
+                ++errors;
+            }
+
+            /*
+             *  Shared nodes nobody uses any more are forgotten.
+             */
+            first = null;
+            second = null;
+            copy = null;
+            for (which = 0; (which < 1000); ++which) {
+                parser.parse(which + " * " + which);
+            }
+            for (which = 0; (which < 20) && (interner.size() > 0);
+                 ++which) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            if (interner.size() > 0) {
+                System.out.println("*** ERROR *** " + interner.size() +
+                                   " nodes still held");
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        } catch (InterruptedException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
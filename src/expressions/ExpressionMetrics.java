@@ -0,0 +1,601 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.lang.management.*;
+import javax.management.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionMetrics} is the class that counts what the library
+ *  does and how long it takes: breaking text into tokens with
+ *  {@link Parse}, building trees with a {@link Parser} and evaluating
+ *  an {@link Expression}.  It keeps a {@link Histogram} of the time
+ *  for each, of the number of tokens, depth and size of each tree
+ *  built, and a count of each kind of {@code ParseException}.  It is
+ *  off unless the JVM is started with
+ *  <pre>
+ *      -Dexpressions.metrics=true
+ *  </pre>
+ *  Every place that counts tests {@link #ENABLED} first, and since it
+ *  is a {@code static final} the JIT drops the counting altogether
+ *  when it's off, leaving nothing to pay.  When it's on the counts
+ *  are published through JMX as {@code expressions:type=ExpressionMetrics}
+ *  and handed to each {@link MetricsListener} added.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public final class  ExpressionMetrics implements ExpressionMetricsMBean
+{
+    /**
+     *  Whether anything is counted, from the system property
+     *  {@code expressions.metrics}.
+     */
+    public static final boolean ENABLED         =
+                                    Boolean.getBoolean("expressions.metrics");
+
+    /**
+     *  The name the counts are published under through JMX.
+     */
+    public static final String  OBJECT_NAME     =
+                                    "expressions:type=ExpressionMetrics";
+
+    /**
+     *  The most kinds of {@code ParseException} counted apart.  Any
+     *  more are counted together as {@link #OTHER}.
+     */
+    public static final int     MAX_FAILURE_TYPES   = 64;
+
+    /**
+     *  The kind every {@code ParseException} past the first
+     *  {@link #MAX_FAILURE_TYPES} kinds is counted as.
+     */
+    public static final String  OTHER           = "other";
+
+    /*
+     *  Everything counted lives here, so none of it is allocated
+     *  until something is counted.  When metrics are off that's
+     *  never, even though the hooks load this class to read ENABLED.
+     */
+    private static final class  State
+    {
+        static final Histogram  tokenizeNanos   = new Histogram();
+        static final Histogram  parseNanos      = new Histogram();
+        static final Histogram  evaluateNanos   = new Histogram();
+        static final Histogram  tokens          = new Histogram();
+        static final Histogram  depths          = new Histogram();
+        static final Histogram  sizes           = new Histogram();
+        static final LongAdder  failures        = new LongAdder();
+        static final ConcurrentHashMap<String, LongAdder>   types   =
+                                                new ConcurrentHashMap<>();
+    }
+
+    private static final CopyOnWriteArrayList<MetricsListener>  listeners =
+                                            new CopyOnWriteArrayList<>();
+
+    static {
+        if (ENABLED == true) {
+            try {
+                register();
+            } catch (JMException exception) {
+                /*
+                 *  Most likely another copy of the library got there
+                 *  first.  Counting goes on regardless.
+                 */
+            }
+        }
+    }
+
+    /*
+     *  Only JMX gets an instance, to read the counts through.
+     */
+    private ExpressionMetrics()
+    {
+    }
+
+    /**
+     *  Publish the counts through JMX on the platform MBean server.
+     *  This is done when the class is loaded if {@link #ENABLED}.
+     *  @return The name they're published under.
+     *  @throws JMException When they can't be published, for instance
+     *  because they already are.
+     */
+    public static ObjectName    register()
+            throws JMException
+    {
+        ObjectName      name;
+
+        name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().
+                registerMBean(new ExpressionMetrics(), name);
+        return(name);
+    }
+
+    /**
+     *  Stop publishing the counts through JMX.
+     *  @throws JMException When they aren't published.
+     */
+    public static void  unregister()
+            throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().
+                unregisterMBean(new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     *  Hand everything counted from now on to a listener as well.
+     *  @param listener The listener.
+     */
+    public static void  addListener(MetricsListener listener)
+    {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     *  Stop handing things to a listener.
+     *  @param listener The listener.
+     */
+    public static void  removeListener(MetricsListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     *  Count some text broken into tokens.
+     *  @param length The length of the text.
+     *  @param tokens The number of tokens.
+     *  @param nanos How long it took.
+     */
+    public static void  tokenized(int length, int tokens, long nanos)
+    {
+        State.tokenizeNanos.record(nanos);
+        for (MetricsListener listener : listeners) {
+            listener.tokenized(length, tokens, nanos);
+        }
+    }
+
+    /**
+     *  Count a tree built.
+     *  @param length The length of the text.
+     *  @param tokens The number of tokens.
+     *  @param depth How many nodes deep the tree is.
+     *  @param size How many nodes the tree has.
+     *  @param nanos How long it took.
+     */
+    public static void  parsed(int length, int tokens, int depth,
+                               int size, long nanos)
+    {
+        State.parseNanos.record(nanos);
+        State.tokens.record(tokens);
+        State.depths.record(depth);
+        State.sizes.record(size);
+        for (MetricsListener listener : listeners) {
+            listener.parsed(length, tokens, depth, size, nanos);
+        }
+    }
+
+    /**
+     *  Count some text that didn't parse, by the kind of exception.
+     *  @param length The length of the text.
+     *  @param exception Why it didn't parse.
+     *  @param nanos How long it took to find out.
+     */
+    public static void  parseFailed(int length, ParseException exception,
+                                    long nanos)
+    {
+        String          type;
+        LongAdder       count;
+
+        State.failures.increment();
+        type = type(exception);
+        count = State.types.get(type);
+        if (count == null) {
+            if (State.types.size() >= MAX_FAILURE_TYPES) {
+                type = OTHER;
+            }
+            count = State.types.computeIfAbsent(type, key ->
+                                                    new LongAdder());
+        }
+        count.increment();
+        for (MetricsListener listener : listeners) {
+            listener.parseFailed(length, exception, nanos);
+        }
+    }
+
+    /**
+     *  Count an expression evaluated.
+     *  @param nanos How long it took.
+     */
+    public static void  evaluated(long nanos)
+    {
+        State.evaluateNanos.record(nanos);
+        for (MetricsListener listener : listeners) {
+            listener.evaluated(nanos);
+        }
+    }
+
+    /**
+     *  Return the times to break text into tokens.
+     *  @return The histogram of nanoseconds.
+     */
+    public static Histogram getTokenizeNanos()
+    {
+        return(State.tokenizeNanos);
+    }
+
+    /**
+     *  Return the times to build a tree.
+     *  @return The histogram of nanoseconds.
+     */
+    public static Histogram getParseNanos()
+    {
+        return(State.parseNanos);
+    }
+
+    /**
+     *  Return the times to evaluate an expression.
+     *  @return The histogram of nanoseconds.
+     */
+    public static Histogram getEvaluateNanos()
+    {
+        return(State.evaluateNanos);
+    }
+
+    /**
+     *  Return the number of tokens in each tree built.
+     *  @return The histogram of token counts.
+     */
+    public static Histogram getTokens()
+    {
+        return(State.tokens);
+    }
+
+    /**
+     *  Return the depth of each tree built.
+     *  @return The histogram of depths.
+     */
+    public static Histogram getDepths()
+    {
+        return(State.depths);
+    }
+
+    /**
+     *  Return the number of nodes in each tree built.
+     *  @return The histogram of sizes.
+     */
+    public static Histogram getSizes()
+    {
+        return(State.sizes);
+    }
+
+    /**
+     *  Return how many times text didn't parse for each kind of
+     *  {@code ParseException}.
+     *  @return The counts by message, with each number in the message
+     *  replaced by {@code #}, in order of message.
+     */
+    public static SortedMap<String, Long>   getFailures()
+    {
+        TreeMap<String, Long>   failures;
+
+        failures = new TreeMap<>();
+        State.types.forEach((type, count) -> failures.put(type,
+                                                          count.sum()));
+        return(failures);
+    }
+
+    /**
+     *  Forget everything counted so far.  Listeners stay.
+     */
+    public static void  resetAll()
+    {
+        State.tokenizeNanos.reset();
+        State.parseNanos.reset();
+        State.evaluateNanos.reset();
+        State.tokens.reset();
+        State.depths.reset();
+        State.sizes.reset();
+        State.failures.reset();
+        State.types.clear();
+    }
+
+    /*
+     *  Helper method to find the kind of a ParseException.  Its
+     *  message less any positions or limits in it, so the same
+     *  mistake anywhere in the text counts as one kind.
+     */
+    private static String   type(ParseException exception)
+    {
+        String          message;
+
+        message = exception.getMessage();
+        if (message == null) {
+            return(OTHER);
+        }
+
+        return(message.replaceAll("[0-9]+", "#"));
+    }
+
+    public long getTokenizeCount()
+    {
+        return(State.tokenizeNanos.getCount());
+    }
+
+    public long getTokenizeP50Nanos()
+    {
+        return(State.tokenizeNanos.getValueAtPercentile(50));
+    }
+
+    public long getTokenizeP99Nanos()
+    {
+        return(State.tokenizeNanos.getValueAtPercentile(99));
+    }
+
+    public long getTokenizeMaxNanos()
+    {
+        return(State.tokenizeNanos.getMax());
+    }
+
+    public long getParseCount()
+    {
+        return(State.parseNanos.getCount());
+    }
+
+    public long getParseP50Nanos()
+    {
+        return(State.parseNanos.getValueAtPercentile(50));
+    }
+
+    public long getParseP99Nanos()
+    {
+        return(State.parseNanos.getValueAtPercentile(99));
+    }
+
+    public long getParseMaxNanos()
+    {
+        return(State.parseNanos.getMax());
+    }
+
+    public long getParseFailureCount()
+    {
+        return(State.failures.sum());
+    }
+
+    public String[] getParseFailures()
+    {
+        ArrayList<String>   failures;
+
+        failures = new ArrayList<>();
+        getFailures().forEach((type, count) -> failures.add(type + "=" +
+                                                            count));
+        return(failures.toArray(new String[0]));
+    }
+
+    public long getEvaluateCount()
+    {
+        return(State.evaluateNanos.getCount());
+    }
+
+    public long getEvaluateP50Nanos()
+    {
+        return(State.evaluateNanos.getValueAtPercentile(50));
+    }
+
+    public long getEvaluateP99Nanos()
+    {
+        return(State.evaluateNanos.getValueAtPercentile(99));
+    }
+
+    public long getEvaluateMaxNanos()
+    {
+        return(State.evaluateNanos.getMax());
+    }
+
+    public double   getMeanTokens()
+    {
+        return(State.tokens.getMean());
+    }
+
+    public long getMaxTokens()
+    {
+        return(State.tokens.getMax());
+    }
+
+    public double   getMeanDepth()
+    {
+        return(State.depths.getMean());
+    }
+
+    public long getMaxDepth()
+    {
+        return(State.depths.getMax());
+    }
+
+    public double   getMeanSize()
+    {
+        return(State.sizes.getMean());
+    }
+
+    public long getMaxSize()
+    {
+        return(State.sizes.getMax());
+    }
+
+    public void reset()
+    {
+        resetAll();
+    }
+
+    /**
+     *  Unit test our {@code ExpressionMetrics}.  Run it both with and
+     *  without {@code -Dexpressions.metrics=true}, since the library
+     *  only counts anything with it.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int                 errors;
+        int                 which;
+        int                 heard[];
+        MetricsListener     listener;
+        SortedMap<String, Long>     failures;
+
+        errors = 0;
+        System.out.println("Metrics " + ((ENABLED == true) ? "on" : "off"));
+
+        /*
+         *  Counting by hand works whether or not the library counts.
+         */
+        resetAll();
+        heard = new int[4];
+        listener = new MetricsListener() {
+            public void tokenized(int length, int tokens, long nanos)
+            {
+                ++heard[0];
+            }
+
+            public void parsed(int length, int tokens, int depth,
+                               int size, long nanos)
+            {
+                ++heard[1];
+            }
+
+            public void parseFailed(int length, ParseException exception,
+                                    long nanos)
+            {
+                ++heard[2];
+            }
+
+            public void evaluated(long nanos)
+            {
+                ++heard[3];
+            }
+        };
+        addListener(listener);
+        tokenized(5, 3, 100);
+        parsed(5, 3, 2, 3, 200);
+        parsed(9, 5, 3, 5, 400);
+        parseFailed(3, new ParseException("Missing operator at" +
+                                          " position 2", 2), 50);
+        parseFailed(30, new ParseException("Missing operator at" +
+                                           " position 27", 27), 50);
+        parseFailed(1, new ParseException("No tokens", 0), 10);
+        evaluated(70);
+        removeListener(listener);
+        evaluated(70);
+
+        if ((getTokenizeNanos().getCount() != 1) ||
+            (getParseNanos().getCount() != 2) ||
+            (getEvaluateNanos().getCount() != 2) ||
+            (getParseNanos().getMax() != 400) ||
+            (getTokens().getMax() != 5) ||
+            (getDepths().getMean() != 2.5) ||
+            (getSizes().getMax() != 5)) {
+            System.out.println("*** ERROR *** counts by hand are " +
+                               getTokenizeNanos().getCount() + ", " +
+                               getParseNanos() + ", " +
+                               getEvaluateNanos().getCount());
+            ++errors;
+        }
+        failures = getFailures();
+        System.out.println("Failures: " + failures);
+        if ((failures.size() != 2) ||
+            (failures.get("Missing operator at position #") != 2) ||
+            (failures.get("No tokens") != 1) ||
+            (new ExpressionMetrics().getParseFailureCount() != 3)) {
+            System.out.println("*** ERROR *** failures counted wrong");
+            ++errors;
+        }
+        if (Arrays.equals(heard, new int[] { 1, 2, 3, 1 }) == false) {
+            System.out.println("*** ERROR *** listener heard " +
+                               Arrays.toString(heard));
+            ++errors;
+        }
+
+        /*
+         *  There's a limit to how many kinds of failure are kept
+         *  apart.
+         */
+        for (which = 0; (which < MAX_FAILURE_TYPES * 2); ++which) {
+            parseFailed(1, new ParseException("Don't understand" +
+                                              " operation '" +
+                                              (char)('A' + which) + "'",
+                                              0), 10);
+        }
+        failures = getFailures();
+        if ((failures.size() > MAX_FAILURE_TYPES + 1) ||
+            (failures.containsKey(OTHER) == false)) {
+            System.out.println("*** ERROR *** " + failures.size() +
+                               " kinds of failure kept");
+            ++errors;
+        }
+
+        /*
+         *  The library itself counts only when metrics are on.
+         */
+        resetAll();
+        try {
+            Expression  expression;
+
+            Parse.parse("1 + 2");
+            expression = new Expression("1 + (2 * 3)");
+            expression.getValue();
+            expression.getValue(new int[0]);
+            new Expression("1 + + 2");
+        } catch (ParseException exception) {
+            if (exception.getMessage().startsWith("Missing") == false) {
+                System.out.println("*** ERROR *** " + exception);
+                ++errors;
+            }
+        }
+        if (ENABLED == true) {
+            if ((getTokenizeNanos().getCount() != 1) ||
+                (getParseNanos().getCount() != 1) ||
+                (getEvaluateNanos().getCount() != 2) ||
+                (getTokens().getMax() != 7) ||
+                (getDepths().getMax() != 4) ||
+                (getSizes().getMax() != 6) ||
+                (getFailures().size() != 1)) {
+                System.out.println("*** ERROR *** library counted " +
+                                   getTokenizeNanos().getCount() + ", " +
+                                   getParseNanos().getCount() + ", " +
+                                   getEvaluateNanos().getCount() + ", " +
+                                   getTokens().getMax() + ", " +
+                                   getDepths().getMax() + ", " +
+                                   getSizes().getMax() + ", " +
+                                   getFailures());
+                ++errors;
+            }
+
+            try {
+                Object      count;
+
+                count = ManagementFactory.getPlatformMBeanServer().
+                            getAttribute(new ObjectName(OBJECT_NAME),
+                                         "ParseCount");
+                System.out.println("ParseCount through JMX: " + count);
+                if (((Long)count) != 1) {
+                    System.out.println("*** ERROR *** JMX gave " + count);
+                    ++errors;
+                }
+            } catch (JMException exception) {
+                System.out.println("*** ERROR *** " + exception);
+                ++errors;
+            }
+        } else if ((getTokenizeNanos().getCount() != 0) ||
+                   (getParseNanos().getCount() != 0) ||
+                   (getEvaluateNanos().getCount() != 0) ||
+                   (getFailures().isEmpty() == false)) {
+            System.out.println("*** ERROR *** library counted with" +
+                               " metrics off");
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
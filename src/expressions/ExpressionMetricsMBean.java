@@ -0,0 +1,139 @@
+package expressions;
+
+/**
+ *  {@code ExpressionMetricsMBean} is the management interface
+ *  {@link ExpressionMetrics} publishes through JMX, so the counts and
+ *  latencies can be read with jconsole or any other JMX client.  Each
+ *  latency is in nanoseconds.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public interface    ExpressionMetricsMBean
+{
+    /**
+     *  Return how many times text has been broken into tokens.
+     *  @return The count.
+     */
+    long        getTokenizeCount();
+
+    /**
+     *  Return the median time to break text into tokens.
+     *  @return Nanoseconds.
+     */
+    long        getTokenizeP50Nanos();
+
+    /**
+     *  Return the 99th percentile time to break text into tokens.
+     *  @return Nanoseconds.
+     */
+    long        getTokenizeP99Nanos();
+
+    /**
+     *  Return the longest time to break text into tokens.
+     *  @return Nanoseconds.
+     */
+    long        getTokenizeMaxNanos();
+
+    /**
+     *  Return how many trees have been built.
+     *  @return The count.
+     */
+    long        getParseCount();
+
+    /**
+     *  Return the median time to build a tree.
+     *  @return Nanoseconds.
+     */
+    long        getParseP50Nanos();
+
+    /**
+     *  Return the 99th percentile time to build a tree.
+     *  @return Nanoseconds.
+     */
+    long        getParseP99Nanos();
+
+    /**
+     *  Return the longest time to build a tree.
+     *  @return Nanoseconds.
+     */
+    long        getParseMaxNanos();
+
+    /**
+     *  Return how many times text didn't parse.
+     *  @return The count.
+     */
+    long        getParseFailureCount();
+
+    /**
+     *  Return how many times text didn't parse for each kind of
+     *  {@code ParseException}.
+     *  @return Entries of the form {@code message=count}, where the
+     *  message has each number in it replaced by {@code #}.
+     */
+    String[]    getParseFailures();
+
+    /**
+     *  Return how many expressions have been evaluated.
+     *  @return The count.
+     */
+    long        getEvaluateCount();
+
+    /**
+     *  Return the median time to evaluate an expression.
+     *  @return Nanoseconds.
+     */
+    long        getEvaluateP50Nanos();
+
+    /**
+     *  Return the 99th percentile time to evaluate an expression.
+     *  @return Nanoseconds.
+     */
+    long        getEvaluateP99Nanos();
+
+    /**
+     *  Return the longest time to evaluate an expression.
+     *  @return Nanoseconds.
+     */
+    long        getEvaluateMaxNanos();
+
+    /**
+     *  Return the mean number of tokens in the trees built.
+     *  @return The mean.
+     */
+    double      getMeanTokens();
+
+    /**
+     *  Return the most tokens in any tree built.
+     *  @return The maximum.
+     */
+    long        getMaxTokens();
+
+    /**
+     *  Return the mean depth of the trees built.
+     *  @return The mean.
+     */
+    double      getMeanDepth();
+
+    /**
+     *  Return the depth of the deepest tree built.
+     *  @return The maximum.
+     */
+    long        getMaxDepth();
+
+    /**
+     *  Return the mean number of nodes in the trees built.
+     *  @return The mean.
+     */
+    double      getMeanSize();
+
+    /**
+     *  Return the most nodes in any tree built.
+     *  @return The maximum.
+     */
+    long        getMaxSize();
+
+    /**
+     *  Forget everything counted so far.
+     */
+    void        reset();
+}
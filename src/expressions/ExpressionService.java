@@ -0,0 +1,647 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.text.*;
+
+/**
+ *  {@code ExpressionService} is the class that evaluates expressions
+ *  for many callers at once.  A request is either text to parse or
+ *  a tree that's already parsed, and its value comes back in a
+ *  {@code CompletableFuture}.  A parse error, a division by zero, a
+ *  missing variable or anything else thrown while evaluating,
+ *  {@code Error}s included, completes the future exceptionally
+ *  instead.
+ *  <p>
+ *  Requests wait in a bounded queue.  When it's full, a new request
+ *  is either refused with a {@code RejectedExecutionException} or
+ *  made to wait for room, whichever the service was built to do.
+ *  Workers take requests off the queue in batches, so a burst of
+ *  small requests costs one task per batch rather than one per
+ *  request.  By default the workers are virtual threads when the
+ *  Java running us has them, and a fixed pool of a thread per
+ *  processor when it doesn't; any {@code Executor} can be given
+ *  instead.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ExpressionService implements AutoCloseable
+{
+    /**
+     *  How many requests may wait at once, unless another number is
+     *  asked for.
+     */
+    public static final int     DEFAULT_CAPACITY    = 10000;
+    /**
+     *  How many requests a worker takes off the queue at a time,
+     *  unless another number is asked for.
+     */
+    public static final int     DEFAULT_BATCH_SIZE  = 64;
+
+    private final Executor                      executor;
+    private final boolean                       ownExecutor;
+    private final ArrayBlockingQueue<Request>   queue;
+    private final boolean                       blocking;
+    private final int                           batchSize;
+    private final int                           maxWorkers;
+    private final AtomicInteger                 workers;
+    private final Parser                        parser;
+    private volatile boolean                    closed;
+
+    /**
+     *  Construct an {@code ExpressionService} on virtual threads, or a
+     *  thread per processor without them, that refuses requests once
+     *  {@link #DEFAULT_CAPACITY} are waiting.
+     */
+    public      ExpressionService()
+    {
+        this(null, DEFAULT_CAPACITY, false, DEFAULT_BATCH_SIZE,
+             Runtime.getRuntime().availableProcessors(), new Parser());
+    }
+
+    /**
+     *  Construct an {@code ExpressionService}.
+     *  @param executor Where the workers run, or {@code null} for
+     *  virtual threads, or a thread per processor without them.  The
+     *  service shuts down only an executor it made itself.
+     *  @param capacity How many requests may wait at once.
+     *  @param blocking Whether a request waits for room when the queue
+     *  is full rather than being refused.
+     *  @param batchSize How many requests a worker takes at a time.
+     *  @param maxWorkers How many workers may run at once.
+     *  @param parser The parser for requests given as text.
+     *  @throws IllegalArgumentException When capacity, batchSize or
+     *  maxWorkers isn't positive.
+     */
+    public      ExpressionService(Executor executor, int capacity,
+                                  boolean blocking, int batchSize,
+                                  int maxWorkers, Parser parser)
+    {
+        if ((capacity <= 0) || (batchSize <= 0) || (maxWorkers <= 0)) {
+            throw(new IllegalArgumentException("Bad capacity " +
+                                               capacity + ", batch size " +
+                                               batchSize + " or workers " +
+                                               maxWorkers));
+        }
+
+        ownExecutor = (executor == null);
+        this.executor = (executor == null) ? newExecutor(maxWorkers) :
+                                             executor;
+        queue = new ArrayBlockingQueue<>(capacity);
+        this.blocking = blocking;
+        this.batchSize = batchSize;
+        this.maxWorkers = maxWorkers;
+        workers = new AtomicInteger();
+        this.parser = parser;
+    }
+
+    /*
+     *  Virtual threads arrived after the Java we build for, so look
+     *  for them rather than call them.
+     */
+    private static ExecutorService  newExecutor(int threads)
+    {
+        try {
+            return((ExecutorService)Executors.class.
+                        getMethod("newVirtualThreadPerTaskExecutor").
+                        invoke(null));
+        } catch (ReflectiveOperationException exception) {
+            return(Executors.newFixedThreadPool(threads, runnable -> {
+                Thread  thread;
+
+                thread = new Thread(runnable, "ExpressionService");
+                thread.setDaemon(true);
+                return(thread);
+            }));
+        }
+    }
+
+    /**
+     *  Parse and evaluate an expression without variables.
+     *  @param text The expression.
+     *  @return Where its value will be.
+     *  @throws RejectedExecutionException When the queue is full and
+     *  the service doesn't wait, or it's closed.
+     */
+    public CompletableFuture<java.lang.Integer> submit(String text)
+    {
+        return(submit(new Request(text, null, null, null)));
+    }
+
+    /**
+     *  Parse and evaluate an expression with variables.
+     *  @param text The expression.
+     *  @param names The names of the variables in slot order.  The
+     *  list is copied, so names found in the text that aren't in it
+     *  take the slots after them without being added to it.
+     *  @param values The value of each variable by slot.
+     *  @return Where its value will be.
+     *  @throws RejectedExecutionException When the queue is full and
+     *  the service doesn't wait, or it's closed.
+     */
+    public CompletableFuture<java.lang.Integer> submit(String text,
+                                                       List<String> names,
+                                                       int values[])
+    {
+        return(submit(new Request(text, names, null, values)));
+    }
+
+    /**
+     *  Evaluate a tree that's already been parsed.
+     *  @param expression The tree.
+     *  @param values The value of each variable by slot, which may be
+     *  {@code null} when there are no variables.
+     *  @return Where its value will be.
+     *  @throws RejectedExecutionException When the queue is full and
+     *  the service doesn't wait, or it's closed.
+     */
+    public CompletableFuture<java.lang.Integer> submit(Expression expression,
+                                                       int values[])
+    {
+        return(submit(new Request(null, null, expression, values)));
+    }
+
+    /**
+     *  Return how many requests are waiting.
+     *  @return The number of requests not yet taken by a worker.
+     */
+    public int  getQueued()
+    {
+        return(queue.size());
+    }
+
+    /**
+     *  Stop taking requests.  Those already waiting are still
+     *  evaluated.  An executor the service made is shut down and
+     *  waited for.
+     */
+    public void close()
+    {
+        closed = true;
+        if (ownExecutor == true) {
+            ExecutorService service;
+
+            service = (ExecutorService)executor;
+            service.shutdown();
+            try {
+                while (service.awaitTermination(1, TimeUnit.MINUTES) ==
+                       false) {
+                    /*
+                     *  Keep waiting for the last batches.
+                     */
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     *  Queue a request and make sure a worker will see it.
+     */
+    private CompletableFuture<java.lang.Integer>    submit(Request request)
+    {
+        if (closed == true) {
+            throw(new RejectedExecutionException("Service closed"));
+        }
+
+        if (blocking == true) {
+            try {
+                queue.put(request);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw(new RejectedExecutionException("Interrupted"));
+            }
+        } else if (queue.offer(request) == false) {
+            throw(new RejectedExecutionException("Queue full"));
+        }
+
+        dispatch();
+
+        return(request.future);
+    }
+
+    /*
+     *  Start a worker if there's room for one.
+     */
+    private void    dispatch()
+    {
+        if (claimWorker() == true) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException exception) {
+                /*
+                 *  Nothing will run what's waiting, so fail it all.
+                 */
+                workers.decrementAndGet();
+                fail(exception);
+            }
+        }
+    }
+
+    /*
+     *  Count another worker if there's room for one.
+     */
+    private boolean claimWorker()
+    {
+        int     running;
+
+        do {
+            running = workers.get();
+            if (running >= maxWorkers) {
+                return(false);
+            }
+        } while (workers.compareAndSet(running, running + 1) == false);
+
+        return(true);
+    }
+
+    /*
+     *  Take batches of requests off the queue and evaluate them until
+     *  it's empty.
+     */
+    private void    drain()
+    {
+        int         count;
+        boolean     counted;
+        Request     batch[];
+
+        batch = new Request[batchSize];
+        counted = true;
+        try {
+            while (true) {
+                count = 0;
+                while (count < batchSize) {
+                    Request     request;
+
+                    request = queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    batch[count++] = request;
+                }
+
+                if (count == 0) {
+                    /*
+                     *  A request queued just as we decided to stop
+                     *  would be missed if we didn't look again.
+                     */
+                    workers.decrementAndGet();
+                    counted = false;
+                    if ((queue.isEmpty() == true) ||
+                        (claimWorker() == false)) {
+                        return;
+                    }
+                    counted = true;
+                    continue;
+                }
+
+                for (int which = 0; (which < count); ++which) {
+                    batch[which].run(parser);
+                    batch[which] = null;
+                }
+            }
+        } finally {
+            if (counted == true) {
+                /*
+                 *  Something got past the requests.  Give the worker
+                 *  back, and start another for what's still waiting,
+                 *  so the queue is never left with nobody to run it.
+                 */
+                workers.decrementAndGet();
+                if (queue.isEmpty() == false) {
+                    dispatch();
+                }
+            }
+        }
+    }
+
+    /*
+     *  Fail every request still waiting.
+     */
+    private void    fail(Throwable failure)
+    {
+        Request     request;
+
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(failure);
+        }
+    }
+
+    /*
+     *  One expression to evaluate and where its value goes.
+     */
+    private static final class  Request
+    {
+        final String        text;
+        final List<String>  names;
+        final Expression    expression;
+        final int           values[];
+        final CompletableFuture<java.lang.Integer>  future;
+
+        Request(String text, List<String> names, Expression expression,
+                int values[])
+        {
+            this.text = text;
+            this.names = (names == null) ? null : new ArrayList<>(names);
+            this.expression = expression;
+            this.values = values;
+            future = new CompletableFuture<>();
+        }
+
+        void    run(Parser parser)
+        {
+            Expression  tree;
+
+            try {
+                tree = expression;
+                if (tree == null) {
+                    tree = (names == null) ? parser.parse(text) :
+                                             parser.parse(text, names);
+                }
+                future.complete(tree.getValue(values));
+            } catch (Throwable failure) {
+                /*
+                 *  Even an Error, like running out of stack on a
+                 *  tree built too deep, goes back to the caller.
+                 */
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     *  Unit test our {@code ExpressionService}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        /*
+         *  The items in this array are expressions to evaluate.
+         *  Each corresponds to the result in the following array at
+         *  the same index.  A null result means we expect an
+         *  exception.
+         */
+        String          toTest[]    = {
+                "2 + 5 - 1 * 5 / 2",
+                "1",
+                "(1 + 2) * 3",
+                "1 +",
+                "7 / (3 - 3)",
+                "x + 1",
+        };
+        java.lang.Integer   results[]   = { 5, 1, 9, null, null, null };
+        ArrayList<CompletableFuture<java.lang.Integer>> futures;
+
+        errors = 0;
+
+        /*
+         *  Lots of requests from lots of threads all get the right
+         *  answers, whether they're text or trees.
+         */
+        try (ExpressionService service = new ExpressionService()) {
+            java.lang.Integer   got;
+            ArrayList<String>   shared;
+            ArrayList<Thread>   threads;
+            ArrayList<ArrayList<CompletableFuture<java.lang.Integer>>>
+                                submitted;
+
+            threads = new ArrayList<>();
+            submitted = new ArrayList<>();
+            for (which = 0; (which < 8); ++which) {
+                ArrayList<CompletableFuture<java.lang.Integer>> mine;
+
+                mine = new ArrayList<>();
+                submitted.add(mine);
+                threads.add(new Thread(() -> {
+                    for (int test = 0; (test < toTest.length * 100);
+                         ++test) {
+                        mine.add(service.submit(
+                                        toTest[test % toTest.length]));
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            futures = new ArrayList<>();
+            for (which = 0; (which < threads.size()); ++which) {
+                try {
+                    threads.get(which).join();
+                } catch (InterruptedException exception) {
+                    ++errors;
+                }
+                futures.addAll(submitted.get(which));
+            }
+            for (which = 0; (which < futures.size()); ++which) {
+                java.lang.Integer   expected;
+
+                expected = results[which % results.length];
+                try {
+                    got = futures.get(which).get(1, TimeUnit.MINUTES);
+                } catch (ExecutionException exception) {
+                    got = null;
+                } catch (InterruptedException | TimeoutException exception) {
+                    System.out.println("*** ERROR *** " + exception);
+                    ++errors;
+                    break;
+                }
+                if (Objects.equals(expected, got) == false) {
+                    System.out.println("*** ERROR *** " +
+                                       toTest[which % toTest.length] +
+                                       " gives " + got +
+                                       " should be " + expected);
+                    ++errors;
+                }
+            }
+
+            if (service.submit(new Expression("x * y"),
+                               new int[] { 6, 7 }).join() != 42) {
+                System.out.println("*** ERROR *** tree gives the wrong" +
+                                   " value");
+                ++errors;
+            }
+            if (service.submit("x * y", List.of("x", "y"),
+                               new int[] { 6, 7 }).join() != 42) {
+                System.out.println("*** ERROR *** text with variables" +
+                                   " gives the wrong value");
+                ++errors;
+            }
+
+            /*
+             *  A name the caller didn't list takes the next slot, even
+             *  when the list can't change or is shared by requests
+             *  running at once, and the list is left as it was.
+             */
+            shared = new ArrayList<>(List.of("x", "y"));
+            futures = new ArrayList<>();
+            for (which = 0; (which < 100); ++which) {
+                futures.add(service.submit("x * y + z", shared,
+                                           new int[] { 6, 7, which }));
+            }
+            futures.add(service.submit("x * y + z", List.of("x", "y"),
+                                       new int[] { 6, 7, 100 }));
+            for (which = 0; (which < futures.size()); ++which) {
+                try {
+                    got = futures.get(which).get(1, TimeUnit.MINUTES);
+                } catch (ExecutionException | InterruptedException |
+                         TimeoutException exception) {
+                    got = null;
+                }
+                if (Objects.equals(42 + which, got) == false) {
+                    System.out.println("*** ERROR *** x * y + z with" +
+                                       " z = " + which + " gives " + got);
+                    ++errors;
+                }
+            }
+            if (shared.equals(List.of("x", "y")) == false) {
+                System.out.println("*** ERROR *** names changed to " +
+                                   shared);
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        /*
+         *  An Error thrown evaluating a request fails just that
+         *  request, and the one worker allowed keeps going.
+         */
+        try (ExpressionService service = new ExpressionService(null, 100,
+                                                false, 1, 1,
+                                                new Parser())) {
+            Expression  broken;
+
+            broken = new Expression() {
+                public int  getValue(int variables[])
+                {
+                    throw(new StackOverflowError("Too deep"));
+                }
+            };
+            futures = new ArrayList<>();
+            for (which = 0; (which < 3); ++which) {
+                futures.add(service.submit(broken, null));
+            }
+            for (CompletableFuture<java.lang.Integer> future : futures) {
+                try {
+                    future.get(1, TimeUnit.MINUTES);
+                    System.out.println("*** ERROR *** broken tree" +
+                                       " gives a value");
+                    ++errors;
+                } catch (ExecutionException exception) {
+                    if ((exception.getCause() instanceof
+                                        StackOverflowError) == false) {
+                        System.out.println("*** ERROR *** broken tree" +
+                                           " fails with " +
+                                           exception.getCause());
+                        ++errors;
+                    }
+                }
+            }
+            if (service.submit("6 * 7").get(1, TimeUnit.MINUTES) != 42) {
+                System.out.println("*** ERROR *** wrong value after" +
+                                   " failures");
+                ++errors;
+            }
+        } catch (InterruptedException | ExecutionException |
+                 TimeoutException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        /*
+         *  With nothing running the workers, the queue fills.  A full
+         *  queue refuses, or makes the caller wait.
+         */
+        for (boolean blocking : new boolean[] { false, true }) {
+            ArrayList<Runnable>     tasks;
+            ExpressionService       service;
+            Thread                  caller;
+
+            System.out.println("Trying a full queue that " +
+                               ((blocking == true) ? "waits" : "refuses"));
+            tasks = new ArrayList<>();
+            service = new ExpressionService(tasks::add, 2, blocking, 1, 1,
+                                            new Parser());
+            futures = new ArrayList<>();
+            futures.add(service.submit("1 + 1"));
+            futures.add(service.submit("2 + 2"));
+            caller = null;
+            if (blocking == false) {
+                try {
+                    service.submit("3 + 3");
+                    System.out.println("*** ERROR *** full queue takes" +
+                                       " a request");
+                    ++errors;
+                } catch (RejectedExecutionException exception) {
+                    System.out.println("Throws " + exception);
+                }
+            } else {
+                ArrayList<CompletableFuture<java.lang.Integer>> waited;
+
+                waited = futures;
+                caller = new Thread(() -> {
+                    waited.add(service.submit("3 + 3"));
+                });
+                caller.start();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException exception) {
+                    ++errors;
+                }
+                if (caller.isAlive() == false) {
+                    System.out.println("*** ERROR *** full queue doesn't" +
+                                       " wait");
+                    ++errors;
+                }
+            }
+
+            if (tasks.size() != 1) {
+                System.out.println("*** ERROR *** " + tasks.size() +
+                                   " workers started");
+                ++errors;
+            }
+            try {
+                /*
+                 *  The caller kept waiting may start a worker of its
+                 *  own once there's room, so wait for it before
+                 *  running anything else.
+                 */
+                if (tasks.isEmpty() == false) {
+                    tasks.remove(0).run();
+                }
+                if (caller != null) {
+                    caller.join();
+                }
+                while (tasks.isEmpty() == false) {
+                    tasks.remove(0).run();
+                }
+                which = 0;
+                for (CompletableFuture<java.lang.Integer> future : futures) {
+                    which += future.get(1, TimeUnit.SECONDS);
+                }
+                if (which != ((blocking == true) ? 12 : 6)) {
+                    System.out.println("*** ERROR *** results add up to " +
+                                       which);
+                    ++errors;
+                }
+            } catch (InterruptedException | ExecutionException |
+                     TimeoutException exception) {
+                System.out.println("*** ERROR *** " + exception);
+                ++errors;
+            }
+            service.close();
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package expressions;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ *  {@code Histogram} is the class that counts how often each value
+ *  is seen, for latencies in nanoseconds or for sizes, in the manner
+ *  of an HDR histogram.  Values below {@code 2^SUB_BITS} each have
+ *  a bucket of their own.  Above that, every power of two is split
+ *  into {@code 2^SUB_BITS} buckets of equal width, so any value is
+ *  reported to within about three percent whatever its size.  It
+ *  takes a fixed 15K or so however many values are recorded.
+ *  Recording is a few shifts and an atomic increment, so many
+ *  threads can record at once without a lock.  Reading while values
+ *  are being recorded gives figures that may be off by the values
+ *  in flight.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    Histogram
+{
+    private static final int    SUB_BITS        = 5;
+    private static final int    SUB_BUCKETS     = 1 << SUB_BITS;
+    private static final int    BUCKETS         =
+                                        (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray   counts;
+    private final LongAccumulator   max;
+    private final LongAdder         count;
+    private final LongAdder         sum;
+
+    /**
+     *  Construct an empty {@code Histogram}.
+     */
+    public      Histogram()
+    {
+        counts = new AtomicLongArray(BUCKETS);
+        max = new LongAccumulator(Math::max, 0);
+        count = new LongAdder();
+        sum = new LongAdder();
+    }
+
+    /**
+     *  Count a value.
+     *  @param value The value seen.  A negative value counts as zero.
+     */
+    public void record(long value)
+    {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucket(value));
+        max.accumulate(value);
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     *  Return how many values have been counted.
+     *  @return The number of values.
+     */
+    public long getCount()
+    {
+        return(count.sum());
+    }
+
+    /**
+     *  Return the mean of the values counted.
+     *  @return The mean, or zero when nothing has been counted.
+     */
+    public double   getMean()
+    {
+        long    counted;
+
+        counted = count.sum();
+        return((counted == 0) ? 0 : (double)sum.sum() / counted);
+    }
+
+    /**
+     *  Return the largest value counted.
+     *  @return The exact maximum, or zero when nothing has been
+     *  counted.
+     */
+    public long getMax()
+    {
+        return(max.get());
+    }
+
+    /**
+     *  Return the value that the given percentage of the values
+     *  counted are no larger than.
+     *  @param percentile From 0 to 100.
+     *  @return The largest value in the bucket the percentile falls
+     *  in, but never more than the maximum, or zero when nothing has
+     *  been counted.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        int     which;
+        long    wanted;
+        long    seen;
+        long    total;
+
+        total = 0;
+        for (which = 0; (which < BUCKETS); ++which) {
+            total += counts.get(which);
+        }
+        if (total == 0) {
+            return(0);
+        }
+
+        wanted = Math.max(1, (long)Math.ceil(
+                    Math.min(100, Math.max(0, percentile)) / 100 * total));
+        seen = 0;
+        for (which = 0; (which < BUCKETS); ++which) {
+            seen += counts.get(which);
+            if (seen >= wanted) {
+                return(Math.min(highest(which), getMax()));
+            }
+        }
+
+        return(getMax());
+    }
+
+    /**
+     *  Forget every value counted.
+     */
+    public void reset()
+    {
+        int     which;
+
+        for (which = 0; (which < BUCKETS); ++which) {
+            counts.set(which, 0);
+        }
+        max.reset();
+        count.reset();
+        sum.reset();
+    }
+
+    /**
+     *  Describe the values counted.
+     *  @return The count, mean, median, 99th and 99.9th percentiles
+     *  and maximum.
+     */
+    public String   toString()
+    {
+        return("count=" + getCount() +
+               " mean=" + Math.round(getMean()) +
+               " p50=" + getValueAtPercentile(50) +
+               " p99=" + getValueAtPercentile(99) +
+               " p99.9=" + getValueAtPercentile(99.9) +
+               " max=" + getMax());
+    }
+
+    /*
+     *  Helper method to find the bucket for a value.
+     */
+    private static int  bucket(long value)
+    {
+        int     exponent;
+
+        if (value < SUB_BUCKETS) {
+            return((int)value);
+        }
+
+        exponent = 63 - Long.numberOfLeadingZeros(value);
+        return((exponent - SUB_BITS + 1) * SUB_BUCKETS +
+               (int)((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1)));
+    }
+
+    /*
+     *  Helper method to find the largest value that goes in a bucket.
+     */
+    private static long highest(int bucket)
+    {
+        int     exponent;
+        long    lowest;
+
+        if (bucket < SUB_BUCKETS) {
+            return(bucket);
+        }
+
+        exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        lowest = (1L << exponent) |
+                 ((long)(bucket % SUB_BUCKETS) << (exponent - SUB_BITS));
+        return(lowest + (1L << (exponent - SUB_BITS)) - 1);
+    }
+
+    /**
+     *  Unit test our {@code Histogram}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        Histogram       histogram;
+        Thread          threads[];
+        /*
+         *  The items in this array are percentiles of the values
+         *  1 to 100000.  Each corresponds to the exact value in the
+         *  following array at the same index.
+         */
+        double          percentiles[]   = { 0, 1, 50, 99, 99.9, 100 };
+        long            exact[]         = { 1, 1000, 50000, 99000,
+                                            99900, 100000 };
+
+        errors = 0;
+        histogram = new Histogram();
+        for (which = 1; (which <= 100000); ++which) {
+            histogram.record(which);
+        }
+        System.out.println(histogram);
+        for (which = 0; (which < percentiles.length); ++which) {
+            long    got;
+
+            got = histogram.getValueAtPercentile(percentiles[which]);
+            if ((got < exact[which]) ||
+                (got > exact[which] + exact[which] / SUB_BUCKETS)) {
+                System.out.println("*** ERROR *** percentile " +
+                                   percentiles[which] + " is " + got +
+                                   " should be about " + exact[which]);
+                ++errors;
+            }
+        }
+        if ((histogram.getCount() != 100000) ||
+            (histogram.getMax() != 100000) ||
+            (histogram.getMean() != 50000.5)) {
+            System.out.println("*** ERROR *** count, max or mean wrong");
+            ++errors;
+        }
+
+        /*
+         *  Every value lands in a bucket that holds it, right up to the
+         *  largest long.
+         */
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000,
+                                       1L << 40, Long.MAX_VALUE }) {
+            int     bucket;
+
+            bucket = bucket(value);
+            if ((bucket < 0) || (bucket >= BUCKETS) ||
+                (highest(bucket) < value) ||
+                ((bucket > 0) && (highest(bucket - 1) >= value))) {
+                System.out.println("*** ERROR *** " + value +
+                                   " goes in bucket " + bucket);
+                ++errors;
+            }
+        }
+
+        /*
+         *  Threads recording at once lose nothing.
+         */
+        histogram.reset();
+        threads = new Thread[4];
+        for (which = 0; (which < threads.length); ++which) {
+            threads[which] = new Thread(() -> {
+                for (int value = 0; (value < 100000); ++value) {
+                    histogram.record(value);
+                }
+            });
+            threads[which].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                ++errors;
+            }
+        }
+        if (histogram.getCount() != 400000) {
+            System.out.println("*** ERROR *** " + histogram.getCount() +
+                               " values counted by threads");
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -2,13 +2,84 @@ package expressions;
 
 /**
  *  {@code Integer} is the class that extends {@code Expression} to
- *  provide an integer constant value.
- *  @version 2022081900
+ *  provide an integer constant value.  Constants are never changed,
+ *  so {@link #valueOf(int)} hands out the same instance for every
+ *  use of a common value rather than allocating one per token.  The
+ *  values kept ready are {@link #DEFAULT_CACHE_LOW} to
+ *  {@link #DEFAULT_CACHE_HIGH} unless the system properties
+ *  {@code expressions.Integer.cacheLow} and
+ *  {@code expressions.Integer.cacheHigh} say otherwise.
+ *  @version 2026101800
  *  @author Richard Barton
  */
 public class    Integer extends Expression
 {
-    private int value;
+    /**
+     *  The lowest value kept ready by default.
+     */
+    public static final int     DEFAULT_CACHE_LOW   = -128;
+
+    /**
+     *  The highest value kept ready by default.
+     */
+    public static final int     DEFAULT_CACHE_HIGH  = 1024;
+
+    private static final int        cacheLow;
+    private static final Integer    cache[];
+
+    private final int   value;
+
+    static {
+        int     low;
+        int     high;
+        int     which;
+
+        low = java.lang.Integer.getInteger("expressions.Integer.cacheLow",
+                                           DEFAULT_CACHE_LOW);
+        high = java.lang.Integer.getInteger(
+                                "expressions.Integer.cacheHigh",
+                                DEFAULT_CACHE_HIGH);
+        if (((long)high - low) >= 1 << 24) {
+            /*
+             *  Don't let a typo eat the heap.
+             */
+            low = DEFAULT_CACHE_LOW;
+            high = DEFAULT_CACHE_HIGH;
+        }
+
+        cacheLow = low;
+        cache = new Integer[Math.max(0, high - low + 1)];
+        for (which = 0; (which < cache.length); ++which) {
+            cache[which] = new Integer(low + which);
+        }
+    }
+
+    /**
+     *  Return an {@code Integer} with the given value, the same
+     *  instance every time for values kept ready.
+     *  @param value The value wanted.
+     *  @return An {@code Integer} with that value.
+     */
+    public static Integer   valueOf(int value)
+    {
+        if (isCached(value) == true) {
+            return(cache[value - cacheLow]);
+        }
+
+        return(new Integer(value));
+    }
+
+    /**
+     *  Return whether {@link #valueOf(int)} always hands out the same
+     *  instance for a value.
+     *  @param value The value to check.
+     *  @return {@code true} when the value is kept ready.
+     */
+    static boolean  isCached(int value)
+    {
+        return((value >= cacheLow) &&
+               ((long)value - cacheLow < cache.length));
+    }
 
     /**
      *  Construct an {@code Integer} instance with the value
@@ -20,6 +91,17 @@ public class    Integer extends Expression
         this.value = java.lang.Integer.parseInt(value);
     }
 
+    /**
+     *  Construct an {@code Integer} instance with a value that has
+     *  already been converted, such as one handed out by
+     *  {@link Lexer#getIntValue()}.
+     *  @param value The value of this instance.
+     */
+    public      Integer(int value)
+    {
+        this.value = value;
+    }
+
     /**
      *  Return our value.
      *  @return The value we were given when instantiated.
@@ -29,6 +111,16 @@ public class    Integer extends Expression
         return(value);
     }
 
+    /**
+     *  Return our value, which doesn't depend on any variables.
+     *  @param variables Ignored.
+     *  @return The value we were given when instantiated.
+     */
+    public int  getValue(int variables[])
+    {
+        return(value);
+    }
+
     /**
      *  Return our value as a {@code String}.
      *  @return The value we were given when instantiated as a
@@ -39,6 +131,25 @@ public class    Integer extends Expression
         return("" + value);
     }
 
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#LITERAL}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.LITERAL);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return {@code null} since a constant has no operands.
+     */
+    Expression  getOperand(int which)
+    {
+        return(null);
+    }
+
     /**
      *  Unit test our {@code Integer} expression.
      *  @param arg Command line arguments
@@ -51,6 +162,28 @@ public class    Integer extends Expression
                                 };
 
         errors = 0;
+        if ((valueOf(7) != valueOf(7)) || (valueOf(7).getValue() != 7) ||
+            (valueOf(DEFAULT_CACHE_LOW).getValue() != DEFAULT_CACHE_LOW) ||
+            (valueOf(1 << 30) == valueOf(1 << 30)) ||
+            (valueOf(1 << 30).getValue() != 1 << 30)) {
+            System.out.println("*** ERROR *** valueOf() doesn't keep" +
+                               " common values ready");
+            ++errors;
+        }
+        try {
+            Expression  sum;
+
+            sum = new Parser().parse("12 + 12");
+            if (sum.getOperand(0) != sum.getOperand(1)) {
+                System.out.println("*** ERROR *** parsed constants" +
+                                   " not shared");
+                ++errors;
+            }
+        } catch (java.text.ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
         for (String which : valuesToTest) {
             int         getValue;
             int         parsedValue;
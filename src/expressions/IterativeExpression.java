@@ -0,0 +1,473 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code IterativeExpression} is the class that extends
+ *  {@code Expression} to evaluate a tree of any depth.  The
+ *  operations evaluate themselves recursively, one call per level,
+ *  so a long chain like a sum of 100,000 terms runs out of stack.
+ *  This class walks the tree with an explicit stack instead, which
+ *  needs memory in proportion to the depth of the tree rather than
+ *  the thread's stack.  The {@link Parser} wraps every tree deeper
+ *  than {@link #DEPTH_THRESHOLD} in one automatically, and so does
+ *  everything else that builds a tree, through {@link #guard}.
+ *  Printing never recurses, whatever the depth.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    IterativeExpression extends Expression
+{
+    /**
+     *  How deep a parsed tree may be before the {@link Parser} wraps
+     *  it in an {@code IterativeExpression}.
+     */
+    public static final int     DEPTH_THRESHOLD = 1000;
+
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final Expression    source;
+
+    /**
+     *  Construct an {@code IterativeExpression} for the given tree.
+     *  @param expression The tree to evaluate.
+     */
+    public      IterativeExpression(Expression expression)
+    {
+        source = expression;
+    }
+
+    /**
+     *  Evaluate the tree and return its value.
+     *  @return The same value as {@code getValue()} on the tree.
+     */
+    public int  getValue()
+    {
+        return(getValue(null));
+    }
+
+    /**
+     *  Evaluate the tree using the given values for its variables
+     *  and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on the tree.
+     */
+    public int  getValue(int variables[])
+    {
+        EvaluationEvent event;
+
+        event = new EvaluationEvent();
+        if (event.isEnabled() == false) {
+            return(evaluate(source, variables));
+        }
+
+        event.begin();
+        try {
+            return(evaluate(source, variables));
+        } finally {
+            event.evaluated(source, "iterative");
+        }
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The tree we evaluate.
+     */
+    Expression  getOperand(int which)
+    {
+        return(source);
+    }
+
+    /**
+     *  Evaluate a tree of any depth with an explicit stack.
+     *  @param expression The tree to evaluate.
+     *  @param variables The value of each variable by slot, which
+     *  may be {@code null} when there are no variables.
+     *  @return The same value as {@code getValue(int[])} on the tree.
+     */
+    public static int   evaluate(Expression expression, int variables[])
+    {
+        int             top;
+        int             valueTop;
+        Expression      nodes[];
+        int             visits[];
+        int             values[];
+
+        /*
+         *  Operations stay on the node stack until both operands are
+         *  on the value stack.
+         */
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        values = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        valueTop = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (valueTop == values.length) {
+                values = Arrays.copyOf(values, valueTop * 2);
+            }
+            if (node == null) {
+                /*
+                 *  An empty Expression evaluates to zero.
+                 */
+                values[valueTop++] = 0;
+                --top;
+                continue;
+            }
+
+            opcode = node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    values[valueTop++] = node.getValue(variables);
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == 2) {
+                int     right;
+
+                right = values[--valueTop];
+                switch (opcode) {
+                    case Opcode.ADD:
+                        values[valueTop - 1] += right;
+                        break;
+                    case Opcode.SUBTRACT:
+                        values[valueTop - 1] -= right;
+                        break;
+                    case Opcode.MULTIPLY:
+                        values[valueTop - 1] *= right;
+                        break;
+                    default:
+                        values[valueTop - 1] /= right;
+                        break;
+                }
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(values[0]);
+    }
+
+    /**
+     *  Return the given tree as the {@link Parser} would, wrapped in
+     *  an {@code IterativeExpression} when it's deeper than
+     *  {@link #DEPTH_THRESHOLD}.  Code that builds a tree some way
+     *  other than parsing it hands it back through here.  The tree is
+     *  measured with an explicit stack, an operation used in more
+     *  than one place is only measured once, and measuring stops as
+     *  soon as the tree is known to be too deep.
+     *  @param expression The tree.
+     *  @return The tree, or an {@code IterativeExpression} for it.
+     */
+    public static Expression    guard(Expression expression)
+    {
+        int             top;
+        Expression      nodes[];
+        int             visits[];
+        int             heights[];
+        IdentityHashMap<Expression, java.lang.Integer>  measured;
+
+        /*
+         *  Each node on the stack is one deeper than the one below
+         *  it, and remembers the height of its tallest operand so far.
+         */
+        measured = new IdentityHashMap<>();
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        heights = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        heights[0] = 0;
+        top = 1;
+        while (top > 0) {
+            Expression          node;
+            int                 operands;
+            int                 height;
+            java.lang.Integer   known;
+
+            node = nodes[top - 1];
+            operands = 0;
+            if ((node != null) && ((node instanceof IterativeExpression) ==
+                                                                false)) {
+                switch (node.getOpcode()) {
+                    case Opcode.LITERAL:
+                    case Opcode.VARIABLE:
+                        break;
+                    case Opcode.EXPRESSION:
+                        /*
+                         *  Not a node of the tree itself.
+                         */
+                        nodes[top - 1] = node.getOperand(0);
+                        continue;
+                    case Opcode.GROUP:
+                        operands = 1;
+                        break;
+                    default:
+                        operands = 2;
+                        break;
+                }
+            }
+
+            if (visits[top - 1] == 0) {
+                known = (operands == 2) ? measured.get(node) : null;
+                if ((top > DEPTH_THRESHOLD) ||
+                    ((known != null) &&
+                     (top - 1 + known > DEPTH_THRESHOLD))) {
+                    return(new IterativeExpression(expression));
+                }
+                if (known != null) {
+                    heights[top - 1] = known - 1;
+                    visits[top - 1] = operands;
+                }
+            }
+
+            if (visits[top - 1] == operands) {
+                height = heights[top - 1] + 1;
+                if (operands == 2) {
+                    measured.put(node, height);
+                }
+                --top;
+                if (top > 0) {
+                    heights[top - 1] = Math.max(heights[top - 1], height);
+                }
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+                heights = Arrays.copyOf(heights, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            heights[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        return(expression);
+    }
+
+    /**
+     *  Return the given tree wrapped in an {@code IterativeExpression}
+     *  when the height its builder worked out for it is more than
+     *  {@link #DEPTH_THRESHOLD}, as {@link #guard(Expression)} would
+     *  without measuring it again.
+     *  @param expression The tree.
+     *  @param height How many nodes deep the tree is.
+     *  @return The tree, or an {@code IterativeExpression} for it.
+     */
+    static Expression   guard(Expression expression, int height)
+    {
+        if (height > DEPTH_THRESHOLD) {
+            /*
+             *  Too deep to walk recursively without risking the
+             *  thread's stack.
+             */
+            return(new IterativeExpression(expression));
+        }
+
+        return(expression);
+    }
+
+    /**
+     *  Print a tree of any depth.  This is {@code toString()} on the
+     *  tree, which walks it with an explicit stack.
+     *  @param expression The tree to print.
+     *  @return The same {@code String} as {@code toString()} on the
+     *  tree.
+     */
+    public static String    toString(Expression expression)
+    {
+        if (expression == null) {
+            return(null);
+        }
+
+        return(expression.toString());
+    }
+
+    /**
+     *  Unit test our {@code IterativeExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        int             terms;
+        int             variables[]     = { 3 };
+        StringBuilder   deep;
+        Expression      built;
+        /*
+         *  The items in this array are expressions to evaluate and
+         *  print.  Each is checked against its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "2 + 5 - 1 * 5 / 2",
+                "(x + 2) * ((x - 4) / 5)",
+                "7 / (3 - 3)",
+        };
+
+        errors = 0;
+        for (String test : toTest) {
+            int         expected;
+            Expression  expression;
+
+            System.out.println("Trying to evaluate:\n" +
+                               "  \"" + test + "\"");
+            try {
+                expression = new Expression(test);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+
+            if (test.equals(toString(expression)) == false) {
+                System.out.println("*** ERROR *** toString() returns " +
+                                   toString(expression) +
+                                   " should be " + test);
+                ++errors;
+            }
+            try {
+                expected = expression.getValue(variables);
+            } catch (ArithmeticException exception) {
+                try {
+                    evaluate(expression, variables);
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " should throw " + exception);
+                    ++errors;
+                } catch (ArithmeticException expectedException) {
+                    System.out.println("Throws " + expectedException);
+                }
+                continue;
+            }
+            if (evaluate(expression, variables) != expected) {
+                System.out.println("*** ERROR *** getValue() returns " +
+                                   evaluate(expression, variables) +
+                                   " should be " + expected);
+                ++errors;
+            }
+        }
+
+        /*
+         *  A parsed tree too deep to walk recursively is taken care of
+         *  without being asked, whether it leans left or right.
+         */
+        terms = 100000;
+        for (which = 0; (which < 2); ++which) {
+            int         term;
+            int         expected;
+            String      text;
+            Expression  expression;
+
+            deep = new StringBuilder();
+            expected = variables[0];
+            for (term = 1; (term < terms); ++term) {
+                expected = (which == 0) ? expected - 1 : 1 - expected;
+            }
+            for (term = 0; (term < terms); ++term) {
+                if (which == 0) {
+                    deep.append((term == 0) ? "x" : " - 1");
+                } else {
+                    deep.append((term == terms - 1) ? "x" : "(1 - ");
+                }
+            }
+            for (term = 1; (which == 1) && (term < terms); ++term) {
+                deep.append(')');
+            }
+            text = deep.toString();
+
+            try {
+                Parser  parser;
+
+                parser = new Parser();
+                parser.setMaxDepth(terms);
+                expression = new Expression(text, parser);
+                if (expression.getValue(variables) != expected) {
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " returns " +
+                                       expression.getValue(variables) +
+                                       " should be " + expected);
+                    ++errors;
+                }
+                if (text.equals("" + expression) == false) {
+                    System.out.println("*** ERROR *** deep toString()" +
+                                       " doesn't match");
+                    ++errors;
+                }
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+            } catch (StackOverflowError error) {
+                System.out.println("*** ERROR *** " + error);
+                ++errors;
+            }
+        }
+
+        /*
+         *  A tree built without the parser is taken care of by
+         *  guard(), while one that's shallow but uses the same
+         *  operation everywhere is measured quickly and left alone.
+         */
+        built = new Variable("x", 0);
+        for (which = 1; (which < terms); ++which) {
+            built = Parser.combine('-', built, Integer.valueOf(1));
+        }
+        built = guard(built);
+        try {
+            if (((built instanceof IterativeExpression) == false) ||
+                (built.getValue(variables) != variables[0] - terms + 1)) {
+                System.out.println("*** ERROR *** guard() gives " +
+                                   built.getClass().getSimpleName() +
+                                   " with value " +
+                                   built.getValue(variables));
+                ++errors;
+            }
+        } catch (StackOverflowError error) {
+            System.out.println("*** ERROR *** " + error);
+            ++errors;
+        }
+        built = new Variable("x", 0);
+        for (which = 0; (which < 60); ++which) {
+            built = Parser.combine('+', built, built);
+        }
+        if (guard(built) != built) {
+            System.out.println("*** ERROR *** guard() wraps a tree 61" +
+                               " deep");
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
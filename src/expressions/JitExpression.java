@@ -0,0 +1,693 @@
+package expressions;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code JitExpression} is the class that extends {@code Expression}
+ *  to turn a tree that is evaluated often into a class of its own.
+ *  Until {@code getValue()} has been called the given number of
+ *  times we simply walk the tree.  After that we generate a hidden
+ *  class whose {@code evaluate()} method is nothing but the JVM
+ *  instructions for the expression, so HotSpot can compile and
+ *  inline it like any other small method.
+ *  <p>
+ *  Expressions too big for one JVM method, or a JVM that refuses the
+ *  class, leave us walking the tree for good.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    JitExpression extends Expression
+{
+    /**
+     *  How many calls to {@code getValue()} we walk the tree for
+     *  before generating a class, unless told otherwise.
+     */
+    public static final int     DEFAULT_THRESHOLD   = 10000;
+
+    /*
+     *  Limits the class file format puts on a method.
+     */
+    private static final int    MAX_CODE            = 65535;
+    private static final int    MAX_STACK           = 65535;
+    private static final int    MAX_CONSTANTS       = 65535;
+
+    private static final int    INITIAL_SIZE        = 16;
+
+    /*
+     *  JVM instructions we generate.
+     */
+    private static final int    ICONST_0    = 0x03;
+    private static final int    BIPUSH      = 0x10;
+    private static final int    SIPUSH      = 0x11;
+    private static final int    LDC         = 0x12;
+    private static final int    LDC_W       = 0x13;
+    private static final int    ALOAD_0     = 0x2a;
+    private static final int    ALOAD_1     = 0x2b;
+    private static final int    IALOAD      = 0x2e;
+    private static final int    IADD        = 0x60;
+    private static final int    ISUB        = 0x64;
+    private static final int    IMUL        = 0x68;
+    private static final int    IDIV        = 0x6c;
+    private static final int    IRETURN     = 0xac;
+    private static final int    RETURN      = 0xb1;
+    private static final int    INVOKESPECIAL   = 0xb7;
+
+    /*
+     *  Constant pool entries every generated class starts with.
+     *  Integer constants follow them.
+     */
+    private static final String fixedConstants[]    = {
+                            "expressions/GeneratedEvaluator",
+                            "java/lang/Object",
+                            "expressions/Evaluator",
+                            "<init>",
+                            "()V",
+                            "evaluate",
+                            "([I)I",
+                            "Code",
+                        };
+    private static final int    THIS_NAME       = 1;
+    private static final int    OBJECT_NAME     = 2;
+    private static final int    EVALUATOR_NAME  = 3;
+    private static final int    INIT_NAME       = 4;
+    private static final int    INIT_TYPE       = 5;
+    private static final int    EVALUATE_NAME   = 6;
+    private static final int    EVALUATE_TYPE   = 7;
+    private static final int    CODE_NAME       = 8;
+    private static final int    THIS_CLASS      = 9;
+    private static final int    OBJECT_CLASS    = 10;
+    private static final int    EVALUATOR_CLASS = 11;
+    private static final int    INIT_NAME_TYPE  = 12;
+    private static final int    OBJECT_INIT     = 13;
+    private static final int    FIRST_INTEGER   = 14;
+
+    private final Expression    tree;
+    private final int           threshold;
+    private int                 calls;
+    private boolean             failed;
+    private final boolean       hasVariables;
+    /*
+     *  Generated classes have no fields, so an instance seen through
+     *  a data race is still fully usable.  That's why this needn't
+     *  be volatile.
+     */
+    private Evaluator           evaluator;
+
+    /**
+     *  Construct a {@code JitExpression} that generates a class after
+     *  {@link #DEFAULT_THRESHOLD} evaluations.
+     *  @param expression The tree to evaluate.
+     */
+    public      JitExpression(Expression expression)
+    {
+        this(expression, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     *  Construct a {@code JitExpression} that generates a class after
+     *  the given number of evaluations.
+     *  @param expression The tree to evaluate.
+     *  @param threshold How many times to walk the tree first.  Zero
+     *  generates the class on the first evaluation.
+     */
+    public      JitExpression(Expression expression, int threshold)
+    {
+        if (threshold < 0) {
+            throw(new IllegalArgumentException("Negative threshold " +
+                                               threshold));
+        }
+        this.tree = expression;
+        this.threshold = threshold;
+        hasVariables = usesVariables(expression);
+    }
+
+    /**
+     *  Evaluate the expression and return its value.
+     *  @return The same value as {@code getValue()} on our tree.
+     */
+    public int  getValue()
+    {
+        if (hasVariables == true) {
+            /*
+             *  Let the tree complain that there are no values.
+             */
+            return(tree.getValue());
+        }
+
+        return(getValue(null));
+    }
+
+    /**
+     *  Evaluate the expression using the given values for its
+     *  variables and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on our tree.
+     */
+    public int  getValue(int variables[])
+    {
+        EvaluationEvent event;
+
+        event = new EvaluationEvent();
+        if (event.isEnabled() == false) {
+            return(value(variables));
+        }
+
+        event.begin();
+        try {
+            return(value(variables));
+        } finally {
+            event.evaluated(tree, "jit");
+        }
+    }
+
+    /*
+     *  Helper method that does the work of getValue().
+     */
+    private int value(int variables[])
+    {
+        Evaluator   generated;
+
+        generated = evaluator;
+        if (generated != null) {
+            return(generated.evaluate(variables));
+        }
+
+        if ((failed == false) && (calls++ >= threshold)) {
+            CompiledExpression  compiled;
+
+            /*
+             *  We're hot.  Two threads may both get here, in which
+             *  case one of the classes generated is simply dropped.
+             */
+            compiled = new CompiledExpression(tree);
+            generated = generate(compiled);
+            if (generated == null) {
+                failed = true;
+            } else {
+                evaluator = generated;
+                return(generated.evaluate(variables));
+            }
+        }
+
+        return(tree.getValue(variables));
+    }
+
+    /*
+     *  Helper method to tell whether a tree uses any variable.  It
+     *  walks the tree with an explicit stack and looks at an
+     *  operation used in more than one place only once.
+     */
+    private static boolean  usesVariables(Expression expression)
+    {
+        int             top;
+        Expression      nodes[];
+        Set<Expression> seen;
+
+        seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        nodes = new Expression[INITIAL_SIZE];
+        nodes[0] = expression;
+        top = 1;
+        while (top > 0) {
+            Expression  node;
+
+            node = nodes[--top];
+            if (node == null) {
+                continue;
+            }
+            switch (node.getOpcode()) {
+                case Opcode.VARIABLE:
+                    return(true);
+                case Opcode.LITERAL:
+                    break;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top++] = node.getOperand(0);
+                    break;
+                default:
+                    if (seen.add(node) == false) {
+                        break;
+                    }
+                    if (top + 2 > nodes.length) {
+                        nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    }
+                    nodes[top++] = node.getOperand(0);
+                    nodes[top++] = node.getOperand(1);
+                    break;
+            }
+        }
+
+        return(false);
+    }
+
+    /**
+     *  Tell whether we've generated a class for our expression.
+     *  @return {@code true} once evaluation uses the generated class.
+     */
+    public boolean  isGenerated()
+    {
+        return(evaluator != null);
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#EXPRESSION} since we stand in for our
+     *  tree.
+     */
+    int getOpcode()
+    {
+        return(Opcode.EXPRESSION);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return Our tree.
+     */
+    Expression  getOperand(int which)
+    {
+        return(tree);
+    }
+
+    /**
+     *  Return our tree as a {@code String}.
+     *  @return Our tree as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + tree);
+    }
+
+    /*
+     *  Helper method to turn a program into a hidden class and
+     *  return an instance of it.  Returns null when the program
+     *  won't fit in a method or the class can't be defined.
+     */
+    private static Evaluator    generate(CompiledExpression compiled)
+    {
+        byte            classFile[];
+        MethodHandles.Lookup    lookup;
+
+        /*
+         *  Loading a variable briefly needs the array and the slot on
+         *  top of whatever is already on the stack.
+         */
+        classFile = assemble(compiled.getCode(),
+                             compiled.getMaxStack() + 1);
+        if (classFile == null) {
+            return(null);
+        }
+
+        try {
+            lookup = MethodHandles.lookup().defineHiddenClass(classFile,
+                                                              true);
+            return((Evaluator)lookup.findConstructor(
+                                    lookup.lookupClass(),
+                                    MethodType.methodType(void.class)).
+                                        invoke());
+        } catch (Throwable throwable) {
+            /*
+             *  Anything short of the JVM itself being in trouble
+             *  just means we keep walking the tree.
+             */
+            if (throwable instanceof VirtualMachineError) {
+                throw((VirtualMachineError)throwable);
+            }
+            return(null);
+        }
+    }
+
+    /*
+     *  Helper method to write the class file for a program.  Returns
+     *  null when the program is too big for the class file format.
+     */
+    private static byte[]   assemble(int code[], int maxStack)
+    {
+        int                         pc;
+        int                         constantCount;
+        int                         codeLength;
+        ByteArrayOutputStream       bytes;
+        DataOutputStream            out;
+        ByteArrayOutputStream       method;
+        DataOutputStream            body;
+        HashMap<java.lang.Integer, java.lang.Integer>   constants;
+        ArrayList<java.lang.Integer>                    constantValues;
+
+        if (maxStack > MAX_STACK) {
+            return(null);
+        }
+
+        /*
+         *  Write the instructions, collecting the constants too big
+         *  for bipush or sipush as we go.
+         */
+        constants = new HashMap<>();
+        constantValues = new ArrayList<>();
+        constantCount = FIRST_INTEGER;
+        method = new ByteArrayOutputStream();
+        body = new DataOutputStream(method);
+        try {
+            for (pc = 0; (pc < code.length); ++pc) {
+                int     value;
+
+                switch (code[pc]) {
+                    case Opcode.LITERAL:
+                        value = code[++pc];
+                        if ((value >= -1) && (value <= 5)) {
+                            body.writeByte(ICONST_0 + value);
+                        } else if ((value >= Byte.MIN_VALUE) &&
+                                   (value <= Byte.MAX_VALUE)) {
+                            body.writeByte(BIPUSH);
+                            body.writeByte(value);
+                        } else if ((value >= Short.MIN_VALUE) &&
+                                   (value <= Short.MAX_VALUE)) {
+                            body.writeByte(SIPUSH);
+                            body.writeShort(value);
+                        } else {
+                            java.lang.Integer   index;
+
+                            index = constants.get(value);
+                            if (index == null) {
+                                if (constantCount >= MAX_CONSTANTS) {
+                                    return(null);
+                                }
+                                index = constantCount++;
+                                constants.put(value, index);
+                                constantValues.add(value);
+                            }
+                            if (index <= 0xff) {
+                                body.writeByte(LDC);
+                                body.writeByte(index);
+                            } else {
+                                body.writeByte(LDC_W);
+                                body.writeShort(index);
+                            }
+                        }
+                        break;
+                    case Opcode.VARIABLE:
+                        value = code[++pc];
+                        body.writeByte(ALOAD_1);
+                        if (value <= Byte.MAX_VALUE) {
+                            body.writeByte(BIPUSH);
+                            body.writeByte(value);
+                        } else if (value <= Short.MAX_VALUE) {
+                            body.writeByte(SIPUSH);
+                            body.writeShort(value);
+                        } else {
+                            return(null);
+                        }
+                        body.writeByte(IALOAD);
+                        break;
+                    case Opcode.ADD:
+                        body.writeByte(IADD);
+                        break;
+                    case Opcode.SUBTRACT:
+                        body.writeByte(ISUB);
+                        break;
+                    case Opcode.MULTIPLY:
+                        body.writeByte(IMUL);
+                        break;
+                    case Opcode.DIVIDE:
+                        body.writeByte(IDIV);
+                        break;
+                }
+                if (method.size() >= MAX_CODE) {
+                    return(null);
+                }
+            }
+            body.writeByte(IRETURN);
+            codeLength = method.size();
+
+            bytes = new ByteArrayOutputStream(codeLength + 256);
+            out = new DataOutputStream(bytes);
+
+            /*
+             *  Header, then the constant pool.
+             */
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(constantCount);
+            for (String utf8 : fixedConstants) {
+                out.writeByte(1);
+                out.writeUTF(utf8);
+            }
+            /*
+             *  The class and method entries refer back to the names.
+             */
+            out.writeByte(7);
+            out.writeShort(THIS_NAME);
+            out.writeByte(7);
+            out.writeShort(OBJECT_NAME);
+            out.writeByte(7);
+            out.writeShort(EVALUATOR_NAME);
+            out.writeByte(12);
+            out.writeShort(INIT_NAME);
+            out.writeShort(INIT_TYPE);
+            out.writeByte(10);
+            out.writeShort(OBJECT_CLASS);
+            out.writeShort(INIT_NAME_TYPE);
+            for (java.lang.Integer value : constantValues) {
+                out.writeByte(3);
+                out.writeInt(value);
+            }
+
+            /*
+             *  public final class implementing Evaluator, no fields.
+             */
+            out.writeShort(0x0031);
+            out.writeShort(THIS_CLASS);
+            out.writeShort(OBJECT_CLASS);
+            out.writeShort(1);
+            out.writeShort(EVALUATOR_CLASS);
+            out.writeShort(0);
+
+            /*
+             *  The constructor only calls Object's.
+             */
+            out.writeShort(2);
+            out.writeShort(0x0001);
+            out.writeShort(INIT_NAME);
+            out.writeShort(INIT_TYPE);
+            out.writeShort(1);
+            out.writeShort(CODE_NAME);
+            out.writeInt(12 + 5);
+            out.writeShort(1);
+            out.writeShort(1);
+            out.writeInt(5);
+            out.writeByte(ALOAD_0);
+            out.writeByte(INVOKESPECIAL);
+            out.writeShort(OBJECT_INIT);
+            out.writeByte(RETURN);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            /*
+             *  evaluate() is our instructions.
+             */
+            out.writeShort(0x0001);
+            out.writeShort(EVALUATE_NAME);
+            out.writeShort(EVALUATE_TYPE);
+            out.writeShort(1);
+            out.writeShort(CODE_NAME);
+            out.writeInt(12 + codeLength);
+            out.writeShort(maxStack);
+            out.writeShort(2);
+            out.writeInt(codeLength);
+            method.writeTo(out);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            out.writeShort(0);
+        } catch (IOException exception) {
+            /*
+             *  Can't happen writing to memory.
+             */
+            throw(new UncheckedIOException(exception));
+        }
+
+        return(bytes.toByteArray());
+    }
+
+    /**
+     *  Unit test our {@code JitExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             whichTest;
+        String          tooBig;
+        ArrayList<String>   terms;
+        /*
+         *  The items in this array are expressions to generate
+         *  classes for.  Each is checked against its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "2 + 5 - 1 * 5 / 2",
+                "(100 + 200) * (30000 - 40000) / (5 + (6 - 7))",
+                "2147483647 + 1 + 2147483647 + 70000",
+                "7 / (3 - 3)",
+                null,
+        };
+
+        /*
+         *  The last test is too big for one JVM method.  It's a
+         *  balanced sum so walking it doesn't need a deep stack.
+         */
+        terms = new ArrayList<>();
+        while (terms.size() < MAX_CODE / 2) {
+            terms.add("1000000");
+        }
+        while (terms.size() > 1) {
+            ArrayList<String>   sums;
+
+            sums = new ArrayList<>();
+            for (whichTest = 0; (whichTest + 1 < terms.size());
+                 whichTest += 2) {
+                sums.add("(" + terms.get(whichTest) + " + " +
+                         terms.get(whichTest + 1) + ")");
+            }
+            if (whichTest < terms.size()) {
+                sums.add(terms.get(whichTest));
+            }
+            terms = sums;
+        }
+        tooBig = terms.get(0);
+        toTest[toTest.length - 1] = tooBig;
+
+        errors = 0;
+        for (String which : toTest) {
+            int             expected;
+            int             getValue;
+            Expression      expression;
+            JitExpression   jit;
+
+            System.out.println("Trying to generate:\n" + "  \"" +
+                               ((which.length() > 60) ?
+                                    which.substring(0, 60) + "..." :
+                                    which) + "\"");
+            try {
+                expression = new Expression(which);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            jit = new JitExpression(expression, 1);
+
+            try {
+                expected = expression.getValue();
+            } catch (ArithmeticException exception) {
+                try {
+                    jit.getValue();
+                    jit.getValue();
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " should throw " + exception);
+                    ++errors;
+                } catch (ArithmeticException expectedException) {
+                    System.out.println("Throws " + expectedException);
+                }
+                continue;
+            }
+
+            /*
+             *  The first call walks the tree and the second uses the
+             *  generated class, if there is one.
+             */
+            getValue = jit.getValue();
+            if ((getValue != expected) || (jit.isGenerated() == true)) {
+                System.out.println("*** ERROR *** tree walk returns " +
+                                   getValue + " should be " + expected);
+                ++errors;
+            }
+            getValue = jit.getValue();
+            System.out.println("Evaluates to: " + getValue +
+                               ((jit.isGenerated() == true) ?
+                                    " generated" : " walking the tree"));
+            if (getValue != expected) {
+                System.out.println("*** ERROR *** getValue()" +
+                                   " returns " + getValue +
+                                   " should be " + expected);
+                ++errors;
+            }
+            if (jit.isGenerated() != (which != tooBig)) {
+                System.out.println("*** ERROR *** isGenerated()" +
+                                   " returns " + jit.isGenerated());
+                ++errors;
+            }
+        }
+
+        /*
+         *  Variables come from the array given to evaluate().
+         */
+        try {
+            int             variables[]     = { 1000, 0, 70000 };
+            JitExpression   jit;
+
+            jit = new JitExpression(new Expression("x * 3 - y / z"), 0);
+            variables[jit.getVariableSlot("y")] = 350000;
+            if ((jit.getValue(variables) != 2995) ||
+                (jit.isGenerated() == false)) {
+                System.out.println("*** ERROR *** getValue(variables)" +
+                                   " returns " + jit.getValue(variables) +
+                                   " should be 2995");
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        /*
+         *  Without values for its variables, every call complains the
+         *  way the tree does, before the class is generated, as it's
+         *  generated and after.
+         */
+        try {
+            JitExpression   jit;
+
+            jit = new JitExpression(new Expression("x + 1"), 2);
+            for (whichTest = 0; (whichTest < 5); ++whichTest) {
+                try {
+                    jit.getValue();
+                    System.out.println("*** ERROR *** getValue() call " +
+                                       whichTest + " without variables" +
+                                       " should throw");
+                    ++errors;
+                } catch (IllegalStateException exception) {
+                    System.out.println("Throws " + exception);
+                } catch (RuntimeException exception) {
+                    System.out.println("*** ERROR *** getValue() call " +
+                                       whichTest + " throws " + exception);
+                    ++errors;
+                }
+                if (jit.getValue(new int[] { whichTest }) != whichTest + 1) {
+                    System.out.println("*** ERROR *** x + 1 with x = " +
+                                       whichTest);
+                    ++errors;
+                }
+            }
+            if (jit.isGenerated() == false) {
+                System.out.println("*** ERROR *** class not generated" +
+                                   " for x + 1");
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package expressions;
+
+import java.text.*;
+
+/**
+ *  {@code Lexer} is the class that walks a {@code CharSequence} and
+ *  hands out one token at a time without creating any {@code String}.
+ *  Each call to {@link #next()} reports the kind of the token found
+ *  along with its start and end offsets in the input.  Numbers are
+ *  converted to their {@code int} value as they are scanned.
+ *  <p>
+ *  The rules are the same ones {@link Parse#parse(String)} has always
+ *  used: whitespace separates tokens, a token starting with a digit
+ *  is all digits, a token starting with a letter is letters and
+ *  digits, and anything else is a token of one character.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public final class  Lexer
+{
+    /**
+     *  The kind returned when there are no more tokens.
+     */
+    public static final int     END         = 0;
+    /**
+     *  The kind returned for a token made up of digits.
+     */
+    public static final int     NUMBER      = 1;
+    /**
+     *  The kind returned for a token starting with a letter.
+     */
+    public static final int     IDENTIFIER  = 2;
+    /**
+     *  The kind returned for a single character token that is not
+     *  a letter, digit or whitespace.
+     */
+    public static final int     OPERATOR    = 3;
+
+    private CharSequence    input;
+    private int             position;
+    private int             kind;
+    private int             start;
+    private int             end;
+    private int             intValue;
+    private boolean         overflow;
+
+    /**
+     *  Construct a {@code Lexer} positioned at the start of the
+     *  given input.
+     *  @param input The characters to break into tokens.
+     */
+    public      Lexer(CharSequence input)
+    {
+        reset(input);
+    }
+
+    /**
+     *  Point this {@code Lexer} at new input so it can be reused
+     *  without allocating another one.
+     *  @param input The characters to break into tokens.
+     */
+    public void reset(CharSequence input)
+    {
+        this.input = input;
+        position = 0;
+        kind = END;
+        start = 0;
+        end = 0;
+        intValue = 0;
+        overflow = false;
+    }
+
+    /**
+     *  Advance to the next token.
+     *  @return The kind of the token found, {@link #END} when the
+     *  input is used up.
+     *  @throws ParseException When a letter follows the digits of
+     *  a number.
+     */
+    public int  next()
+            throws ParseException
+    {
+        int     length;
+        char    thisChar;
+
+        length = input.length();
+
+        /*
+         *  Whitespace only separates tokens.
+         */
+        while ((position < length) &&
+               (Character.isWhitespace(input.charAt(position)) == true)) {
+            ++position;
+        }
+
+        start = position;
+        intValue = 0;
+        overflow = false;
+        if (position >= length) {
+            end = position;
+            kind = END;
+            return(kind);
+        }
+
+        thisChar = input.charAt(position);
+        if (Character.isDigit(thisChar) == true) {
+            /*
+             *  Collect the digits and their value as we go.  Once
+             *  the value no longer fits in an int we keep scanning
+             *  so the token still ends in the right place.
+             */
+            while ((position < length) &&
+                   (Character.isDigit(input.charAt(position)) == true)) {
+                int     digit;
+
+                digit = Character.digit(input.charAt(position), 10);
+                if ((overflow == false) &&
+                    (intValue > (java.lang.Integer.MAX_VALUE - digit) /
+                                        10)) {
+                    overflow = true;
+                }
+                intValue = intValue * 10 + digit;
+                ++position;
+            }
+
+            if ((position < length) &&
+                (Character.isLetter(input.charAt(position)) == true)) {
+                /*
+                 *  A letter can't be part of a number.
+                 */
+                throw(new ParseException("Didn't expect a" +
+                                         " letter at position " +
+                                         position, position));
+            }
+
+            end = position;
+            kind = NUMBER;
+            return(kind);
+        }
+
+        if (Character.isLetter(thisChar) == true) {
+            /*
+             *  Identifiers may carry on with letters or digits.
+             */
+            while ((position < length) &&
+                   (Character.isLetterOrDigit(input.charAt(position)) ==
+                                        true)) {
+                ++position;
+            }
+
+            end = position;
+            kind = IDENTIFIER;
+            return(kind);
+        }
+
+        /*
+         *  Anything else is a token of its own.
+         */
+        ++position;
+        end = position;
+        kind = OPERATOR;
+        return(kind);
+    }
+
+    /**
+     *  Return the kind of the current token.
+     *  @return The kind returned by the last call to {@link #next()}.
+     */
+    public int  getKind()
+    {
+        return(kind);
+    }
+
+    /**
+     *  Return the offset of the first character of the current token.
+     *  @return The offset of the first character of the current token.
+     */
+    public int  getStart()
+    {
+        return(start);
+    }
+
+    /**
+     *  Return the offset just past the current token.
+     *  @return The offset just past the last character of the
+     *  current token.
+     */
+    public int  getEnd()
+    {
+        return(end);
+    }
+
+    /**
+     *  Return the value of the current {@link #NUMBER} token.
+     *  @return The value of the current number.  Only meaningful
+     *  when {@link #isOverflow()} is {@code false}.
+     */
+    public int  getIntValue()
+    {
+        return(intValue);
+    }
+
+    /**
+     *  Tell whether the current {@link #NUMBER} token is too big for
+     *  an {@code int}.
+     *  @return {@code true} when the number doesn't fit in an
+     *  {@code int}.
+     */
+    public boolean  isOverflow()
+    {
+        return(overflow);
+    }
+
+    /**
+     *  Return the character of the current {@link #OPERATOR} token.
+     *  @return The first character of the current token.
+     */
+    public char getOperator()
+    {
+        return(input.charAt(start));
+    }
+
+    /**
+     *  Return the input this {@code Lexer} is walking.
+     *  @return The input given when constructed or last reset.
+     */
+    public CharSequence getInput()
+    {
+        return(input);
+    }
+
+    /**
+     *  Unit test our lexer.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int     errors;
+        int     whichTest;
+        /*
+         *  The items in this array are strings to scan.  Each
+         *  corresponds to the kinds, offsets and values in the
+         *  following arrays at the same index.
+         */
+        String  toScan[]    = {
+            "12 + 345",
+            " george1*7 ",
+            "2147483647 2147483648",
+            "12ab",
+        };
+        /*
+         *  Each token is described by kind, start, end and value.
+         *  A null entry means we expect an exception.
+         */
+        int     scanResults[][]     = {
+            {NUMBER, 0, 2, 12, OPERATOR, 3, 4, 0, NUMBER, 5, 8, 345},
+            {IDENTIFIER, 1, 8, 0, OPERATOR, 8, 9, 0, NUMBER, 9, 10, 7},
+            {NUMBER, 0, 10, java.lang.Integer.MAX_VALUE,
+             NUMBER, 11, 21, -1},
+            null,
+        };
+
+        errors = 0;
+        for (whichTest = 0; (whichTest < toScan.length); ++whichTest) {
+            int     which;
+            int     theseResults[];
+            Lexer   lexer;
+
+            System.out.println("Trying to scan:\n" +
+                               "  \"" + toScan[whichTest] + "\"");
+            theseResults = scanResults[whichTest];
+            lexer = new Lexer(toScan[whichTest]);
+            try {
+                for (which = 0; (lexer.next() != END); which += 4) {
+                    if ((theseResults == null) ||
+                        (which >= theseResults.length)) {
+                        System.out.println("*** ERROR *** Extra token" +
+                                           " at " + lexer.getStart());
+                        ++errors;
+                        break;
+                    }
+                    if ((lexer.getKind() != theseResults[which]) ||
+                        (lexer.getStart() != theseResults[which + 1]) ||
+                        (lexer.getEnd() != theseResults[which + 2])) {
+                        System.out.println("*** ERROR *** Token at " +
+                                           lexer.getStart() +
+                                           " doesn't match");
+                        ++errors;
+                    }
+                    if ((lexer.getKind() == NUMBER) &&
+                        (((theseResults[which + 3] < 0) !=
+                                        lexer.isOverflow()) ||
+                         ((lexer.isOverflow() == false) &&
+                          (lexer.getIntValue() !=
+                                        theseResults[which + 3])))) {
+                        System.out.println("*** ERROR *** Value " +
+                                           lexer.getIntValue() +
+                                           " should be " +
+                                           theseResults[which + 3]);
+                        ++errors;
+                    }
+                }
+                if ((theseResults != null) &&
+                    (which < theseResults.length)) {
+                    System.out.println("*** ERROR *** Missing token" +
+                                       " at " + theseResults[which + 1]);
+                    ++errors;
+                }
+            } catch (ParseException exception) {
+                if (theseResults != null) {
+                    System.out.println("*** ERROR *** at position " +
+                                       exception.getErrorOffset());
+                    ++errors;
+                }
+                exception.printStackTrace(System.out);
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
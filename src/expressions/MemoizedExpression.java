@@ -0,0 +1,363 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code MemoizedExpression} is the class that extends
+ *  {@code Expression} so that asking for the value of the same tree
+ *  over and over costs nothing after the first time.  Every operation
+ *  in the tree is copied into a node that remembers its value once
+ *  it's been worked out.  Constants and variables are shared with the
+ *  original tree, and parentheses are left out since the shape of the
+ *  tree already says what is grouped.  An operation used in more
+ *  than one place, as in the trees an {@link ExpressionInterner}
+ *  builds, is copied once, so its value is only worked out once.
+ *  <p>
+ *  Any number of threads may ask for the value at once without
+ *  locking.  Values computed with {@link #getValue(int[])} depend on
+ *  the variables so they aren't remembered, and a tree deeper than
+ *  {@link IterativeExpression#DEPTH_THRESHOLD} is evaluated for them
+ *  with an explicit stack.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    MemoizedExpression extends Expression
+{
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final Expression    original;
+    private final Expression    memoized;
+    private final Expression    guarded;
+
+    /**
+     *  Construct a {@code MemoizedExpression} from the given tree.
+     *  The tree is copied with an explicit stack, so its depth
+     *  doesn't matter.  No value is worked out until it's asked for.
+     *  @param expression The tree to evaluate.
+     */
+    public      MemoizedExpression(Expression expression)
+    {
+        int             top;
+        int             resultTop;
+        Expression      nodes[];
+        int             visits[];
+        Expression      results[];
+        IdentityHashMap<Expression, Expression> copies;
+
+        /*
+         *  Nodes waiting to be copied remember how many of their
+         *  operands they've handed to us.  Copied operands wait on
+         *  the results stack.  Operations already copied are found
+         *  in the copies.
+         */
+        copies = new IdentityHashMap<>();
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new Expression[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (resultTop == results.length) {
+                results = Arrays.copyOf(results, resultTop * 2);
+            }
+
+            opcode = (node == null) ? Opcode.LITERAL : node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    results[resultTop++] = (node == null) ?
+                                                Integer.valueOf(0) : node;
+                    --top;
+                    break;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    break;
+                default:
+                    if (visits[top - 1] == 0) {
+                        Expression  copy;
+
+                        copy = copies.get(node);
+                        if (copy != null) {
+                            results[resultTop++] = copy;
+                            --top;
+                            break;
+                        }
+                    }
+                    if (visits[top - 1] == 2) {
+                        --resultTop;
+                        results[resultTop - 1] =
+                                    new MemoizedNode(opcode,
+                                                     results[resultTop - 1],
+                                                     results[resultTop]);
+                        results[resultTop] = null;
+                        copies.put(node, results[resultTop - 1]);
+                        --top;
+                        break;
+                    }
+
+                    if (top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                        visits = Arrays.copyOf(visits, top * 2);
+                    }
+                    nodes[top] = node.getOperand(visits[top - 1]);
+                    visits[top] = 0;
+                    ++visits[top - 1];
+                    ++top;
+                    break;
+            }
+        }
+
+        original = expression;
+        memoized = results[0];
+        guarded = IterativeExpression.guard(memoized);
+    }
+
+    /**
+     *  Return the value of the expression, working it out only the
+     *  first time.
+     *  @return The same value as {@code getValue()} on the original
+     *  tree.
+     */
+    public int  getValue()
+    {
+        return(memoized.getValue());
+    }
+
+    /**
+     *  Evaluate the expression using the given values for its
+     *  variables and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on the
+     *  original tree.
+     */
+    public int  getValue(int variables[])
+    {
+        return(guarded.getValue(variables));
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The tree of nodes that remember their values.
+     */
+    Expression  getOperand(int which)
+    {
+        return(memoized);
+    }
+
+    /**
+     *  Return the original tree as a {@code String}.
+     *  @return The original tree as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + original);
+    }
+
+    /**
+     *  Write the original tree, as {@link #toString()} returns it.
+     *  @param out Where to write the tree.
+     *  @throws java.io.IOException When {@code out} fails.
+     */
+    public void writeTo(Appendable out)
+            throws java.io.IOException
+    {
+        if (original == null) {
+            out.append("null");
+            return;
+        }
+        original.writeTo(out);
+    }
+
+    /**
+     *  Unit test our {@code MemoizedExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        int             terms;
+        StringBuilder   deep;
+        Thread          threads[];
+        final int       results[];
+        /*
+         *  The items in this array are expressions to evaluate.  Each
+         *  is checked against its tree.
+         */
+        String          toTest[]    = {
+                "1",
+                "2 + 5 - 1 * 5 / 2",
+                "(1 + 2) * (3 - 4) / (5 + (6 - 7))",
+                "7 / (3 - 3)",
+                null,
+        };
+
+        /*
+         *  The last test is too deep to walk recursively.
+         */
+        terms = 200000;
+        deep = new StringBuilder("1");
+        for (which = 1; (which < terms); ++which) {
+            deep.append(" + 1");
+        }
+        toTest[toTest.length - 1] = deep.toString();
+
+        errors = 0;
+        for (String test : toTest) {
+            int                 expected;
+            Expression          expression;
+            MemoizedExpression  memoized;
+
+            System.out.println("Trying to evaluate:\n" + "  \"" +
+                               ((test.length() > 60) ?
+                                    test.substring(0, 60) + "..." :
+                                    test) + "\"");
+            try {
+                expression = new Expression(test);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            memoized = new MemoizedExpression(expression);
+
+            if (test == toTest[toTest.length - 1]) {
+                expected = terms;
+            } else {
+                try {
+                    expected = expression.getValue();
+                } catch (ArithmeticException exception) {
+                    for (which = 0; (which < 2); ++which) {
+                        try {
+                            memoized.getValue();
+                            System.out.println("*** ERROR ***" +
+                                               " getValue() should" +
+                                               " throw " + exception);
+                            ++errors;
+                        } catch (ArithmeticException expectedException) {
+                            System.out.println("Throws " +
+                                               expectedException);
+                        }
+                    }
+                    continue;
+                }
+            }
+
+            for (which = 0; (which < 2); ++which) {
+                if (memoized.getValue() != expected) {
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " returns " +
+                                       memoized.getValue() +
+                                       " should be " + expected);
+                    ++errors;
+                }
+            }
+        }
+
+        /*
+         *  Values for variables are worked out every time, and a deep
+         *  tree doesn't use up the stack doing it.
+         */
+        deep = new StringBuilder("x");
+        for (which = 1; (which < terms); ++which) {
+            deep.append(" - 1");
+        }
+        try {
+            Parser              parser;
+            MemoizedExpression  variable;
+
+            parser = new Parser();
+            parser.setMaxDepth(terms);
+            variable = new MemoizedExpression(new Expression(
+                                                    deep.toString(),
+                                                    parser));
+            for (which = 0; (which < 2); ++which) {
+                if (variable.getValue(new int[] { which }) !=
+                                                    which - terms + 1) {
+                    System.out.println("*** ERROR *** deep getValue()" +
+                                       " returns " +
+                                       variable.getValue(
+                                                new int[] { which }));
+                    ++errors;
+                }
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        } catch (StackOverflowError error) {
+            System.out.println("*** ERROR *** " + error);
+            ++errors;
+        }
+
+        /*
+         *  An operation shared by an interned tree is copied once.
+         */
+        try {
+            Parser              parser;
+            MemoizedExpression  shared;
+
+            parser = new Parser();
+            parser.setInterner(new ExpressionInterner());
+            shared = new MemoizedExpression(
+                            parser.parse("(7 * 6) + (7 * 6)"));
+            if ((shared.getValue() != 84) ||
+                (shared.getOperand(0).getOperand(0) !=
+                            shared.getOperand(0).getOperand(1))) {
+                System.out.println("*** ERROR *** shared operation" +
+                                   " copied twice");
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        /*
+         *  Many threads asking for the same value all get it.
+         */
+        try {
+            final MemoizedExpression    shared;
+
+            shared = new MemoizedExpression(
+                            new Expression("(1 + 2) * (3 + 4) - 5 / 1"));
+            threads = new Thread[8];
+            results = new int[threads.length];
+            for (which = 0; (which < threads.length); ++which) {
+                final int   slot;
+
+                slot = which;
+                threads[which] = new Thread(() ->
+                                        results[slot] = shared.getValue());
+                threads[which].start();
+            }
+            for (which = 0; (which < threads.length); ++which) {
+                threads[which].join();
+                if (results[which] != 16) {
+                    System.out.println("*** ERROR *** thread " + which +
+                                       " got " + results[which] +
+                                       " should be 16");
+                    ++errors;
+                }
+            }
+        } catch (ParseException | InterruptedException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package expressions;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+/**
+ *  {@code MemoizedNode} is the class that extends {@code Expression}
+ *  to provide a binary operation that works out its value the first
+ *  time it's asked and simply returns it after that.
+ *  <p>
+ *  The value is published with a release store of a flag after the
+ *  value is written, and read back with an acquire load of the flag
+ *  before the value is read.  So any thread that sees the flag set
+ *  also sees the value, without locking.  Two threads asking at once
+ *  may both work the value out; they get the same answer.  A
+ *  division by zero isn't remembered, so it throws every time.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+final class     MemoizedNode extends Expression
+{
+    private static final int        INITIAL_SIZE    = 16;
+    private static final VarHandle  DONE;
+
+    static {
+        try {
+            DONE = MethodHandles.lookup().findVarHandle(
+                                            MemoizedNode.class, "done",
+                                            boolean.class);
+        } catch (ReflectiveOperationException exception) {
+            throw(new ExceptionInInitializerError(exception));
+        }
+    }
+
+    private final int           opcode;
+    private final Expression    left;
+    private final Expression    right;
+    private int                 value;
+    private boolean             done;
+
+    /**
+     *  Construct a {@code MemoizedNode} for the given operation.
+     *  @param opcode One of {@link Opcode#ADD},
+     *  {@link Opcode#SUBTRACT}, {@link Opcode#MULTIPLY} or
+     *  {@link Opcode#DIVIDE}.
+     *  @param left The left-hand operand.
+     *  @param right The right-hand operand.
+     */
+    MemoizedNode(int opcode, Expression left, Expression right)
+    {
+        this.opcode = opcode;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     *  Return our value, working it out the first time.
+     *  @return The value of our operation.
+     */
+    public int  getValue()
+    {
+        if ((boolean)DONE.getAcquire(this) == true) {
+            return(value);
+        }
+
+        return(compute());
+    }
+
+    /**
+     *  Return our value using the given values for any variables.
+     *  Since the value depends on the variables it isn't remembered.
+     *  This recurses once per level, so {@link MemoizedExpression}
+     *  hands a deeper tree to an {@link IterativeExpression} instead.
+     *  @param variables The value of each variable by slot.
+     *  @return The value of our operation.
+     */
+    public int  getValue(int variables[])
+    {
+        return(apply(opcode, left.getValue(variables),
+                     right.getValue(variables)));
+    }
+
+    /*
+     *  Helper method to work out and publish the value of every node
+     *  below us that doesn't have one yet, then our own.  It uses an
+     *  explicit stack so a deep tree doesn't use up the thread's.
+     */
+    private int compute()
+    {
+        int             top;
+        MemoizedNode    nodes[];
+
+        nodes = new MemoizedNode[INITIAL_SIZE];
+        nodes[0] = this;
+        top = 1;
+        while (top > 0) {
+            MemoizedNode    node;
+            MemoizedNode    pending;
+
+            node = nodes[top - 1];
+            pending = node.pending(node.left);
+            if (pending == null) {
+                pending = node.pending(node.right);
+            }
+            if (pending != null) {
+                if (top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top * 2);
+                }
+                nodes[top++] = pending;
+                continue;
+            }
+
+            node.value = apply(node.opcode, node.left.getValue(),
+                               node.right.getValue());
+            DONE.setRelease(node, true);
+            --top;
+        }
+
+        return(value);
+    }
+
+    /*
+     *  Helper method to return an operand if it's a MemoizedNode
+     *  without a value yet.
+     */
+    private MemoizedNode    pending(Expression operand)
+    {
+        if ((operand instanceof MemoizedNode) &&
+            ((boolean)DONE.getAcquire(operand) == false)) {
+            return((MemoizedNode)operand);
+        }
+
+        return(null);
+    }
+
+    /*
+     *  Helper method to apply an operator to two values.
+     */
+    private static int  apply(int opcode, int left, int right)
+    {
+        switch (opcode) {
+            case Opcode.ADD:
+                return(left + right);
+            case Opcode.SUBTRACT:
+                return(left - right);
+            case Opcode.MULTIPLY:
+                return(left * right);
+        }
+
+        return(left / right);
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return The opcode of our operation.
+     */
+    int getOpcode()
+    {
+        return(opcode);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which 0 for the left-hand operand, 1 for the right.
+     *  @return The operand asked for.
+     */
+    Expression  getOperand(int which)
+    {
+        return((which == 0) ? left : right);
+    }
+}
@@ -0,0 +1,59 @@
+package expressions;
+
+import java.text.*;
+
+/**
+ *  {@code MetricsListener} is the interface for anything that wants
+ *  to hear about each expression {@link ExpressionMetrics} counts,
+ *  such as a bridge to some other metrics library.  Every method does
+ *  nothing unless overridden, so a listener need only implement what
+ *  it cares about.  The methods are called on the thread doing the
+ *  work, so they should be quick and must not throw.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public interface    MetricsListener
+{
+    /**
+     *  Some text has been broken into tokens by {@link Parse}.
+     *  @param length The length of the text.
+     *  @param tokens The number of tokens.
+     *  @param nanos How long it took.
+     */
+    default void    tokenized(int length, int tokens, long nanos)
+    {
+    }
+
+    /**
+     *  Some text has been built into a tree by a {@link Parser}.
+     *  @param length The length of the text.
+     *  @param tokens The number of tokens.
+     *  @param depth How many nodes deep the tree is.
+     *  @param size How many nodes the tree has.
+     *  @param nanos How long it took, including breaking the text
+     *  into tokens.
+     */
+    default void    parsed(int length, int tokens, int depth, int size,
+                           long nanos)
+    {
+    }
+
+    /**
+     *  Some text didn't parse.
+     *  @param length The length of the text.
+     *  @param exception Why it didn't parse.
+     *  @param nanos How long it took to find out.
+     */
+    default void    parseFailed(int length, ParseException exception,
+                                long nanos)
+    {
+    }
+
+    /**
+     *  An {@link Expression} has been evaluated.
+     *  @param nanos How long it took.
+     */
+    default void    evaluated(long nanos)
+    {
+    }
+}
@@ -3,7 +3,7 @@ package expressions;
 /**
  *  {@code Multiplication} is the class that extends Expression to
  *  provide a product of two other expressions.
- *  @version 2022092200
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class Multiplication extends Expression
@@ -18,8 +18,14 @@ public class Multiplication extends Expression
      */
     public static final int     priority    = '2';
 
-    private Expression  multiplicand;
-    private Expression  multiplier;
+    /**
+     *  Whether {@code Multiplication} groups from the right when next
+     *  to an operator of the same priority.
+     */
+    public static final boolean rightAssociative = false;
+
+    private final Expression    multiplicand;
+    private final Expression    multiplier;
 
     /**
      *  Construct an instance of {@code Multiplication} that evaluates
@@ -43,12 +49,34 @@ public class Multiplication extends Expression
     }
 
     /**
-     *  Return our expression as a {@code String}.
-     *  @return Our expression as a {@code String}.
+     *  Return the product of our operands using the given values
+     *  for any variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The product of our operands.
+     */
+    public int  getValue(int variables[])
+    {
+        return(multiplicand.getValue(variables) *
+               multiplier.getValue(variables));
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#MULTIPLY}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.MULTIPLY);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which 0 for the multiplicand, 1 for the multiplier.
+     *  @return The operand asked for.
      */
-    public String toString()
+    Expression  getOperand(int which)
     {
-        return(multiplicand + " " + operator + " " + multiplier);
+        return((which == 0) ? multiplicand : multiplier);
     }
 
     /**
@@ -0,0 +1,102 @@
+package expressions;
+
+/**
+ *  {@code Opcode} holds the numbers each kind of {@code Expression}
+ *  reports from {@link Expression#getOpcode()}.  Code that walks a
+ *  tree without calling {@code getValue()} switches on these, and
+ *  the flat forms of a tree use the same numbers for their
+ *  instructions.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+final class     Opcode
+{
+    /**
+     *  An {@link Integer} constant.
+     */
+    static final int    LITERAL     = 0;
+    /**
+     *  An {@link Addition}.
+     */
+    static final int    ADD         = 1;
+    /**
+     *  A {@link Subtraction}.
+     */
+    static final int    SUBTRACT    = 2;
+    /**
+     *  A {@link Multiplication}.
+     */
+    static final int    MULTIPLY    = 3;
+    /**
+     *  A {@link Division}.
+     */
+    static final int    DIVIDE      = 4;
+    /**
+     *  A {@link Parenthesis} around its one operand.
+     */
+    static final int    GROUP       = 5;
+    /**
+     *  A plain {@link Expression} that only passes its one operand
+     *  through.
+     */
+    static final int    EXPRESSION  = 6;
+    /**
+     *  A {@link Variable}.  In a program it is followed by the
+     *  variable's slot.
+     */
+    static final int    VARIABLE    = 7;
+
+    /*
+     *  Make sure noone can instantiate this class.
+     */
+    private Opcode()
+    {
+    }
+
+    /**
+     *  Return the operator character printed for a binary opcode.
+     *  @param opcode One of {@link #ADD}, {@link #SUBTRACT},
+     *  {@link #MULTIPLY} or {@link #DIVIDE}.
+     *  @return The operator character.
+     */
+    static char operator(int opcode)
+    {
+        switch (opcode) {
+            case ADD:
+                return(Addition.operator);
+            case SUBTRACT:
+                return(Subtraction.operator);
+            case MULTIPLY:
+                return(Multiplication.operator);
+            case DIVIDE:
+                return(Division.operator);
+        }
+
+        throw(new IllegalArgumentException("Not a binary opcode " +
+                                           opcode));
+    }
+
+    /**
+     *  Return the binary opcode for an operator character.
+     *  @param operator The operator character.
+     *  @return One of {@link #ADD}, {@link #SUBTRACT},
+     *  {@link #MULTIPLY} or {@link #DIVIDE}.
+     *  @throws IllegalArgumentException When the operator is unknown.
+     */
+    static int  opcode(char operator)
+    {
+        switch (operator) {
+            case Addition.operator:
+                return(ADD);
+            case Subtraction.operator:
+                return(SUBTRACT);
+            case Multiplication.operator:
+                return(MULTIPLY);
+            case Division.operator:
+                return(DIVIDE);
+        }
+
+        throw(new IllegalArgumentException("Unknown operator '" +
+                                           operator + "'"));
+    }
+}
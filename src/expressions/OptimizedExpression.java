@@ -0,0 +1,505 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code OptimizedExpression} is the class that extends
+ *  {@code Expression} to evaluate a simplified copy of a tree while
+ *  still printing the tree as it was written.  Simplifying
+ *  <ul>
+ *  <li>folds every operation on two constants into one
+ *  {@link Integer},</li>
+ *  <li>drops {@code x + 0}, {@code 0 + x}, {@code x - 0},
+ *  {@code x * 1}, {@code 1 * x} and {@code x / 1} down to
+ *  {@code x},</li>
+ *  <li>turns {@code x * 0} and {@code 0 * x} into {@code 0} as long
+ *  as {@code x} can't divide by zero, and</li>
+ *  <li>removes every {@link Parenthesis}, since the shape of the tree
+ *  already says what is grouped.</li>
+ *  </ul>
+ *  A division by a constant zero is never folded, so it still throws
+ *  when evaluated.  Parts of the tree that don't change are shared
+ *  with the original rather than copied.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    OptimizedExpression extends Expression
+{
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final Expression    original;
+    private final Expression    optimized;
+    private final int           removed;
+    private final boolean       hasVariables;
+
+    /**
+     *  Construct an {@code OptimizedExpression} from the given tree.
+     *  The tree is walked once with an explicit stack, so its depth
+     *  doesn't matter, and a simplified tree deeper than
+     *  {@link IterativeExpression#DEPTH_THRESHOLD} is wrapped in an
+     *  {@link IterativeExpression}, as the {@link Parser} would do.
+     *  @param expression The tree to simplify.
+     */
+    public      OptimizedExpression(Expression expression)
+    {
+        int             top;
+        int             resultTop;
+        int             visited;
+        boolean         variables;
+        Expression      nodes[];
+        int             visits[];
+        Expression      results[];
+        boolean         traps[];
+        int             sizes[];
+
+        /*
+         *  Nodes waiting to be simplified remember how many of their
+         *  operands they've handed to us.  Simplified operands wait
+         *  on the results stack along with whether they might divide
+         *  by zero and how many nodes they're made of.
+         */
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new Expression[INITIAL_SIZE];
+        traps = new boolean[INITIAL_SIZE];
+        sizes = new int[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        visited = 0;
+        variables = false;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (resultTop + 1 >= results.length) {
+                results = Arrays.copyOf(results, results.length * 2);
+                traps = Arrays.copyOf(traps, traps.length * 2);
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+
+            if (node == null) {
+                /*
+                 *  An empty Expression evaluates to zero.
+                 */
+                results[resultTop] = Integer.valueOf(0);
+                traps[resultTop] = false;
+                sizes[resultTop] = 1;
+                ++resultTop;
+                --top;
+                continue;
+            }
+
+            opcode = node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    ++visited;
+                    variables |= (opcode == Opcode.VARIABLE);
+                    results[resultTop] = node;
+                    traps[resultTop] = false;
+                    sizes[resultTop] = 1;
+                    ++resultTop;
+                    --top;
+                    break;
+                case Opcode.GROUP:
+                    /*
+                     *  Only the operand inside matters.
+                     */
+                    ++visited;
+                    nodes[top - 1] = node.getOperand(0);
+                    break;
+                case Opcode.EXPRESSION:
+                    /*
+                     *  Not a node of the tree itself, so nothing is
+                     *  removed by looking through it.
+                     */
+                    nodes[top - 1] = node.getOperand(0);
+                    break;
+                default:
+                    if (visits[top - 1] == 2) {
+                        ++visited;
+                        resultTop -= 1;
+                        simplify(node, opcode, results, traps, sizes,
+                                 resultTop - 1);
+                        results[resultTop] = null;
+                        --top;
+                        break;
+                    }
+
+                    if (top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                        visits = Arrays.copyOf(visits, top * 2);
+                    }
+                    nodes[top] = node.getOperand(visits[top - 1]);
+                    visits[top] = 0;
+                    ++visits[top - 1];
+                    ++top;
+                    break;
+            }
+        }
+
+        original = expression;
+        optimized = IterativeExpression.guard(results[0]);
+        removed = visited - sizes[0];
+        hasVariables = variables;
+    }
+
+    /*
+     *  Helper method to simplify a binary node whose simplified
+     *  operands are at the given index of the results stack and the
+     *  one after it.  The simplified node replaces the left-hand
+     *  operand.
+     */
+    private static void simplify(Expression node, int opcode,
+                                 Expression results[], boolean traps[],
+                                 int sizes[], int which)
+    {
+        int         leftValue;
+        int         rightValue;
+        boolean     leftLiteral;
+        boolean     rightLiteral;
+        Expression  left;
+        Expression  right;
+        Expression  simplified;
+        boolean     trap;
+
+        left = results[which];
+        right = results[which + 1];
+        leftLiteral = (left.getOpcode() == Opcode.LITERAL);
+        rightLiteral = (right.getOpcode() == Opcode.LITERAL);
+        leftValue = (leftLiteral == true) ? left.getValue() : 0;
+        rightValue = (rightLiteral == true) ? right.getValue() : 0;
+        trap = traps[which] || traps[which + 1];
+
+        if ((leftLiteral == true) && (rightLiteral == true) &&
+            ((opcode != Opcode.DIVIDE) || (rightValue != 0))) {
+            int     value;
+
+            switch (opcode) {
+                case Opcode.ADD:
+                    value = leftValue + rightValue;
+                    break;
+                case Opcode.SUBTRACT:
+                    value = leftValue - rightValue;
+                    break;
+                case Opcode.MULTIPLY:
+                    value = leftValue * rightValue;
+                    break;
+                default:
+                    value = leftValue / rightValue;
+                    break;
+            }
+            results[which] = Integer.valueOf(value);
+            traps[which] = false;
+            sizes[which] = 1;
+            return;
+        }
+
+        switch (opcode) {
+            case Opcode.ADD:
+                if ((rightLiteral == true) && (rightValue == 0)) {
+                    return;
+                }
+                if ((leftLiteral == true) && (leftValue == 0)) {
+                    keep(results, traps, sizes, which, which + 1);
+                    return;
+                }
+                break;
+            case Opcode.SUBTRACT:
+                if ((rightLiteral == true) && (rightValue == 0)) {
+                    return;
+                }
+                break;
+            case Opcode.MULTIPLY:
+                if ((rightLiteral == true) && (rightValue == 1)) {
+                    return;
+                }
+                if ((leftLiteral == true) && (leftValue == 1)) {
+                    keep(results, traps, sizes, which, which + 1);
+                    return;
+                }
+                if ((trap == false) &&
+                    (((rightLiteral == true) && (rightValue == 0)) ||
+                     ((leftLiteral == true) && (leftValue == 0)))) {
+                    results[which] = Integer.valueOf(0);
+                    traps[which] = false;
+                    sizes[which] = 1;
+                    return;
+                }
+                break;
+            case Opcode.DIVIDE:
+                if ((rightLiteral == true) && (rightValue == 1)) {
+                    return;
+                }
+                if ((rightLiteral == false) || (rightValue == 0)) {
+                    trap = true;
+                }
+                break;
+        }
+
+        /*
+         *  Nothing to simplify.  Reuse the node if its operands are
+         *  the ones it already had.
+         */
+        if ((left == node.getOperand(0)) && (right == node.getOperand(1))) {
+            simplified = node;
+        } else {
+            simplified = Parser.combine(Opcode.operator(opcode), left,
+                                        right);
+        }
+        sizes[which] = sizes[which] + sizes[which + 1] + 1;
+        results[which] = simplified;
+        traps[which] = trap;
+    }
+
+    /*
+     *  Helper method to replace one result stack entry with another.
+     */
+    private static void keep(Expression results[], boolean traps[],
+                             int sizes[], int to, int from)
+    {
+        results[to] = results[from];
+        traps[to] = traps[from];
+        sizes[to] = sizes[from];
+    }
+
+    /**
+     *  Evaluate the simplified tree and return its value.
+     *  @return The same value as {@code getValue()} on the original
+     *  tree.
+     *  @throws IllegalStateException When the original tree has
+     *  variables.
+     */
+    public int  getValue()
+    {
+        if (hasVariables == true) {
+            return(original.getValue());
+        }
+
+        return(optimized.getValue());
+    }
+
+    /**
+     *  Evaluate the simplified tree using the given values for its
+     *  variables and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on the
+     *  original tree.
+     */
+    public int  getValue(int variables[])
+    {
+        return(optimized.getValue(variables));
+    }
+
+    /**
+     *  Return the simplified tree.
+     *  @return The simplified tree.
+     */
+    public Expression   getOptimized()
+    {
+        return(optimized);
+    }
+
+    /**
+     *  Return the tree as it was given to us.
+     *  @return The original tree.
+     */
+    public Expression   getOriginal()
+    {
+        return(original);
+    }
+
+    /**
+     *  Return how many nodes simplifying got rid of.
+     *  @return The number of nodes in the original tree less the
+     *  number in the simplified tree.
+     */
+    public int  getNodesRemoved()
+    {
+        return(removed);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The simplified tree.
+     */
+    Expression  getOperand(int which)
+    {
+        return(optimized);
+    }
+
+    /**
+     *  Return the original tree as a {@code String}.
+     *  @return The original tree as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + original);
+    }
+
+    /**
+     *  Write the original tree, as {@link #toString()} returns it.
+     *  @param out Where to write the tree.
+     *  @throws java.io.IOException When {@code out} fails.
+     */
+    public void writeTo(Appendable out)
+            throws java.io.IOException
+    {
+        if (original == null) {
+            out.append("null");
+            return;
+        }
+        original.writeTo(out);
+    }
+
+    /**
+     *  Unit test our {@code OptimizedExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             whichTest;
+        int             terms;
+        int             variables[]     = { 6, 7 };
+        StringBuilder   deep;
+        /*
+         *  The items in this array are expressions to simplify.  Each
+         *  corresponds to the simplified form and the number of nodes
+         *  removed in the following arrays at the same index.
+         */
+        String          toTest[]    = {
+                "2 + 5 - 1 * 5 / 2",
+                "(1 + 2) * x",
+                "x + 0 - 0 * y",
+                "1 * (x / 1) + 0",
+                "(x / y) * 0",
+                "7 / (3 - 3)",
+                "x * (2 - 2) + y",
+        };
+        String          simplified[]    = {
+                "5",
+                "3 * x",
+                "x",
+                "x",
+                "x / y * 0",
+                "7 / 0",
+                "y",
+        };
+        int             nodesRemoved[]  = {
+                8, 3, 6, 7, 1, 3, 7,
+        };
+
+        errors = 0;
+        for (whichTest = 0; (whichTest < toTest.length); ++whichTest) {
+            int                 expected;
+            Expression          expression;
+            OptimizedExpression optimized;
+
+            System.out.println("Trying to simplify:\n" +
+                               "  \"" + toTest[whichTest] + "\"");
+            try {
+                expression = new Expression(toTest[whichTest]);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            optimized = new OptimizedExpression(expression);
+            System.out.println("Simplifies to: " +
+                               optimized.getOptimized() + " removing " +
+                               optimized.getNodesRemoved());
+
+            if (simplified[whichTest].equals("" +
+                            optimized.getOptimized()) == false) {
+                System.out.println("*** ERROR *** simplifies to " +
+                                   optimized.getOptimized() +
+                                   " should be " +
+                                   simplified[whichTest]);
+                ++errors;
+            }
+            if ((optimized.getNodesRemoved() !=
+                                        nodesRemoved[whichTest]) ||
+                (new OptimizedExpression(expression.getOperand(0)).
+                        getNodesRemoved() != nodesRemoved[whichTest])) {
+                System.out.println("*** ERROR *** removes " +
+                                   optimized.getNodesRemoved() +
+                                   " should be " +
+                                   nodesRemoved[whichTest]);
+                ++errors;
+            }
+            if (toTest[whichTest].equals("" + optimized) == false) {
+                System.out.println("*** ERROR *** toString()" +
+                                   " returns " + optimized +
+                                   " should be " + toTest[whichTest]);
+                ++errors;
+            }
+
+            try {
+                expected = expression.getValue(variables);
+            } catch (ArithmeticException exception) {
+                try {
+                    optimized.getValue(variables);
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " should throw " + exception);
+                    ++errors;
+                } catch (ArithmeticException expectedException) {
+                    System.out.println("Throws " + expectedException);
+                }
+                continue;
+            }
+            if (optimized.getValue(variables) != expected) {
+                System.out.println("*** ERROR *** getValue()" +
+                                   " returns " +
+                                   optimized.getValue(variables) +
+                                   " should be " + expected);
+                ++errors;
+            }
+        }
+
+        /*
+         *  A simplified tree too deep to walk recursively is taken
+         *  care of just as the parsed tree was.
+         */
+        terms = 100000;
+        deep = new StringBuilder("x");
+        for (whichTest = 1; (whichTest < terms); ++whichTest) {
+            deep.append(" - 1");
+        }
+        try {
+            Parser              parser;
+            OptimizedExpression optimized;
+
+            parser = new Parser();
+            parser.setMaxDepth(terms);
+            optimized = new OptimizedExpression(new Expression(
+                                                    deep.toString(),
+                                                    parser));
+            if (optimized.getValue(variables) != variables[0] - terms + 1) {
+                System.out.println("*** ERROR *** deep getValue()" +
+                                   " returns " +
+                                   optimized.getValue(variables));
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        } catch (StackOverflowError error) {
+            System.out.println("*** ERROR *** " + error);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package expressions;
+
+/**
+ *  {@code OverflowException} is the exception thrown when an
+ *  operation's result doesn't fit in the type an
+ *  {@link ArithmeticExpression} is working in.  It carries the node
+ *  whose operation overflowed.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    OverflowException extends ArithmeticException
+{
+    private static final long   serialVersionUID    = 1L;
+
+    private final transient Expression  expression;
+
+    /**
+     *  Construct an {@code OverflowException}.
+     *  @param message What overflowed.
+     *  @param expression The node whose operation overflowed.
+     */
+    public      OverflowException(String message, Expression expression)
+    {
+        super(message);
+        this.expression = expression;
+    }
+
+    /**
+     *  Return the node whose operation overflowed.
+     *  @return The node, or {@code null} when it's been serialized.
+     */
+    public Expression   getExpression()
+    {
+        return(expression);
+    }
+}
@@ -0,0 +1,770 @@
+package expressions;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.text.*;
+
+/**
+ *  {@code ParallelExpression} is the class that extends
+ *  {@code Expression} to evaluate a very large tree on several cores
+ *  with a {@code ForkJoinPool}.  Integer arithmetic wraps around, so
+ *  addition and multiplication are associative and
+ *  {@code a - b} is exactly {@code a + -b}.  A run of additions and
+ *  subtractions, however it's grouped, is gathered into one chain of
+ *  terms, each added or subtracted, and a run of multiplications
+ *  into one chain of factors.  A chain is split in halves by the
+ *  number of nodes under its operands until a half is smaller than
+ *  the cutoff, and the halves are evaluated in parallel.  Divisions
+ *  keep their order; a division by something large evaluates its
+ *  divisor while its dividend is being evaluated.
+ *  <p>
+ *  Any part of the tree smaller than the cutoff is evaluated on one
+ *  thread with {@link IterativeExpression#evaluate}, so the depth of
+ *  the tree never matters.  The value is always the same as
+ *  {@code getValue()} on the tree.  When evaluating it throws, the
+ *  exception is the one evaluating the tree throws, because where
+ *  several parts fail the leftmost failure is kept.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    ParallelExpression extends Expression
+{
+    /**
+     *  The number of nodes a part of the tree must have before it is
+     *  split across threads, unless another is asked for.
+     */
+    public static final int     DEFAULT_CUTOFF  = 4096;
+
+    /*
+     *  How deeply the parts may be nested in each other.  A part that
+     *  would be nested deeper is evaluated on one thread instead, so
+     *  an odd shape of tree can't use up the stack.
+     */
+    private static final int    MAX_NESTING     = 64;
+    private static final int    INITIAL_SIZE    = 16;
+
+    private final Expression    source;
+    private final ForkJoinPool  pool;
+    private final Part          root;
+
+    /**
+     *  Construct a {@code ParallelExpression} for the given tree that
+     *  uses the common pool and the default cutoff.
+     *  @param expression The tree to evaluate.
+     */
+    public      ParallelExpression(Expression expression)
+    {
+        this(expression, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     *  Construct a {@code ParallelExpression} for the given tree.  The
+     *  tree is walked once with an explicit stack to find the parts
+     *  worth splitting.
+     *  @param expression The tree to evaluate.
+     *  @param pool The threads to evaluate it on.
+     *  @param cutoff The number of nodes a part must have before it's
+     *  split.
+     *  @throws IllegalArgumentException When cutoff isn't positive.
+     */
+    public      ParallelExpression(Expression expression, ForkJoinPool pool,
+                                   int cutoff)
+    {
+        int             top;
+        int             resultTop;
+        Expression      nodes[];
+        int             visits[];
+        Part            results[];
+
+        if (cutoff <= 0) {
+            throw(new IllegalArgumentException("Bad cutoff " + cutoff));
+        }
+
+        source = expression;
+        this.pool = pool;
+
+        /*
+         *  Nodes stay on the node stack until the parts for both of
+         *  their operands are on the results stack.
+         */
+        nodes = new Expression[INITIAL_SIZE];
+        visits = new int[INITIAL_SIZE];
+        results = new Part[INITIAL_SIZE];
+        nodes[0] = expression;
+        visits[0] = 0;
+        top = 1;
+        resultTop = 0;
+        while (top > 0) {
+            Expression  node;
+            int         opcode;
+
+            node = nodes[top - 1];
+            if (resultTop == results.length) {
+                results = Arrays.copyOf(results, resultTop * 2);
+            }
+            opcode = (node == null) ? Opcode.LITERAL : node.getOpcode();
+            switch (opcode) {
+                case Opcode.LITERAL:
+                case Opcode.VARIABLE:
+                    results[resultTop++] = new Leaf(node, 1);
+                    --top;
+                    continue;
+                case Opcode.GROUP:
+                case Opcode.EXPRESSION:
+                    nodes[top - 1] = node.getOperand(0);
+                    continue;
+            }
+
+            if (visits[top - 1] == 2) {
+                Part    left;
+                Part    right;
+
+                right = results[--resultTop];
+                left = results[resultTop - 1];
+                results[resultTop - 1] = combine(node, opcode, left, right,
+                                                 cutoff);
+                --top;
+                continue;
+            }
+
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                visits = Arrays.copyOf(visits, top * 2);
+            }
+            nodes[top] = node.getOperand(visits[top - 1]);
+            visits[top] = 0;
+            ++visits[top - 1];
+            ++top;
+        }
+
+        root = results[0];
+        root.finish(cutoff);
+    }
+
+    /**
+     *  Evaluate the tree and return its value.
+     *  @return The same value as {@code getValue()} on the tree.
+     */
+    public int  getValue()
+    {
+        return(getValue(null));
+    }
+
+    /**
+     *  Evaluate the tree using the given values for its variables
+     *  and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on the tree.
+     */
+    public int  getValue(int variables[])
+    {
+        EvaluationEvent event;
+
+        event = new EvaluationEvent();
+        if (event.isEnabled() == false) {
+            return(value(variables));
+        }
+
+        event.begin();
+        try {
+            return(value(variables));
+        } finally {
+            event.evaluated(source, "parallel");
+        }
+    }
+
+    /*
+     *  Helper method that does the work of getValue().
+     */
+    private int value(int variables[])
+    {
+        Evaluation  evaluation;
+
+        if (root instanceof Leaf) {
+            return(root.evaluate(variables));
+        }
+
+        evaluation = new Evaluation(root, variables);
+        pool.invoke(evaluation);
+        return(evaluation.result());
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The tree we evaluate.
+     */
+    Expression  getOperand(int which)
+    {
+        return(source);
+    }
+
+    /*
+     *  Build the part for an operation from the parts for its
+     *  operands.  Small operations become a single leaf, and runs of
+     *  the same kind of operation grow one chain.
+     */
+    private static Part combine(Expression node, int opcode, Part left,
+                                Part right, int cutoff)
+    {
+        long        size;
+        int         family;
+        Part        part;
+
+        size = left.size + right.size + 1;
+        if (size < cutoff) {
+            return(new Leaf(node, size));
+        }
+
+        family = (opcode == Opcode.SUBTRACT) ? Opcode.ADD : opcode;
+        if (family == Opcode.DIVIDE) {
+            if ((left instanceof Steps) == false) {
+                left = new Steps(left);
+            }
+            ((Steps)left).add(opcode, right);
+            part = left;
+        } else if (left.isChain(family) == true) {
+            ((Chain)left).add(right, opcode == Opcode.SUBTRACT);
+            part = left;
+        } else if ((opcode != Opcode.SUBTRACT) &&
+                   (right.isChain(family) == true)) {
+            ((Chain)right).addFirst(left);
+            part = right;
+        } else {
+            part = new Chain(family, left);
+            ((Chain)part).add(right, opcode == Opcode.SUBTRACT);
+        }
+        part.size = size;
+
+        /*
+         *  A part nested too deeply is evaluated on one thread, which
+         *  walks it with an explicit stack.
+         */
+        if (part.nesting > MAX_NESTING) {
+            return(new Leaf(node, size));
+        }
+
+        return(part);
+    }
+
+    /*
+     *  A piece of the tree that evaluates itself, forking work where
+     *  it's big enough.
+     */
+    private abstract static class   Part
+    {
+        long        size;
+        int         nesting;
+
+        abstract int    evaluate(int variables[]);
+
+        void    finish(int cutoff)
+        {
+        }
+
+        boolean isChain(int family)
+        {
+            return(false);
+        }
+    }
+
+    /*
+     *  A piece of the tree too small to split, evaluated on one thread.
+     */
+    private static final class  Leaf extends Part
+    {
+        private final Expression    node;
+
+        Leaf(Expression node, long size)
+        {
+            this.node = node;
+            this.size = size;
+        }
+
+        int evaluate(int variables[])
+        {
+            return(IterativeExpression.evaluate(node, variables));
+        }
+    }
+
+    /*
+     *  Terms added or subtracted, or factors multiplied, in any order.
+     *  The operands are gathered in a deque while the tree is walked
+     *  and moved into arrays once it's done.
+     */
+    private static final class  Chain extends Part
+    {
+        private final int               family;
+        private ArrayDeque<Part>        gathered    = new ArrayDeque<>();
+        private ArrayDeque<Boolean>     negations   = new ArrayDeque<>();
+        private Part                    operands[];
+        private boolean                 negated[];
+        private long                    sizes[];
+        private int                     cutoff;
+
+        Chain(int family, Part first)
+        {
+            this.family = family;
+            add(first, false);
+        }
+
+        boolean isChain(int family)
+        {
+            return((gathered != null) && (this.family == family));
+        }
+
+        void    add(Part operand, boolean negate)
+        {
+            gathered.addLast(operand);
+            negations.addLast(negate);
+            nesting = Math.max(nesting, operand.nesting + 1);
+        }
+
+        void    addFirst(Part operand)
+        {
+            gathered.addFirst(operand);
+            negations.addFirst(false);
+            nesting = Math.max(nesting, operand.nesting + 1);
+        }
+
+        void    finish(int cutoff)
+        {
+            int     which;
+
+            this.cutoff = cutoff;
+            operands = gathered.toArray(new Part[gathered.size()]);
+            negated = new boolean[operands.length];
+            sizes = new long[operands.length + 1];
+            which = 0;
+            for (Boolean negate : negations) {
+                negated[which] = negate;
+                sizes[which + 1] = sizes[which] + operands[which].size;
+                operands[which].finish(cutoff);
+                ++which;
+            }
+            gathered = null;
+            negations = null;
+        }
+
+        int evaluate(int variables[])
+        {
+            return(evaluate(0, operands.length, variables));
+        }
+
+        /*
+         *  Combine the operands from first up to but not including
+         *  last, splitting them while there are enough nodes.
+         */
+        int evaluate(int first, int last, int variables[])
+        {
+            int         middle;
+            int         value;
+            Range       right;
+
+            if ((last - first == 1) ||
+                (sizes[last] - sizes[first] < cutoff)) {
+                value = (family == Opcode.ADD) ? 0 : 1;
+                for (middle = first; (middle < last); ++middle) {
+                    value = combine(value,
+                                    operands[middle].evaluate(variables),
+                                    negated[middle]);
+                }
+                return(value);
+            }
+
+            /*
+             *  Split where the nodes are halved, keeping at least one
+             *  operand on each side.
+             */
+            middle = Arrays.binarySearch(sizes, first, last + 1,
+                                         (sizes[first] + sizes[last]) / 2);
+            if (middle < 0) {
+                middle = -middle - 1;
+            }
+            middle = Math.max(first + 1, Math.min(last - 1, middle));
+
+            right = new Range(this, middle, last, variables);
+            right.fork();
+            try {
+                value = evaluate(first, middle, variables);
+            } catch (RuntimeException exception) {
+                right.join();
+                throw(exception);
+            }
+            right.join();
+            return(combine(value, right.result(), false));
+        }
+
+        private int combine(int value, int operand, boolean negate)
+        {
+            if (family == Opcode.MULTIPLY) {
+                return(value * operand);
+            }
+
+            return((negate == true) ? value - operand : value + operand);
+        }
+    }
+
+    /*
+     *  A value followed by operations done to it one after another,
+     *  which is what a run of divisions is.  The operations' right
+     *  operands that are big enough are evaluated in parallel with the
+     *  rest.
+     */
+    private static final class  Steps extends Part
+    {
+        private final Part          first;
+        private ArrayList<Part>     gathered    = new ArrayList<>();
+        private int                 opcodes[]   = new int[INITIAL_SIZE];
+        private Part                operands[];
+        private int                 cutoff;
+
+        Steps(Part first)
+        {
+            this.first = first;
+            nesting = first.nesting + 1;
+        }
+
+        void    add(int opcode, Part operand)
+        {
+            if (gathered.size() == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, opcodes.length * 2);
+            }
+            opcodes[gathered.size()] = opcode;
+            gathered.add(operand);
+            nesting = Math.max(nesting, operand.nesting + 1);
+        }
+
+        void    finish(int cutoff)
+        {
+            this.cutoff = cutoff;
+            first.finish(cutoff);
+            operands = gathered.toArray(new Part[gathered.size()]);
+            for (Part operand : operands) {
+                operand.finish(cutoff);
+            }
+            gathered = null;
+        }
+
+        int evaluate(int variables[])
+        {
+            int             which;
+            int             value;
+            Evaluation      forked[];
+
+            forked = new Evaluation[operands.length];
+            for (which = 0; (which < operands.length); ++which) {
+                if (operands[which].size >= cutoff) {
+                    forked[which] = new Evaluation(operands[which],
+                                                   variables);
+                    forked[which].fork();
+                }
+            }
+
+            which = 0;
+            try {
+                value = first.evaluate(variables);
+                for (; (which < operands.length); ++which) {
+                    int     operand;
+
+                    if (forked[which] != null) {
+                        forked[which].join();
+                        operand = forked[which].result();
+                        forked[which] = null;
+                    } else {
+                        operand = operands[which].evaluate(variables);
+                    }
+                    switch (opcodes[which]) {
+                        case Opcode.ADD:
+                            value += operand;
+                            break;
+                        case Opcode.SUBTRACT:
+                            value -= operand;
+                            break;
+                        case Opcode.MULTIPLY:
+                            value *= operand;
+                            break;
+                        default:
+                            value /= operand;
+                            break;
+                    }
+                }
+            } finally {
+                /*
+                 *  Nothing forked is left running once we return or
+                 *  throw.
+                 */
+                for (Evaluation evaluation : forked) {
+                    if (evaluation != null) {
+                        evaluation.join();
+                    }
+                }
+            }
+
+            return(value);
+        }
+    }
+
+    /*
+     *  A part evaluated as a task.  What it throws is kept rather than
+     *  thrown by join(), which would hand back a copy of it.
+     */
+    private static class    Evaluation extends RecursiveAction
+    {
+        private static final long   serialVersionUID    = 1L;
+
+        private final transient Part    part;
+        private final int               variables[];
+        int                             value;
+        RuntimeException                failure;
+
+        Evaluation(Part part, int variables[])
+        {
+            this.part = part;
+            this.variables = variables;
+        }
+
+        protected void  compute()
+        {
+            try {
+                value = evaluate();
+            } catch (RuntimeException exception) {
+                failure = exception;
+            }
+        }
+
+        int evaluate()
+        {
+            return(part.evaluate(variables));
+        }
+
+        int result()
+        {
+            if (failure != null) {
+                throw(failure);
+            }
+
+            return(value);
+        }
+    }
+
+    /*
+     *  Some of a chain's operands evaluated as a task.
+     */
+    private static final class  Range extends Evaluation
+    {
+        private static final long   serialVersionUID    = 1L;
+
+        private final transient Chain   chain;
+        private final int               first;
+        private final int               last;
+
+        Range(Chain chain, int first, int last, int variables[])
+        {
+            super(chain, variables);
+            this.chain = chain;
+            this.first = first;
+            this.last = last;
+        }
+
+        int evaluate()
+        {
+            return(chain.evaluate(first, last, super.variables));
+        }
+    }
+
+    /*
+     *  Build the text of a random expression with about the given
+     *  number of operators.
+     */
+    private static void random(Random random, int operators,
+                               StringBuilder text)
+    {
+        int     which;
+        int     left;
+        char    operatorsToUse[]    = {
+                        Addition.operator,
+                        Subtraction.operator,
+                        Multiplication.operator,
+                        Division.operator,
+                };
+
+        if (operators <= 0) {
+            if (random.nextInt(4) == 0) {
+                text.append((random.nextBoolean() == true) ? "x" : "y");
+            } else {
+                text.append(random.nextInt(9) + 1);
+            }
+            return;
+        }
+
+        /*
+         *  Lean the tree one way or the other more often than not, as
+         *  generated expressions tend to.
+         */
+        which = random.nextInt(4);
+        left = (which == 0) ? operators - 1 :
+               (which == 1) ? 0 :
+                              random.nextInt(operators);
+        text.append('(');
+        random(random, left, text);
+        text.append(' ').
+             append(operatorsToUse[random.nextInt(
+                        (random.nextInt(8) == 0) ? 4 : 3)]).
+             append(' ');
+        random(random, operators - 1 - left, text);
+        text.append(')');
+    }
+
+    /*
+     *  Describe what evaluating threw.  Once the JIT has compiled it,
+     *  a division by zero may throw an ArithmeticException without
+     *  its message, so only its class is compared.
+     */
+    private static String   failure(RuntimeException exception)
+    {
+        if (exception instanceof ArithmeticException) {
+            return(exception.getClass().getName());
+        }
+
+        return(exception.toString());
+    }
+
+    /**
+     *  Unit test our {@code ParallelExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             which;
+        int             variables[]     = { 7, -3 };
+        int             cutoffs[]       = { 1, 5, 64, DEFAULT_CUTOFF };
+        ForkJoinPool    pools[];
+        Parser          parser;
+        Random          random;
+        ArrayList<String>   toTest;
+        StringBuilder   text;
+
+        errors = 0;
+        parser = new Parser();
+        parser.setMaxDepth(1000000);
+        random = new Random(19);
+        toTest = new ArrayList<>(List.of(
+                "1",
+                "x",
+                "2 + 5 - 1 * 5 / 2",
+                "x - (y - (x - y)) * 3",
+                "100 / (x + y) / 2 - (7 - 7 / (y + 3))",
+                "7 / (3 - 3) + 1 / 0",
+                "x * x * x * x * x * x * x * x * x * x * x * x * x"));
+        for (which = 0; (which < 20); ++which) {
+            text = new StringBuilder();
+            random(random, random.nextInt(2000), text);
+            toTest.add(text.toString());
+        }
+
+        /*
+         *  Long chains leaning either way, and a long run of
+         *  divisions.
+         */
+        for (String operator : new String[] { " + ", " - ", " * ", " / " }) {
+            text = new StringBuilder("x");
+            for (which = 0; (which < 20000); ++which) {
+                text.append(operator).append(which % 5 + 1);
+            }
+            toTest.add(text.toString());
+            text = new StringBuilder();
+            for (which = 0; (which < 20000); ++which) {
+                text.append(which % 5 + 1).append(operator).append('(');
+            }
+            text.append('y');
+            for (which = 0; (which < 20000); ++which) {
+                text.append(')');
+            }
+            toTest.add(text.toString());
+        }
+
+        pools = new ForkJoinPool[] { new ForkJoinPool(1),
+                                     new ForkJoinPool(4) };
+        for (String test : toTest) {
+            Expression  expression;
+
+            System.out.println("Trying to evaluate " + test.length() +
+                               " characters:\n  \"" +
+                               ((test.length() > 60) ?
+                                test.substring(0, 60) + "..." : test) +
+                               "\"");
+            try {
+                expression = parser.parse(test, List.of("x", "y"));
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+
+            for (int values[] : new int[][] { variables, null }) {
+                String  expected;
+
+                try {
+                    expected = "" +
+                            IterativeExpression.evaluate(expression, values);
+                } catch (RuntimeException exception) {
+                    expected = failure(exception);
+                }
+                for (ForkJoinPool pool : pools) {
+                    for (int cutoff : cutoffs) {
+                        String      got;
+
+                        try {
+                            got = "" + new ParallelExpression(expression,
+                                                            pool, cutoff).
+                                                getValue(values);
+                        } catch (RuntimeException exception) {
+                            got = failure(exception);
+                        } catch (StackOverflowError error) {
+                            got = error.toString();
+                        }
+                        if (expected.equals(got) == false) {
+                            System.out.println("*** ERROR *** cutoff " +
+                                               cutoff + " on " +
+                                               pool.getParallelism() +
+                                               " threads gives " + got +
+                                               " should be " + expected);
+                            ++errors;
+                        }
+                    }
+                }
+            }
+        }
+
+        /*
+         *  It prints the tree it was given.
+         */
+        try {
+            Expression  expression;
+
+            expression = new Expression("(1 + 2) * 3");
+            if ("(1 + 2) * 3".equals(
+                    new ParallelExpression(expression).toString()) == false) {
+                System.out.println("*** ERROR *** toString() returns " +
+                                   new ParallelExpression(expression));
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** at position " +
+                               exception.getErrorOffset());
+            ++errors;
+        }
+
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
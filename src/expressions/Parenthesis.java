@@ -4,8 +4,8 @@ import java.text.ParseException;
 
 /**
  *  {@code Parenthesis} is the class that extends Expression to
- *
- *  @version 2022092200
+ *  group another expression so it is evaluated as a unit.
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class Parenthesis extends Expression
@@ -26,10 +26,11 @@ public class Parenthesis extends Expression
     public static final int priority = '3';
 
     private String subexpression;
-    private Expression expression;
+    private final Expression expression;
 
     /**
      *  Construct an instance of {@code Parenthesis} that
+     *  evaluates to the value of the expression it groups.
      *  @param expression Instance of expression class.
      */
     public Parenthesis(Expression expression)
@@ -47,14 +48,33 @@ public class Parenthesis extends Expression
     }
 
     /**
-     *  Return our expression as a {@code String}.
-     *  @return Our expression as a {@code String}.
+     *  Return the current expression using the given values for any
+     *  variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The current expression being evaluated.
+     */
+    public int  getValue(int variables[])
+    {
+        return(expression.getValue(variables));
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#GROUP}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.GROUP);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The expression we group.
      */
-    public String toString()
+    Expression  getOperand(int which)
     {
-        return(openOperator + " " +
-               this.expression.toString() + " " +
-               closeOperator);
+        return(expression);
     }
 
     /**
@@ -80,7 +100,7 @@ public class Parenthesis extends Expression
          *  previous array. A -99 value means we expect an exception.
          */
         int results[] = {
-            6,
+            7,
             5,
         };
 
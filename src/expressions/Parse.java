@@ -5,7 +5,7 @@ import java.text.*;
 
 /**
  *  {@code Parse} is the class that breaks a string into tokens.
- *  @version 2022081600
+ *  @version 2026101800
  *  @author Richard Barton
  */
 public final class  Parse
@@ -19,7 +19,9 @@ public final class  Parse
 
     /**
      *  Given a {@code String}, break it into tokens and return
-     *  them in an array.
+     *  them in an array.  This is a thin wrapper around
+     *  {@link Lexer} kept for callers that want the tokens as
+     *  {@code String}s.
      *  @param string String to parse.
      *  @return Array of tokens.
      *  @throws ParseException When an error during parsing
@@ -28,9 +30,28 @@ public final class  Parse
     public static String[]      parse(String string)
                 throws ParseException
     {
-        int                     i;
-        int                     collected;
-        StringBuffer            buffer;
+        long                    start;
+        String                  tokens[];
+
+        if (ExpressionMetrics.ENABLED == false) {
+            return(tokenize(string));
+        }
+
+        start = System.nanoTime();
+        tokens = tokenize(string);
+        ExpressionMetrics.tokenized(string.length(), tokens.length,
+                                    System.nanoTime() - start);
+
+        return(tokens);
+    }
+
+    /*
+     *  Helper method that does the work of parse().
+     */
+    private static String[]     tokenize(String string)
+                throws ParseException
+    {
+        Lexer                   lexer;
         ArrayList<String>       returnValue;
 
         if ((string == null) || (string.length() <= 0)) {
@@ -46,111 +67,13 @@ public final class  Parse
         returnValue = new ArrayList<>();
 
         /*
-         *  Gonna count the characters in the token and need
-         *  a place to accumulate the token.  Then go through
-         *  each character in the string.
+         *  Let the lexer find each token and copy it out of the
+         *  string.
          */
-        collected = 0;
-        buffer = new StringBuffer();
-        for (i = 0; (i < string.length()); ++i) {
-            char        thisChar;
-
-            /*
-             *  Get this character.
-             */
-            thisChar = string.charAt(i);
-            if (Character.isWhitespace(thisChar) == true) {
-                /*
-                 *  It's whitespace.  So, whatever we've collected
-                 *  so far is our newest token.
-                 */
-                if (collected > 0) {
-                    /*
-                     *  Add our newest token to our list and prepare
-                     *  to collect the next token.
-                     */
-                    returnValue.add(buffer.toString());
-                    buffer = new StringBuffer();
-                    collected = 0;
-                }
-                continue;
-            }
-
-            if (Character.isDigit(thisChar) == true) {
-                /*
-                 *  We have a digit.
-                 */
-                if ((collected > 0) &&
-                    (Character.isLetterOrDigit(buffer.charAt(0)) !=
-                                        true)) {
-                    /*
-                     *  We have a digit but this token started out
-                     *  with something other than a letter or digit.
-                     *  Don't know what this could be.
-                     */
-                    throw(new ParseException("Didn't expect a" +
-                                             " digit at position " +
-                                             i, i));
-                }
-
-                /*
-                 *  Add this digit to our token.
-                 */
-                buffer.append(thisChar);
-                ++collected;
-                continue;
-            }
-
-            if (Character.isLetter(thisChar) == true) {
-                /*
-                 *  We have a letter.
-                 */
-                if ((collected > 0) &&
-                    (Character.isLetter(buffer.charAt(0)) != true)) {
-                    /*
-                     *  We have a letter but this token started out
-                     *  with something other than a letter. Don't
-                     *  know what this could be.
-                     */
-                    throw(new ParseException("Didn't expect a" +
-                                             " letter at position " +
-                                             i, i));
-                }
-
-                /*
-                 *  Add this letter to our token.
-                 */
-                buffer.append(thisChar);
-                ++collected;
-                continue;
-            }
-
-            /*
-             *  We got something that's not whitespace, a digit
-             *  or a letter.
-             */
-            if (collected > 0) {
-                /*
-                 *  Whatever we have collected up to this character
-                 *  treat as our newest token and prepare to
-                 *  collect the next token.
-                 */
-                returnValue.add(buffer.toString());
-                buffer = new StringBuffer();
-                collected = 0;
-            }
-            /*
-             *  Add this character to our token.
-             */
-            returnValue.add("" + thisChar);
-        }
-
-        if (collected > 0) {
-            /*
-             *  We're at the end of the string.  Wrap up our
-             *  last token.
-             */
-            returnValue.add(buffer.toString());
+        lexer = new Lexer(string);
+        while (lexer.next() != Lexer.END) {
+            returnValue.add(string.substring(lexer.getStart(),
+                                             lexer.getEnd()));
         }
 
         if (returnValue.isEmpty() == true) {
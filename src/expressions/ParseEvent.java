@@ -0,0 +1,187 @@
+package expressions;
+
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import jdk.jfr.*;
+import jdk.jfr.consumer.*;
+import java.text.*;
+
+/**
+ *  {@code ParseEvent} is the Java Flight Recorder event for text
+ *  parsed into a tree by a {@link Parser}, which is what
+ *  {@link Expression#Expression(String)} does.  It records the length
+ *  of the text, how many tokens it held, the shape of the tree and
+ *  where parsing failed if it did, so a slow parse in a recording
+ *  can be told from a fast one by more than its stack.  Only parses
+ *  that take at least a millisecond are recorded unless the threshold
+ *  is changed, either in a {@code .jfc} settings file or with
+ *  <pre>
+ *      recording.enable(ParseEvent.class).withThreshold(Duration.ZERO);
+ *  </pre>
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+@Name("expressions.Parse")
+@Label("Expression Parse")
+@Category("Expressions")
+@Description("Text parsed into an expression tree")
+@Threshold("1 ms")
+public final class  ParseEvent extends Event
+{
+    @Label("Length")
+    @Description("Characters of text parsed")
+    int         length;
+
+    @Label("Tokens")
+    @Description("Tokens in the tree, 0 when parsing failed")
+    int         tokens;
+
+    @Label("Depth")
+    @Description("Nodes deep the tree is, 0 when parsing failed")
+    int         depth;
+
+    @Label("Nodes")
+    @Description("Nodes in the tree, 0 when parsing failed")
+    int         nodes;
+
+    @Label("Failure Offset")
+    @Description("Where parsing failed, -1 when it didn't")
+    int         failureOffset;
+
+    @Label("Failure")
+    @Description("Why parsing failed")
+    String      failure;
+
+    /**
+     *  Construct a {@code ParseEvent}.  The {@code Parser} makes these.
+     */
+    ParseEvent()
+    {
+        failureOffset = -1;
+    }
+
+    /**
+     *  End the event and commit it if it's slow enough.
+     *  @param length The length of the text.
+     *  @param stats The tokens, depth and nodes of the tree, as the
+     *  parser counts them.
+     */
+    void    parsed(int length, int stats[])
+    {
+        end();
+        if (shouldCommit() == true) {
+            this.length = length;
+            tokens = stats[0];
+            depth = stats[1];
+            nodes = stats[2];
+            commit();
+        }
+    }
+
+    /**
+     *  End the event for text that didn't parse and commit it if it's
+     *  slow enough.
+     *  @param length The length of the text.
+     *  @param exception Why it didn't parse.
+     */
+    void    failed(int length, ParseException exception)
+    {
+        end();
+        if (shouldCommit() == true) {
+            this.length = length;
+            failureOffset = exception.getErrorOffset();
+            failure = exception.getMessage();
+            commit();
+        }
+    }
+
+    /**
+     *  Unit test our {@code ParseEvent}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int                 errors;
+        Path                file;
+        List<RecordedEvent> events;
+        StringBuilder       text;
+
+        errors = 0;
+        text = new StringBuilder("1");
+        for (int which = 0; (which < 2000); ++which) {
+            text.append(" + (").append(which).append(" * 2)");
+        }
+
+        try {
+            file = Files.createTempFile("parse", ".jfr");
+            try (Recording recording = new Recording()) {
+                /*
+                 *  Everything is recorded first, then only what's slow.
+                 */
+                recording.enable(ParseEvent.class).
+                            withThreshold(Duration.ZERO);
+                recording.start();
+                new Expression("1 + (2 * 3)");
+                try {
+                    new Expression("1 + + 2");
+                } catch (ParseException exception) {
+                }
+                recording.enable(ParseEvent.class).
+                            withThreshold(Duration.ofHours(1));
+                new Expression(text.toString());
+                recording.stop();
+                recording.dump(file);
+            }
+            events = RecordingFile.readAllEvents(file);
+            events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+            Files.delete(file);
+        } catch (Exception exception) {
+            System.out.println("*** ERROR *** " + exception);
+            System.out.println("\nUNIT TEST FAILED with 1 errors!");
+            System.exit(1);
+            return;
+        }
+
+        for (RecordedEvent event : events) {
+            System.out.println(event.getInt("length") + " characters, " +
+                               event.getInt("tokens") + " tokens, " +
+                               event.getInt("nodes") + " nodes " +
+                               event.getInt("depth") + " deep, failed at " +
+                               event.getInt("failureOffset") + " in " +
+                               event.getDuration().toNanos() + "ns");
+        }
+        if (events.size() != 2) {
+            System.out.println("*** ERROR *** " + events.size() +
+                               " events recorded, should be 2");
+            ++errors;
+        } else {
+            RecordedEvent   parsed;
+            RecordedEvent   failed;
+
+            parsed = events.get(0);
+            failed = events.get(1);
+            if ((parsed.getInt("length") != 11) ||
+                (parsed.getInt("tokens") != 7) ||
+                (parsed.getInt("depth") != 4) ||
+                (parsed.getInt("nodes") != 6) ||
+                (parsed.getInt("failureOffset") != -1) ||
+                (parsed.getString("failure") != null)) {
+                System.out.println("*** ERROR *** parse recorded wrong");
+                ++errors;
+            }
+            if ((failed.getInt("length") != 7) ||
+                (failed.getInt("failureOffset") != 4) ||
+                (failed.getString("failure") == null)) {
+                System.out.println("*** ERROR *** failure recorded wrong");
+                ++errors;
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,820 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code Parser} is the class that turns the tokens handed out by
+ *  {@link Lexer} into a tree of {@code Expression}s.  It makes a
+ *  single pass over the tokens using the {@code priority} of each
+ *  operator class to decide which operations bind first.
+ *  <p>
+ *  A {@code Parser} keeps nothing between calls to
+ *  {@link #parse(CharSequence)} except its settings, so once it is
+ *  set up it may be shared between threads.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    Parser
+{
+    /**
+     *  Mode where operators bind according to their priority.
+     */
+    public static final int     PRECEDENCE      = 0;
+    /**
+     *  Mode where every operator has the same priority so the
+     *  expression is applied strictly left to right.  This is how
+     *  {@code Expression} has always evaluated.
+     */
+    public static final int     LEFT_TO_RIGHT   = 1;
+
+    /**
+     *  The deepest nesting of {@link Parenthesis} allowed unless
+     *  {@link #setMaxDepth(int)} says otherwise.
+     */
+    public static final int     DEFAULT_MAX_DEPTH   = 10000;
+
+    private static final int    INITIAL_STACK   = 16;
+
+    private int     mode;
+    private int     maxDepth;
+    private boolean wideLiterals;
+    private ExpressionInterner  interner;
+
+    /**
+     *  Construct a {@code Parser} that honors operator priority.
+     */
+    public      Parser()
+    {
+        this(PRECEDENCE);
+    }
+
+    /**
+     *  Construct a {@code Parser} working in the given mode.
+     *  @param mode Either {@link #PRECEDENCE} or
+     *  {@link #LEFT_TO_RIGHT}.
+     */
+    public      Parser(int mode)
+    {
+        setMode(mode);
+        maxDepth = DEFAULT_MAX_DEPTH;
+    }
+
+    /**
+     *  Return the mode this {@code Parser} is working in.
+     *  @return Either {@link #PRECEDENCE} or {@link #LEFT_TO_RIGHT}.
+     */
+    public int  getMode()
+    {
+        return(mode);
+    }
+
+    /**
+     *  Set the mode this {@code Parser} works in.
+     *  @param mode Either {@link #PRECEDENCE} or
+     *  {@link #LEFT_TO_RIGHT}.
+     */
+    public void setMode(int mode)
+    {
+        if ((mode != PRECEDENCE) && (mode != LEFT_TO_RIGHT)) {
+            throw(new IllegalArgumentException("Unknown mode " + mode));
+        }
+        this.mode = mode;
+    }
+
+    /**
+     *  Return the deepest nesting of {@link Parenthesis} allowed.
+     *  @return The deepest nesting allowed.
+     */
+    public int  getMaxDepth()
+    {
+        return(maxDepth);
+    }
+
+    /**
+     *  Set the deepest nesting of {@link Parenthesis} allowed.
+     *  Anything deeper fails with a {@code ParseException} at the
+     *  offending open parenthesis.
+     *  @param maxDepth The deepest nesting allowed.
+     */
+    public void setMaxDepth(int maxDepth)
+    {
+        if (maxDepth < 0) {
+            throw(new IllegalArgumentException("Negative depth " +
+                                               maxDepth));
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     *  Tell whether numbers too large for an {@code int} are kept.
+     *  @return {@code true} when they're parsed as
+     *  {@link WideInteger}s rather than refused.
+     */
+    public boolean  hasWideLiterals()
+    {
+        return(wideLiterals);
+    }
+
+    /**
+     *  Set whether numbers too large for an {@code int} are kept.
+     *  They're refused with a {@code ParseException} unless told
+     *  otherwise, since the tree itself only works in {@code int}.
+     *  Kept, each becomes a {@link WideInteger}, which an
+     *  {@link ArithmeticExpression} in {@link ArithmeticExpression#LONG}
+     *  or {@link ArithmeticExpression#BIG} mode reads in full.
+     *  @param wideLiterals {@code true} to keep them.
+     */
+    public void setWideLiterals(boolean wideLiterals)
+    {
+        this.wideLiterals = wideLiterals;
+    }
+
+    /**
+     *  Return where this {@code Parser} gets its nodes.
+     *  @return The {@code ExpressionInterner} that shares nodes
+     *  between trees, {@code null} when every tree gets its own.
+     */
+    public ExpressionInterner   getInterner()
+    {
+        return(interner);
+    }
+
+    /**
+     *  Set where this {@code Parser} gets its nodes.  With an
+     *  {@link ExpressionInterner} every tree parsed shares its
+     *  common parts with every other tree from the same interner.
+     *  @param interner The {@code ExpressionInterner} to use, or
+     *  {@code null} to give every tree its own nodes.
+     */
+    public void setInterner(ExpressionInterner interner)
+    {
+        this.interner = interner;
+    }
+
+    /**
+     *  Parse the given characters into an expression tree.
+     *  @param string The characters holding the expression.
+     *  @return The root of the expression tree.
+     *  @throws ParseException When the given parameter doesn't
+     *  comply with the syntax.
+     */
+    public Expression   parse(CharSequence string)
+            throws ParseException
+    {
+        return(parse(string, new ArrayList<String>()));
+    }
+
+    /**
+     *  Parse the given characters into an expression tree, giving
+     *  each name found a {@link Variable} slot.  Names already in
+     *  the list keep their place as their slot, so a caller can line
+     *  slots up with columns it already has.  New names are added to
+     *  the end of the list in the order they're first seen.  A tree
+     *  deeper than {@link IterativeExpression#DEPTH_THRESHOLD} comes
+     *  back wrapped in an {@link IterativeExpression}, so evaluating
+     *  or printing it can't run out of stack.
+     *  @param string The characters holding the expression.
+     *  @param variables The names of the variables by slot.
+     *  @return The root of the expression tree.
+     *  @throws ParseException When the given parameter doesn't
+     *  comply with the syntax.
+     */
+    public Expression   parse(CharSequence string, List<String> variables)
+            throws ParseException
+    {
+        int             stats[];
+        long            start;
+        Expression      tree;
+        ParseEvent      event;
+
+        event = new ParseEvent();
+        if ((ExpressionMetrics.ENABLED == false) &&
+            (event.isEnabled() == false)) {
+            return(parse(string, variables, null));
+        }
+
+        stats = new int[3];
+        event.begin();
+        start = System.nanoTime();
+        try {
+            tree = parse(string, variables, stats);
+        } catch (ParseException exception) {
+            if (ExpressionMetrics.ENABLED == true) {
+                ExpressionMetrics.parseFailed((string == null) ? 0 :
+                                                    string.length(),
+                                              exception,
+                                              System.nanoTime() - start);
+            }
+            event.failed((string == null) ? 0 : string.length(),
+                         exception);
+            throw(exception);
+        }
+        if (ExpressionMetrics.ENABLED == true) {
+            ExpressionMetrics.parsed(string.length(), stats[0], stats[1],
+                                     stats[2], System.nanoTime() - start);
+        }
+        event.parsed(string.length(), stats);
+
+        return(tree);
+    }
+
+    /*
+     *  Helper method that does the parsing.  When stats isn't null the
+     *  number of tokens, the depth of the tree and the number of nodes
+     *  in it go there for ExpressionMetrics.
+     */
+    private Expression  parse(CharSequence string, List<String> variables,
+                              int stats[])
+            throws ParseException
+    {
+        int             kind;
+        int             groups;
+        int             tokens;
+        int             operandTop;
+        int             operatorTop;
+        int             depth;
+        boolean         expectOperand;
+        Lexer           lexer;
+        Expression      operands[];
+        int             heights[];
+        char            operators[];
+        int             offsets[];
+        HashMap<String, Variable>   named;
+
+        if ((string == null) || (string.length() <= 0)) {
+            /*
+             *  No string to parse.
+             */
+            throw(new ParseException("Empty string to parse", 0));
+        }
+
+        /*
+         *  Operands wait here until the operator on their right tells
+         *  us what to do with them.  Operators wait (along with where
+         *  we found them) until an operator of lower priority or the
+         *  end of the input shows up.  An open parenthesis waits
+         *  on the operator stack too, which lets us nest as deeply
+         *  as we're allowed without recursion.  Each top index is
+         *  the number of entries in use.  Each operand's height is
+         *  how many nodes deep its tree is.
+         */
+        operands = new Expression[INITIAL_STACK];
+        heights = new int[INITIAL_STACK];
+        operators = new char[INITIAL_STACK];
+        offsets = new int[INITIAL_STACK];
+        operandTop = 0;
+        operatorTop = 0;
+        named = null;
+
+        /*
+         *  Expressions are in infix form as in
+         *    operand operator operand
+         *  so we start out expecting an operand and alternate.
+         */
+        expectOperand = true;
+        depth = 0;
+        lexer = new Lexer(string);
+        tokens = 0;
+        groups = 0;
+        while ((kind = lexer.next()) != Lexer.END) {
+            char    operator;
+            int     priority;
+
+            ++tokens;
+            if ((kind == Lexer.NUMBER) || (kind == Lexer.IDENTIFIER)) {
+                if (expectOperand == false) {
+                    throw(new ParseException("Missing operator at" +
+                                             " position " +
+                                             lexer.getStart(),
+                                             lexer.getStart()));
+                }
+                if (operandTop == operands.length) {
+                    operands = Arrays.copyOf(operands, operandTop * 2);
+                    heights = Arrays.copyOf(heights, operandTop * 2);
+                }
+                heights[operandTop] = 1;
+                if (kind == Lexer.IDENTIFIER) {
+                    /*
+                     *  Every use of a name shares one Variable.
+                     */
+                    if (named == null) {
+                        named = new HashMap<>();
+                    }
+                    operands[operandTop++] = variable(lexer, variables,
+                                                      named);
+                } else {
+                    operands[operandTop++] = operand(lexer);
+                }
+                expectOperand = false;
+                continue;
+            }
+
+            operator = lexer.getOperator();
+            if (operator == Parenthesis.openOperator) {
+                if (expectOperand == false) {
+                    throw(new ParseException("Missing operator at" +
+                                             " position " +
+                                             lexer.getStart(),
+                                             lexer.getStart()));
+                }
+                if (++depth > maxDepth) {
+                    throw(new ParseException("Parentheses nested" +
+                                             " deeper than " +
+                                             maxDepth,
+                                             lexer.getStart()));
+                }
+                if (operatorTop == operators.length) {
+                    operators = Arrays.copyOf(operators,
+                                              operatorTop * 2);
+                    offsets = Arrays.copyOf(offsets, operatorTop * 2);
+                }
+                operators[operatorTop] = operator;
+                offsets[operatorTop] = lexer.getStart();
+                ++operatorTop;
+                continue;
+            }
+
+            if (operator == Parenthesis.closeOperator) {
+                if ((expectOperand == true) && (operatorTop == 0)) {
+                    throw(new ParseException("No '" +
+                                             Parenthesis.openOperator +
+                                             "' to match '" + operator +
+                                             "' at position " +
+                                             lexer.getStart(),
+                                             lexer.getStart()));
+                }
+                if (expectOperand == true) {
+                    if (operators[operatorTop - 1] ==
+                                        Parenthesis.openOperator) {
+                        throw(new ParseException("Nothing between" +
+                                                 " parentheses at" +
+                                                 " position " +
+                                                 lexer.getStart(),
+                                                 lexer.getStart()));
+                    }
+                    throw(new ParseException("Missing right operand" +
+                                             " for " +
+                                             operators[operatorTop - 1],
+                                             lexer.getStart()));
+                }
+
+                /*
+                 *  Build everything back to the matching open
+                 *  parenthesis and wrap it up.
+                 */
+                while ((operatorTop > 0) &&
+                       (operators[operatorTop - 1] !=
+                                        Parenthesis.openOperator)) {
+                    --operatorTop;
+                    operands[operandTop - 2] =
+                                build(operators[operatorTop],
+                                      operands[operandTop - 2],
+                                      operands[operandTop - 1]);
+                    heights[operandTop - 2] =
+                                Math.max(heights[operandTop - 2],
+                                         heights[operandTop - 1]) + 1;
+                    operands[--operandTop] = null;
+                }
+                if (operatorTop == 0) {
+                    throw(new ParseException("No '" +
+                                             Parenthesis.openOperator +
+                                             "' to match '" + operator +
+                                             "' at position " +
+                                             lexer.getStart(),
+                                             lexer.getStart()));
+                }
+                --operatorTop;
+                --depth;
+                ++groups;
+                operands[operandTop - 1] =
+                            (interner == null) ?
+                                new Parenthesis(operands[operandTop - 1]) :
+                                interner.group(operands[operandTop - 1]);
+                ++heights[operandTop - 1];
+                continue;
+            }
+
+            priority = priority(operator);
+            if (priority < 0) {
+                throw(new ParseException("Don't understand" +
+                                         " operation '" + operator +
+                                         "'", lexer.getStart()));
+            }
+            if (expectOperand == true) {
+                throw(new ParseException("Missing left operand for " +
+                                         operator, lexer.getStart()));
+            }
+
+            /*
+             *  Everything waiting back to the nearest open parenthesis
+             *  that binds at least as tightly as this operator can be
+             *  built now.  A right associative operator leaves its
+             *  equals waiting.
+             */
+            while ((operatorTop > 0) &&
+                   (operators[operatorTop - 1] !=
+                                        Parenthesis.openOperator) &&
+                   ((priority(operators[operatorTop - 1]) > priority) ||
+                    ((priority(operators[operatorTop - 1]) == priority) &&
+                     (rightAssociative(operator) == false)))) {
+                --operatorTop;
+                operands[operandTop - 2] =
+                            build(operators[operatorTop],
+                                  operands[operandTop - 2],
+                                  operands[operandTop - 1]);
+                heights[operandTop - 2] =
+                            Math.max(heights[operandTop - 2],
+                                     heights[operandTop - 1]) + 1;
+                operands[--operandTop] = null;
+            }
+
+            if (operatorTop == operators.length) {
+                operators = Arrays.copyOf(operators, operatorTop * 2);
+                offsets = Arrays.copyOf(offsets, operatorTop * 2);
+            }
+            operators[operatorTop] = operator;
+            offsets[operatorTop] = lexer.getStart();
+            ++operatorTop;
+            expectOperand = true;
+        }
+
+        if (tokens == 0) {
+            /*
+             *  Nothing but whitespace.
+             */
+            throw(new ParseException("No tokens", 0));
+        }
+
+        if ((expectOperand == true) &&
+            (operators[operatorTop - 1] != Parenthesis.openOperator)) {
+            /*
+             *  The last thing we saw was an operator.
+             */
+            throw(new ParseException("Missing right operand for " +
+                                     operators[operatorTop - 1],
+                                     offsets[operatorTop - 1]));
+        }
+
+        /*
+         *  We've run out of tokens.  Construct whatever operations
+         *  are left.
+         */
+        while (operatorTop > 0) {
+            --operatorTop;
+            if (operators[operatorTop] == Parenthesis.openOperator) {
+                throw(new ParseException("No '" +
+                                         Parenthesis.closeOperator +
+                                         "' to match '" +
+                                         Parenthesis.openOperator +
+                                         "' at position " +
+                                         offsets[operatorTop],
+                                         offsets[operatorTop]));
+            }
+            operands[operandTop - 2] = build(operators[operatorTop],
+                                             operands[operandTop - 2],
+                                             operands[operandTop - 1]);
+            heights[operandTop - 2] = Math.max(heights[operandTop - 2],
+                                               heights[operandTop - 1]) + 1;
+            --operandTop;
+        }
+
+        if (stats != null) {
+            /*
+             *  Every token is a node but the ')' closing each group.
+             */
+            stats[0] = tokens;
+            stats[1] = heights[0];
+            stats[2] = tokens - groups;
+        }
+
+        return(IterativeExpression.guard(operands[0], heights[0]));
+    }
+
+    /*
+     *  Helper method to create the operand for the current token.
+     */
+    private Expression  operand(Lexer lexer)
+            throws ParseException
+    {
+        if ((lexer.isOverflow() == true) && (wideLiterals == true)) {
+            return(new WideInteger(lexer.getInput().
+                                        subSequence(lexer.getStart(),
+                                                    lexer.getEnd()).
+                                        toString()));
+        }
+        if (lexer.isOverflow() == true) {
+            throw(new ParseException("Integer too large at" +
+                                     " position " + lexer.getStart(),
+                                     lexer.getStart()));
+        }
+
+        if (interner != null) {
+            return(interner.integer(lexer.getIntValue()));
+        }
+
+        return(Integer.valueOf(lexer.getIntValue()));
+    }
+
+    /*
+     *  Helper method to find the Variable for the current name,
+     *  giving it a slot the first time it's seen.
+     */
+    private Variable    variable(Lexer lexer, List<String> variables,
+                                 HashMap<String, Variable> named)
+    {
+        String      name;
+        Variable    variable;
+
+        name = lexer.getInput().subSequence(lexer.getStart(),
+                                            lexer.getEnd()).toString();
+        variable = named.get(name);
+        if (variable == null) {
+            int     slot;
+
+            slot = variables.indexOf(name);
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(name);
+            }
+            variable = (interner == null) ? new Variable(name, slot) :
+                                            interner.variable(name, slot);
+            named.put(name, variable);
+        }
+
+        return(variable);
+    }
+
+    /*
+     *  Helper method to find how tightly an operator binds.  In
+     *  LEFT_TO_RIGHT mode every operator binds the same.  Returns
+     *  -1 for characters that aren't operators.
+     */
+    private int priority(char operator)
+    {
+        int     priority;
+
+        switch (operator) {
+            case Addition.operator:
+                priority = Addition.priority;
+                break;
+            case Subtraction.operator:
+                priority = Subtraction.priority;
+                break;
+            case Multiplication.operator:
+                priority = Multiplication.priority;
+                break;
+            case Division.operator:
+                priority = Division.priority;
+                break;
+            default:
+                return(-1);
+        }
+
+        if (mode == LEFT_TO_RIGHT) {
+            return(Addition.priority);
+        }
+
+        return(priority);
+    }
+
+    /*
+     *  Helper method to tell whether an operator groups from the
+     *  right when it sits next to an operator of the same priority.
+     */
+    private static boolean  rightAssociative(char operator)
+    {
+        switch (operator) {
+            case Addition.operator:
+                return(Addition.rightAssociative);
+            case Subtraction.operator:
+                return(Subtraction.rightAssociative);
+            case Multiplication.operator:
+                return(Multiplication.rightAssociative);
+            case Division.operator:
+                return(Division.rightAssociative);
+        }
+
+        return(false);
+    }
+
+    /*
+     *  Helper method to create an operation, sharing it when we have
+     *  an interner.
+     */
+    private Expression  build(char operator, Expression left,
+                              Expression right)
+    {
+        if (interner != null) {
+            return(interner.combine(operator, left, right));
+        }
+
+        return(combine(operator, left, right));
+    }
+
+    /**
+     *  Create an expression from an operator and its operands.
+     *  @param operator The operator character of one of the binary
+     *  operations.
+     *  @param left The left-hand operand.
+     *  @param right The right-hand operand.
+     *  @return The new operation.
+     */
+    static Expression   combine(char operator, Expression left,
+                                Expression right)
+    {
+        switch (operator) {
+            case Addition.operator:
+                return(new Addition(left, right));
+            case Subtraction.operator:
+                return(new Subtraction(left, right));
+            case Multiplication.operator:
+                return(new Multiplication(left, right));
+            case Division.operator:
+                return(new Division(left, right));
+        }
+
+        throw(new IllegalArgumentException("Unknown operator '" +
+                                           operator + "'"));
+    }
+
+    /**
+     *  Unit test our {@code Parser}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             whichTest;
+        Parser          precedence;
+        Parser          leftToRight;
+        /*
+         *  The items in this array are expressions to parse.  Each
+         *  corresponds to the results in the following arrays at
+         *  the same index.
+         */
+        String          toTest[]    = {
+                "2 + 5 - 1 * 5 / 2",
+                "2 * 3 + 4",
+                "2 + 3 * 4",
+                "8 / 2 / 2",
+                "8 - 2 - 2",
+                "1 2",
+                "1 + * 2",
+                "1 +",
+                "1 ^ 2",
+                "1 + (2 * 3)",
+                "(1 + 2) * 3",
+                "((4))",
+                "(1 + 2",
+                "1 + 2)",
+                "()",
+                "2 (3)",
+        };
+        /*
+         *  The results of each expression when operators bind by
+         *  priority, then when they apply left to right.  A -99
+         *  value means we expect an exception at the offset in the
+         *  last array.
+         */
+        int             precedenceResults[] = {
+                5, 10, 14, 2, 4, -99, -99, -99, -99,
+                7, 9, 4, -99, -99, -99, -99,
+        };
+        int             leftToRightResults[] = {
+                15, 10, 20, 2, 4, -99, -99, -99, -99,
+                7, 9, 4, -99, -99, -99, -99,
+        };
+        int             errorOffsets[]  = {
+                0, 0, 0, 0, 0, 2, 4, 2, 2,
+                0, 0, 0, 0, 5, 1, 2,
+        };
+
+        precedence = new Parser();
+        leftToRight = new Parser(LEFT_TO_RIGHT);
+
+        errors = 0;
+        for (whichTest = 0; (whichTest < toTest.length); ++whichTest) {
+            int         which;
+            Parser      parser;
+            int         expected;
+
+            System.out.println("Trying to parse:\n" +
+                               "  \"" + toTest[whichTest] + "\"");
+            for (which = 0; (which < 2); ++which) {
+                Expression  expression;
+
+                if (which == 0) {
+                    parser = precedence;
+                    expected = precedenceResults[whichTest];
+                } else {
+                    parser = leftToRight;
+                    expected = leftToRightResults[whichTest];
+                }
+
+                try {
+                    expression = parser.parse(toTest[whichTest]);
+                } catch (ParseException exception) {
+                    if ((expected != -99) ||
+                        (exception.getErrorOffset() !=
+                                        errorOffsets[whichTest])) {
+                        System.out.println("*** ERROR *** at position " +
+                                           exception.getErrorOffset());
+                        ++errors;
+                    }
+                    System.out.println(exception);
+                    continue;
+                }
+
+                if (expression.getValue() != expected) {
+                    System.out.println("*** ERROR *** getValue()" +
+                                       " returns " +
+                                       expression.getValue() +
+                                       " should be " + expected);
+                    ++errors;
+                }
+
+                if (toTest[whichTest].equals("" + expression) ==
+                                        false) {
+                    System.out.println("*** ERROR *** toString()" +
+                                       " returns " + expression +
+                                       " should be " +
+                                       toTest[whichTest]);
+                    ++errors;
+                }
+            }
+        }
+
+        /*
+         *  Nesting far deeper than recursion would allow still
+         *  parses, and the depth limit stops at the right place.
+         */
+        try {
+            int             depth;
+            StringBuilder   deep;
+
+            deep = new StringBuilder();
+            for (depth = 0; (depth < DEFAULT_MAX_DEPTH); ++depth) {
+                deep.append(Parenthesis.openOperator);
+            }
+            deep.append('1');
+            for (depth = 0; (depth < DEFAULT_MAX_DEPTH); ++depth) {
+                deep.append(Parenthesis.closeOperator);
+            }
+            precedence.parse(deep);
+            System.out.println("Parsed " + DEFAULT_MAX_DEPTH +
+                               " nested parentheses");
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        precedence.setMaxDepth(2);
+        try {
+            precedence.parse("(1 + ((2)))");
+            System.out.println("*** ERROR *** depth limit ignored");
+            ++errors;
+        } catch (ParseException exception) {
+            System.out.println(exception);
+            if (exception.getErrorOffset() != 6) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset() +
+                                   " should be 6");
+                ++errors;
+            }
+        }
+
+        /*
+         *  A number too large for an int is refused unless the
+         *  parser's told to keep it.
+         */
+        try {
+            precedence.parse("3000000000 * 2");
+            System.out.println("*** ERROR *** 3000000000 parsed");
+            ++errors;
+        } catch (ParseException exception) {
+            System.out.println(exception);
+        }
+        precedence.setWideLiterals(true);
+        try {
+            Expression  wide;
+
+            wide = precedence.parse("3000000000 * 2");
+            if ((wide.getOperand(0) instanceof WideInteger == false) ||
+                (wide.toString().equals("3000000000 * 2") == false)) {
+                System.out.println("*** ERROR *** 3000000000 parsed as " +
+                                   wide);
+                ++errors;
+            }
+        } catch (ParseException exception) {
+            System.out.println("*** ERROR *** " + exception);
+            ++errors;
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
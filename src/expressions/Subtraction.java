@@ -3,7 +3,7 @@ package expressions;
 /**
  *  {@code Subtraction} is the class that extends Expression to
  *  provide a difference between two other expressions.
- *  @version 2022092200
+ *  @version 2026101800
  *  @author David Simmons
  */
 public class Subtraction extends Expression
@@ -18,8 +18,14 @@ public class Subtraction extends Expression
      */
     public static final int     priority    = '1';
 
-    private Expression  minuend;
-    private Expression  subtrahend;
+    /**
+     *  Whether {@code Subtraction} groups from the right when next
+     *  to an operator of the same priority.
+     */
+    public static final boolean rightAssociative = false;
+
+    private final Expression    minuend;
+    private final Expression    subtrahend;
 
     /**
      *  Construct an instance of {@code Subtraction} that evaluates
@@ -43,12 +49,33 @@ public class Subtraction extends Expression
     }
 
     /**
-     *  Return our expression as a {@code String}.
-     *  @return Our expression as a {@code String}.
+     *  Return the difference of our operands using the given values
+     *  for any variables.
+     *  @param variables The value of each variable by slot.
+     *  @return The difference of our operands.
+     */
+    public int  getValue(int variables[])
+    {
+        return(minuend.getValue(variables) - subtrahend.getValue(variables));
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#SUBTRACT}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.SUBTRACT);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which 0 for the minuend, 1 for the subtrahend.
+     *  @return The operand asked for.
      */
-    public String       toString()
+    Expression  getOperand(int which)
     {
-        return(minuend + " " + operator + " " + subtrahend);
+        return((which == 0) ? minuend : subtrahend);
     }
 
     /**
@@ -0,0 +1,147 @@
+package expressions;
+
+/**
+ *  {@code Variable} is the class that extends {@code Expression} to
+ *  provide a named value supplied at evaluation time.  Each variable
+ *  has a slot, and its value is the entry at that slot in the array
+ *  given to {@link #getValue(int[])}.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    Variable extends Expression
+{
+    private final String    name;
+    private final int       slot;
+
+    /**
+     *  Construct a {@code Variable} with the given name whose value
+     *  comes from the given slot.
+     *  @param name The name of the variable.
+     *  @param slot Where the value of the variable is found.
+     */
+    public      Variable(String name, int slot)
+    {
+        if (slot < 0) {
+            throw(new IllegalArgumentException("Negative slot " + slot));
+        }
+        this.name = name;
+        this.slot = slot;
+    }
+
+    /**
+     *  A variable has no value without the values of the variables.
+     *  @return Never returns.
+     *  @throws IllegalStateException Always.
+     */
+    public int  getValue()
+    {
+        throw(new IllegalStateException("No value given for " + name));
+    }
+
+    /**
+     *  Return our value.
+     *  @param variables The value of each variable by slot.
+     *  @return The entry at our slot.
+     *  @throws IllegalStateException When there are no values.
+     */
+    public int  getValue(int variables[])
+    {
+        if (variables == null) {
+            return(getValue());
+        }
+
+        return(variables[slot]);
+    }
+
+    /**
+     *  Return our name.
+     *  @return The name we were given when instantiated.
+     */
+    public String   getName()
+    {
+        return(name);
+    }
+
+    /**
+     *  Return our slot.
+     *  @return The slot we were given when instantiated.
+     */
+    public int  getSlot()
+    {
+        return(slot);
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#VARIABLE}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.VARIABLE);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return {@code null} since a variable has no operands.
+     */
+    Expression  getOperand(int which)
+    {
+        return(null);
+    }
+
+    /**
+     *  Return our name as our {@code String}.
+     *  @return Our name.
+     */
+    public String       toString()
+    {
+        return(name);
+    }
+
+    /**
+     *  Unit test our {@code Variable} expression.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int         errors;
+        int         getValue;
+        int         variables[]     = { 12, 34 };
+        Expression  expression;
+
+        errors = 0;
+
+        expression = new Variable("jane1", 1);
+        getValue = expression.getValue(variables);
+        System.out.println("jane1: " + getValue);
+        if (getValue != 34) {
+            System.out.println("*** ERROR *** getValue()" +
+                               " returns " + getValue +
+                               " should be " + 34);
+            ++errors;
+        }
+
+        if (("" + expression).equals("jane1") == false) {
+            System.out.println("*** ERROR *** toString()" +
+                               " returns " + expression +
+                               " should be jane1");
+            ++errors;
+        }
+
+        try {
+            expression.getValue();
+            System.out.println("*** ERROR *** getValue()" +
+                               " without variables should throw");
+            ++errors;
+        } catch (IllegalStateException exception) {
+            System.out.println(exception);
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
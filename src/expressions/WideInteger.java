@@ -0,0 +1,155 @@
+package expressions;
+
+import java.math.*;
+
+/**
+ *  {@code WideInteger} is the class that extends {@code Expression} to
+ *  provide an integer constant too large for an {@code int}.  A
+ *  {@link Parser} only makes one when told to with
+ *  {@link Parser#setWideLiterals(boolean)}, so that an
+ *  {@link ArithmeticExpression} working in {@code long} or
+ *  {@code BigInteger} can use the whole value.  Everything else sees
+ *  it as an {@code int}, wrapped around just as the tree's own
+ *  arithmetic wraps.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    WideInteger extends Expression
+{
+    private final BigInteger    value;
+
+    /**
+     *  Construct a {@code WideInteger} instance with the value given
+     *  as the parameter.
+     *  @param value The digits of this instance.
+     */
+    public      WideInteger(String value)
+    {
+        this(new BigInteger(value));
+    }
+
+    /**
+     *  Construct a {@code WideInteger} instance with a value that has
+     *  already been converted.
+     *  @param value The value of this instance.
+     */
+    public      WideInteger(BigInteger value)
+    {
+        this.value = value;
+    }
+
+    /**
+     *  Return our whole value.
+     *  @return The value we were given when instantiated.
+     */
+    public BigInteger   getBigValue()
+    {
+        return(value);
+    }
+
+    /**
+     *  Return our value wrapped around to an {@code int}.
+     *  @return The low 32 bits of our value.
+     */
+    public int  getValue()
+    {
+        return(value.intValue());
+    }
+
+    /**
+     *  Return our value wrapped around to an {@code int}, which
+     *  doesn't depend on any variables.
+     *  @param variables Ignored.
+     *  @return The low 32 bits of our value.
+     */
+    public int  getValue(int variables[])
+    {
+        return(value.intValue());
+    }
+
+    /**
+     *  Return our whole value as a {@code String}.
+     *  @return The value we were given when instantiated as a
+     *  {@code String}.
+     */
+    public String       toString()
+    {
+        return(value.toString());
+    }
+
+    /**
+     *  Return the kind of node we are for code that walks the tree.
+     *  @return {@link Opcode#LITERAL}.
+     */
+    int getOpcode()
+    {
+        return(Opcode.LITERAL);
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return {@code null} since a constant has no operands.
+     */
+    Expression  getOperand(int which)
+    {
+        return(null);
+    }
+
+    /**
+     *  Unit test our {@code WideInteger} expression.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             whichTest;
+        /*
+         *  The items in this array are constants to read.  Each
+         *  corresponds to its value wrapped to an int in the
+         *  following array at the same index.
+         */
+        String          toTest[]    = {
+                "3000000000",
+                "4294967296",
+                "9223372036854775808",
+                "2147483647",
+        };
+        int             results[]   = {
+                -1294967296,
+                0,
+                0,
+                2147483647,
+        };
+
+        errors = 0;
+        for (whichTest = 0; (whichTest < toTest.length); ++whichTest) {
+            WideInteger expression;
+
+            expression = new WideInteger(toTest[whichTest]);
+            System.out.println(toTest[whichTest] + ": " +
+                               expression.getValue());
+            if ((expression.getValue() != results[whichTest]) ||
+                (expression.getValue(null) != results[whichTest])) {
+                System.out.println("*** ERROR *** getValue() returns " +
+                                   expression.getValue() +
+                                   " should be " + results[whichTest]);
+                ++errors;
+            }
+            if ((expression.toString().equals(toTest[whichTest]) ==
+                                                            false) ||
+                (expression.getBigValue().equals(
+                            new BigInteger(toTest[whichTest])) == false)) {
+                System.out.println("*** ERROR *** value is " +
+                                   expression);
+                ++errors;
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
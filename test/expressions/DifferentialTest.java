@@ -0,0 +1,273 @@
+package expressions;
+
+import java.math.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import net.jqwik.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  {@code DifferentialTest} checks every other way of evaluating or
+ *  storing an expression against walking the tree it was parsed to,
+ *  which is the reference.  The expressions are made up at random
+ *  with literals small and large, three variables and any nesting,
+ *  and jqwik shrinks any that disagree down to the smallest it can
+ *  find.  An evaluation that throws agrees with one that throws the
+ *  same class of exception.  Text edited into place gives the same
+ *  tree as the text parsed whole.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+class   DifferentialTest
+{
+    private static final List<String>   NAMES   = List.of("x", "y", "z");
+    private static final ForkJoinPool   POOL    = new ForkJoinPool(4);
+
+    /*
+     *  One way of working out a value.
+     */
+    private interface   Evaluation
+    {
+        int value()
+                throws Exception;
+    }
+
+    /**
+     *  Make up the text of an expression.
+     *  @return Expressions of any shape.
+     */
+    @Provide
+    Arbitrary<String>   expressions()
+    {
+        return(Arbitraries.lazyOf(DifferentialTest::literals,
+                                  DifferentialTest::literals,
+                                  DifferentialTest::variables,
+                                  this::operations,
+                                  this::groups));
+    }
+
+    private static Arbitrary<String>    literals()
+    {
+        return(Arbitraries.oneOf(Arbitraries.integers().between(0, 9),
+                                 Arbitraries.integers().
+                                    between(0, java.lang.Integer.MAX_VALUE)).
+                    map(String::valueOf));
+    }
+
+    private static Arbitrary<String>    variables()
+    {
+        return(Arbitraries.of(NAMES));
+    }
+
+    private Arbitrary<String>   operations()
+    {
+        return(Combinators.combine(expressions(),
+                                   Arbitraries.of(Addition.operator,
+                                                  Subtraction.operator,
+                                                  Multiplication.operator,
+                                                  Division.operator),
+                                   expressions()).
+                    as((left, operator, right) ->
+                            left + " " + operator + " " + right));
+    }
+
+    private Arbitrary<String>   groups()
+    {
+        return(expressions().map(text -> "(" + text + ")"));
+    }
+
+    /*
+     *  Describe what an evaluation gave: its value, or the class of
+     *  what it threw, since the JIT may drop the message of a
+     *  division by zero.
+     */
+    private static String   outcome(Evaluation evaluation)
+    {
+        try {
+            return("" + evaluation.value());
+        } catch (Exception exception) {
+            return(exception.getClass().getName());
+        }
+    }
+
+    /**
+     *  Every evaluator gives the value the tree does.
+     *  @param text The expression.
+     *  @param x The value of x.
+     *  @param y The value of y.
+     *  @param z The value of z.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Property(tries = 500)
+    void    evaluatorsAgree(@ForAll("expressions") String text,
+                            @ForAll int x, @ForAll int y, @ForAll int z)
+            throws Exception
+    {
+        int             values[];
+        String          expected;
+        Expression      tree;
+
+        tree = new Parser().parse(text, NAMES);
+        values = new int[] { x, y, z };
+        expected = outcome(() -> tree.getValue(values));
+
+        assertEquals(expected, outcome(() ->
+                IterativeExpression.evaluate(tree, values)), "iterative");
+        assertEquals(expected, outcome(() ->
+                new CompiledExpression(tree).getValue(values)), "compiled");
+        assertEquals(expected, outcome(() ->
+                new JitExpression(tree, 0).getValue(values)), "jit");
+        assertEquals(expected, outcome(() ->
+                new OptimizedExpression(tree).getValue(values)),
+                "optimized");
+        assertEquals(expected, outcome(() ->
+                new MemoizedExpression(tree).getValue(values)), "memoized");
+        assertEquals(expected, outcome(() ->
+                new ArithmeticExpression(tree, ArithmeticExpression.WRAP).
+                        getValue(values)), "wrap");
+        assertEquals(expected, outcome(() ->
+                new ParallelExpression(tree, POOL, 1).getValue(values)),
+                "parallel");
+        assertEquals(expected, outcome(() ->
+                new ExpressionArena(tree).getValue(values)), "arena");
+        assertEquals(expected, outcome(() ->
+                ExpressionCodec.evaluate(ByteBuffer.wrap(
+                        ExpressionCodec.encode(tree)), values)), "encoded");
+        assertEquals(expected, outcome(() ->
+                ExpressionCodec.decode(ByteBuffer.wrap(
+                        ExpressionCodec.encode(tree))).getValue(values)),
+                "decoded");
+    }
+
+    /**
+     *  Printing a tree and parsing what's printed gives the same tree,
+     *  and the interner gives an equal one.
+     *  @param text The expression.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Property(tries = 500)
+    void    printingRoundTrips(@ForAll("expressions") String text)
+            throws Exception
+    {
+        Parser          parser;
+        Expression      tree;
+        Expression      reparsed;
+
+        tree = new Parser().parse(text, NAMES);
+        reparsed = new Parser().parse(tree.toString(), NAMES);
+        assertEquals(tree.toString(), reparsed.toString());
+        assertEquals(tree, reparsed);
+        assertEquals(tree.hashCode(), reparsed.hashCode());
+
+        parser = new Parser();
+        parser.setInterner(new ExpressionInterner());
+        assertEquals(tree, parser.parse(text, NAMES));
+    }
+
+    /**
+     *  Editing text into place gives what parsing it whole does,
+     *  whether the edit is made to text that parses or the text
+     *  doesn't parse until the edit is made.
+     *  @param text The expression.
+     *  @param cut Where the edit starts, taken modulo the length.
+     *  @param length How much the edit puts back, taken modulo what's
+     *  left.
+     *  @param x The value of x.
+     *  @param y The value of y.
+     *  @param z The value of z.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Property(tries = 500)
+    void    editsAgreeWithParsing(@ForAll("expressions") String text,
+                                  @ForAll int cut, @ForAll int length,
+                                  @ForAll int x, @ForAll int y,
+                                  @ForAll int z)
+            throws Exception
+    {
+        int                 start;
+        int                 removed;
+        int                 values[];
+        String              piece;
+        Expression          tree;
+        EditableExpression  edited;
+
+        tree = new Parser().parse(text, NAMES);
+        values = new int[] { x, y, z };
+        start = Math.floorMod(cut, text.length() + 1);
+        removed = Math.floorMod(length, text.length() - start + 1);
+        piece = text.substring(start, start + removed);
+
+        edited = new EditableExpression(text.substring(0, start) +
+                                        text.substring(start + removed));
+        edited = edited.edit(start, 0, piece);
+        assertEditable(tree, values, edited, text, "inserted");
+
+        edited = new EditableExpression(text).edit(start, removed, piece);
+        assertEditable(tree, values, edited, text, "replaced");
+    }
+
+    /*
+     *  Check an edited expression against the tree for its text, with
+     *  the values given by name since the slots may differ.
+     */
+    private static void assertEditable(Expression tree, int values[],
+                                       EditableExpression edited,
+                                       String text, String how)
+            throws Exception
+    {
+        String          names[];
+        int             slots[];
+
+        assertEquals(text, edited.getText(), how);
+        assertTrue(edited.isValid(), how);
+        assertEquals(tree.toString(), edited.getTree().toString(), how);
+        names = edited.getVariables();
+        slots = new int[names.length];
+        for (int slot = 0; (slot < names.length); ++slot) {
+            slots[slot] = (NAMES.indexOf(names[slot]) < 0) ? 0 :
+                                values[NAMES.indexOf(names[slot])];
+        }
+        assertEquals(outcome(() -> tree.getValue(values)),
+                     outcome(() -> edited.getExpression().getValue(slots)),
+                     how);
+    }
+
+    /**
+     *  Checked arithmetic either throws or agrees with wrapping
+     *  arithmetic, and when it agrees so does {@code BigInteger}
+     *  arithmetic.
+     *  @param text The expression.
+     *  @param x The value of x.
+     *  @param y The value of y.
+     *  @param z The value of z.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Property(tries = 500)
+    void    checkedAgreesWithoutOverflow(@ForAll("expressions") String text,
+                                         @ForAll int x, @ForAll int y,
+                                         @ForAll int z)
+            throws Exception
+    {
+        int             values[];
+        int             value;
+        Expression      tree;
+
+        tree = new Parser().parse(text, NAMES);
+        values = new int[] { x, y, z };
+        try {
+            value = new ArithmeticExpression(tree,
+                                ArithmeticExpression.CHECKED).
+                            getValue(values);
+        } catch (ArithmeticException exception) {
+            return;
+        }
+
+        assertEquals(value, tree.getValue(values));
+        assertEquals(BigInteger.valueOf(value),
+                     new ArithmeticExpression(tree,
+                                              ArithmeticExpression.BIG).
+                            getBigValue(values));
+    }
+}
@@ -0,0 +1,118 @@
+package expressions;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  {@code SelfTests} runs the {@code main()} self-test of every class
+ *  in the library as a JUnit test.  Each runs in a JVM of its own,
+ *  since a failing self-test ends with {@code System.exit(1)}, and
+ *  passes when that JVM exits with zero.  Whatever it printed is
+ *  shown when it fails.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+class   SelfTests
+{
+    private static final long   TIMEOUT_MINUTES = 5;
+
+    /**
+     *  Make a test for each class with a {@code main()}.
+     *  @return The tests.
+     *  @throws Exception When the compiled classes can't be listed.
+     */
+    @TestFactory
+    Stream<DynamicTest> selfTests()
+            throws Exception
+    {
+        Path            classes;
+        List<String>    names;
+
+        classes = Paths.get(Expression.class.getProtectionDomain().
+                                getCodeSource().getLocation().toURI());
+        try (Stream<Path> files = Files.list(classes.resolve("expressions"))) {
+            names = files.map(file -> file.getFileName().toString()).
+                          filter(name -> name.endsWith(".class")).
+                          filter(name -> name.indexOf('$') < 0).
+                          map(name -> name.substring(0, name.length() - 6)).
+                          filter(SelfTests::hasMain).
+                          sorted().
+                          collect(Collectors.toList());
+        }
+        assertFalse(names.isEmpty(), "No self-tests found in " + classes);
+
+        return(names.stream().map(name -> DynamicTest.dynamicTest(name,
+                                        () -> run(classes, name))));
+    }
+
+    /**
+     *  Run the self-test of {@link ExpressionMetrics} again with
+     *  metrics on, since without them the library counts nothing.
+     *  @throws Exception When the compiled classes can't be found.
+     */
+    @Test
+    void    metricsEnabled()
+            throws Exception
+    {
+        run(Paths.get(Expression.class.getProtectionDomain().
+                            getCodeSource().getLocation().toURI()),
+            "ExpressionMetrics", "-Dexpressions.metrics=true");
+    }
+
+    /*
+     *  Whether a class has a self-test to run.
+     */
+    private static boolean  hasMain(String name)
+    {
+        try {
+            return(java.lang.reflect.Modifier.isStatic(
+                        Class.forName("expressions." + name).
+                            getMethod("main", String[].class).
+                            getModifiers()));
+        } catch (ReflectiveOperationException exception) {
+            return(false);
+        }
+    }
+
+    /*
+     *  Run one self-test and check how it ended.
+     */
+    private static void run(Path classes, String name, String... flags)
+            throws Exception
+    {
+        Process         process;
+        String          output;
+        List<String>    command;
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"),
+                              "bin", "java").toString());
+        command.add("-Xss512k");
+        command.addAll(Arrays.asList(flags));
+        command.add("-cp");
+        command.add(classes.toString());
+        command.add("expressions." + name);
+        process = new ProcessBuilder(command).
+                    redirectErrorStream(true).
+                    start();
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES) == false) {
+            process.destroyForcibly();
+            fail(name + " didn't finish");
+        }
+
+        assertEquals(0, process.exitValue(), () -> name + " failed:\n" +
+                                                   output);
+        assertFalse(output.contains("*** ERROR ***"), () -> name +
+                    " reported errors:\n" + output);
+    }
+}
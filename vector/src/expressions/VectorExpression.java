@@ -0,0 +1,214 @@
+package expressions;
+
+import java.util.*;
+import java.text.*;
+
+/**
+ *  {@code VectorExpression} is the class that extends
+ *  {@code Expression} to evaluate large batches of rows with SIMD
+ *  instructions through the JDK Vector API.  It runs the same program
+ *  as {@link CompiledExpression#evaluate(int[][], int[])} but applies
+ *  each operator a whole vector of rows at a time.
+ *  <p>
+ *  The Vector API is still an incubator module, so the JVM has to be
+ *  started with {@code --add-modules jdk.incubator.vector}.  Without
+ *  it we quietly fall back to the scalar loops.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+public class    VectorExpression extends Expression
+{
+    private static final BlockKernel    kernel  = loadKernel();
+
+    private final CompiledExpression    compiled;
+
+    /**
+     *  Construct a {@code VectorExpression} for the given tree.
+     *  @param expression The tree to evaluate.
+     */
+    public      VectorExpression(Expression expression)
+    {
+        compiled = new CompiledExpression(expression);
+    }
+
+    /**
+     *  Tell whether the Vector API is available to us.
+     *  @return {@code true} when batches are evaluated with SIMD
+     *  instructions, {@code false} when we fall back to scalar loops.
+     */
+    public static boolean   isVectorized()
+    {
+        return(kernel != null);
+    }
+
+    /**
+     *  Evaluate the expression for many rows at once.  Each variable
+     *  is a column and row {@code i} of the result is the value of
+     *  the expression with every variable set to entry {@code i} of
+     *  its column.  If a division by zero throws, some of
+     *  {@code out} may already be written.
+     *  @param columns The column of values for each variable by slot.
+     *  Each must have at least as many entries as {@code out}.
+     *  @param out Where the value for each row goes.
+     */
+    public void evaluate(int columns[][], int out[])
+    {
+        if (kernel == null) {
+            compiled.evaluate(columns, out);
+            return;
+        }
+
+        compiled.evaluate(columns, out, kernel);
+    }
+
+    /**
+     *  Evaluate the expression and return its value.
+     *  @return The same value as {@code getValue()} on our tree.
+     */
+    public int  getValue()
+    {
+        return(compiled.getValue());
+    }
+
+    /**
+     *  Evaluate the expression using the given values for its
+     *  variables and return its value.
+     *  @param variables The value of each variable by slot.
+     *  @return The same value as {@code getValue(int[])} on our tree.
+     */
+    public int  getValue(int variables[])
+    {
+        return(compiled.getValue(variables));
+    }
+
+    /**
+     *  Return one of our operands for code that walks the tree.
+     *  @param which Ignored.
+     *  @return The program standing in for our tree.
+     */
+    Expression  getOperand(int which)
+    {
+        return(compiled);
+    }
+
+    /**
+     *  Return our tree as a {@code String}.
+     *  @return Our tree as a {@code String}.
+     */
+    public String       toString()
+    {
+        return("" + compiled);
+    }
+
+    /*
+     *  Helper method to load the vector kernel.  Returns null when
+     *  the Vector API isn't there or can't do better than one lane.
+     */
+    private static BlockKernel  loadKernel()
+    {
+        try {
+            if (VectorKernel.lanes() > 1) {
+                return(new VectorKernel());
+            }
+        } catch (LinkageError error) {
+            /*
+             *  The incubator module wasn't added.
+             */
+        }
+
+        return(null);
+    }
+
+    /**
+     *  Unit test our {@code VectorExpression}.
+     *  @param arg Command line arguments
+     */
+    public static void  main(String arg[])
+    {
+        int             errors;
+        int             row;
+        int             rows;
+        int             slot;
+        Random          random;
+        /*
+         *  The items in this array are expressions to evaluate over
+         *  random columns.  Each is checked row by row against its
+         *  tree.
+         */
+        String          toTest[]    = {
+                "a + b",
+                "a * b - 3",
+                "(a - b) * (a + b) / c",
+                "a / (b - b)",
+        };
+
+        System.out.println("Vectorized: " + isVectorized());
+        random = new Random(1);
+        rows = 5003;
+        errors = 0;
+        for (String which : toTest) {
+            int                 out[];
+            int                 columns[][];
+            Expression          expression;
+            VectorExpression    vector;
+
+            System.out.println("Trying to evaluate:\n" +
+                               "  \"" + which + "\"");
+            try {
+                expression = new Expression(which);
+            } catch (ParseException exception) {
+                System.out.println("*** ERROR *** at position " +
+                                   exception.getErrorOffset());
+                ++errors;
+                continue;
+            }
+            vector = new VectorExpression(expression);
+
+            columns = new int[expression.getVariables().length][rows];
+            for (slot = 0; (slot < columns.length); ++slot) {
+                for (row = 0; (row < rows); ++row) {
+                    columns[slot][row] = random.nextInt();
+                    if (slot == 2) {
+                        columns[slot][row] |= 1;
+                    }
+                }
+            }
+
+            out = new int[rows];
+            try {
+                vector.evaluate(columns, out);
+            } catch (ArithmeticException exception) {
+                if (which.indexOf("b - b") < 0) {
+                    System.out.println("*** ERROR *** " + exception);
+                    ++errors;
+                } else {
+                    System.out.println("Throws " + exception);
+                }
+                continue;
+            }
+
+            for (row = 0; (row < rows); ++row) {
+                int     variables[];
+
+                variables = new int[columns.length];
+                for (slot = 0; (slot < columns.length); ++slot) {
+                    variables[slot] = columns[slot][row];
+                }
+                if (out[row] != expression.getValue(variables)) {
+                    System.out.println("*** ERROR *** row " + row +
+                                       " is " + out[row] +
+                                       " should be " +
+                                       expression.getValue(variables));
+                    ++errors;
+                    break;
+                }
+            }
+        }
+
+        if (errors > 0) {
+            System.out.println("\nUNIT TEST FAILED with " +
+                               errors + " errors!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package expressions;
+
+import jdk.incubator.vector.*;
+
+/**
+ *  {@code VectorKernel} is the class that applies each operator to a
+ *  block of rows using the JDK Vector API, as many lanes at a time as
+ *  the CPU's widest vectors hold.  Rows left over after the last
+ *  full vector are done one at a time.
+ *  <p>
+ *  Division checks each vector of divisors for a zero lane first and
+ *  throws the same {@code ArithmeticException} as {@link Division}.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+final class     VectorKernel implements BlockKernel
+{
+    private static final VectorSpecies<java.lang.Integer>  species =
+                                        IntVector.SPECIES_PREFERRED;
+
+    /**
+     *  Return how many rows one vector holds.
+     *  @return The number of lanes in our vectors.
+     */
+    static int  lanes()
+    {
+        return(species.length());
+    }
+
+    /**
+     *  Apply an operator to {@code count} pairs of values.
+     *  @param opcode One of {@link Opcode#ADD},
+     *  {@link Opcode#SUBTRACT}, {@link Opcode#MULTIPLY} or
+     *  {@link Opcode#DIVIDE}.
+     *  @param left Where the left-hand values are.
+     *  @param leftOffset Index of the first left-hand value.
+     *  @param right Where the right-hand values are.
+     *  @param rightOffset Index of the first right-hand value.
+     *  @param result Where the results go, starting at index 0.
+     *  @param count How many values to compute.
+     *  @throws ArithmeticException When dividing by zero.
+     */
+    public void apply(int opcode, int left[], int leftOffset,
+                      int right[], int rightOffset, int result[],
+                      int count)
+    {
+        int     i;
+        int     bound;
+
+        bound = species.loopBound(count);
+        switch (opcode) {
+            case Opcode.ADD:
+                for (i = 0; (i < bound); i += species.length()) {
+                    IntVector.fromArray(species, left, leftOffset + i).
+                        add(IntVector.fromArray(species, right,
+                                                rightOffset + i)).
+                        intoArray(result, i);
+                }
+                for (; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] +
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.SUBTRACT:
+                for (i = 0; (i < bound); i += species.length()) {
+                    IntVector.fromArray(species, left, leftOffset + i).
+                        sub(IntVector.fromArray(species, right,
+                                                rightOffset + i)).
+                        intoArray(result, i);
+                }
+                for (; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] -
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.MULTIPLY:
+                for (i = 0; (i < bound); i += species.length()) {
+                    IntVector.fromArray(species, left, leftOffset + i).
+                        mul(IntVector.fromArray(species, right,
+                                                rightOffset + i)).
+                        intoArray(result, i);
+                }
+                for (; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] *
+                                right[rightOffset + i];
+                }
+                break;
+            case Opcode.DIVIDE:
+                for (i = 0; (i < bound); i += species.length()) {
+                    IntVector   divisor;
+
+                    divisor = IntVector.fromArray(species, right,
+                                                  rightOffset + i);
+                    if (divisor.compare(VectorOperators.EQ, 0).
+                                anyTrue() == true) {
+                        throw(new ArithmeticException("/ by zero"));
+                    }
+                    IntVector.fromArray(species, left, leftOffset + i).
+                        div(divisor).
+                        intoArray(result, i);
+                }
+                for (; (i < count); ++i) {
+                    result[i] = left[leftOffset + i] /
+                                right[rightOffset + i];
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package expressions;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  {@code VectorDifferentialTest} checks the SIMD batches of a
+ *  {@link VectorExpression} against walking the tree one row at a
+ *  time, which is the reference, and runs the class's own
+ *  {@code main()} self-test.  The expressions are made up at random
+ *  as the core's {@code DifferentialTest} makes them, and the rows
+ *  mix small values, which divide by zero now and then, with large
+ *  ones, which overflow.  The tests run with the incubator module
+ *  added, so the vector kernel is what's being checked rather than
+ *  the scalar loops it falls back to.
+ *  @version 2026101800
+ *  @author David Simmons
+ */
+class   VectorDifferentialTest
+{
+    private static final List<String>   NAMES   = List.of("x", "y", "z");
+    private static final long           TIMEOUT_MINUTES = 5;
+
+    /**
+     *  Make up the text of an expression.
+     *  @return Expressions of any shape.
+     */
+    @Provide
+    Arbitrary<String>   expressions()
+    {
+        return(Arbitraries.lazyOf(VectorDifferentialTest::literals,
+                                  VectorDifferentialTest::literals,
+                                  VectorDifferentialTest::variables,
+                                  this::operations,
+                                  this::groups));
+    }
+
+    private static Arbitrary<String>    literals()
+    {
+        return(Arbitraries.oneOf(Arbitraries.integers().between(0, 9),
+                                 Arbitraries.integers().
+                                    between(0, java.lang.Integer.MAX_VALUE)).
+                    map(String::valueOf));
+    }
+
+    private static Arbitrary<String>    variables()
+    {
+        return(Arbitraries.of(NAMES));
+    }
+
+    private Arbitrary<String>   operations()
+    {
+        return(Combinators.combine(expressions(),
+                                   Arbitraries.of(Addition.operator,
+                                                  Subtraction.operator,
+                                                  Multiplication.operator,
+                                                  Division.operator),
+                                   expressions()).
+                    as((left, operator, right) ->
+                            left + " " + operator + " " + right));
+    }
+
+    private Arbitrary<String>   groups()
+    {
+        return(expressions().map(text -> "(" + text + ")"));
+    }
+
+    /**
+     *  The vector kernel is in use, or the properties below would
+     *  only be checking the scalar loops.
+     */
+    @Test
+    void    vectorized()
+    {
+        assertTrue(VectorExpression.isVectorized(),
+                   "Vector API not available");
+    }
+
+    /**
+     *  Run the self-test in a JVM of its own with the incubator module
+     *  added, since a failing self-test calls {@code System.exit}.
+     *  @throws Exception When the compiled classes can't be found.
+     */
+    @Test
+    void    selfTest()
+            throws Exception
+    {
+        Process         process;
+        String          output;
+        List<String>    command;
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"),
+                              "bin", "java").toString());
+        command.add("-Xss512k");
+        command.add("--add-modules");
+        command.add("jdk.incubator.vector");
+        command.add("-cp");
+        command.add(location(VectorExpression.class) +
+                    File.pathSeparator + location(Expression.class));
+        command.add("expressions.VectorExpression");
+        process = new ProcessBuilder(command).
+                    redirectErrorStream(true).
+                    start();
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES) == false) {
+            process.destroyForcibly();
+            fail("VectorExpression didn't finish");
+        }
+
+        assertEquals(0, process.exitValue(), () -> "VectorExpression" +
+                                                   " failed:\n" + output);
+        assertFalse(output.contains("*** ERROR ***"), () ->
+                    "VectorExpression reported errors:\n" + output);
+    }
+
+    /**
+     *  A batch gives every row the value the tree does, or throws
+     *  when the tree throws for any row.
+     *  @param text The expression.
+     *  @param rows How many rows are in the batch.
+     *  @param seed Where the values in the rows come from.
+     *  @throws Exception When the expression doesn't parse.
+     */
+    @Property(tries = 300)
+    void    batchesAgree(@ForAll("expressions") String text,
+                         @ForAll @IntRange(min = 0, max = 300) int rows,
+                         @ForAll long seed)
+            throws Exception
+    {
+        int             row;
+        int             columns[][];
+        int             expected[];
+        int             out[];
+        boolean         throwing;
+        Random          random;
+        Expression      tree;
+
+        tree = new Parser().parse(text, NAMES);
+        random = new Random(seed);
+        columns = new int[NAMES.size()][rows];
+        for (int[] column : columns) {
+            for (row = 0; (row < rows); ++row) {
+                column[row] = (random.nextInt(4) == 0) ?
+                                    random.nextInt(5) - 2 :
+                                    random.nextInt();
+            }
+        }
+
+        expected = new int[rows];
+        throwing = false;
+        for (row = 0; (row < rows) && (throwing == false); ++row) {
+            try {
+                expected[row] = tree.getValue(new int[] {
+                                    columns[0][row], columns[1][row],
+                                    columns[2][row]
+                                                          });
+            } catch (ArithmeticException exception) {
+                throwing = true;
+            }
+        }
+
+        out = new int[rows];
+        try {
+            new VectorExpression(tree).evaluate(columns, out);
+        } catch (ArithmeticException exception) {
+            assertTrue(throwing, () -> text + " throws " + exception);
+            return;
+        }
+        assertFalse(throwing, () -> text + " doesn't throw");
+        assertArrayEquals(expected, out, text);
+    }
+
+    /*
+     *  Where a class was loaded from.
+     */
+    private static String   location(Class<?> loaded)
+            throws Exception
+    {
+        return(Paths.get(loaded.getProtectionDomain().getCodeSource().
+                            getLocation().toURI()).toString());
+    }
+}